@@ -0,0 +1,76 @@
+package Crawler;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Shared setup for the benchmarks: configuration overrides, quiet logging and synthetic page content.
+final class BenchmarkSupport {
+    private static final String[] WORDS = {
+            "the", "crawler", "java", "thread", "queue", "page", "link", "search", "index", "result",
+            "network", "server", "request", "response", "document", "content", "score", "keyword", "depth", "host"
+    };
+
+    private BenchmarkSupport() {
+    }
+
+    // Loads the given properties over the defaults, the same way crawler.properties is read
+    static void configure(Map<String, String> overrides) {
+        try {
+            Path file = Files.createTempFile("crawler-bench", ".properties");
+            StringBuilder properties = new StringBuilder();
+            overrides.forEach((key, value) -> properties.append(key).append('=').append(value).append('\n'));
+            Files.writeString(file, properties);
+            CrawlerConfig.getInstance().loadFromFile(file.toString());
+            Files.delete(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Per-page logging would dominate every measurement
+    static void quietLogging() {
+        Logger.getLogger("").setLevel(Level.SEVERE);
+        Logger.getLogger("Crawler").setLevel(Level.SEVERE);
+    }
+
+    // Mixed-case prose of roughly the given size in which the keyword appears about once every 200 words
+    static String text(int size, String keyword, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(size + 32);
+        while (text.length() < size) {
+            String word = random.nextInt(200) == 0 ? keyword : WORDS[random.nextInt(WORDS.length)];
+            text.append(random.nextInt(8) == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            text.append(random.nextInt(12) == 0 ? ". " : " ");
+        }
+        text.setLength(size);
+        return text.toString();
+    }
+
+    // Counts results instead of writing them, so sink I/O stays out of pipeline measurements
+    static final class CountingSink implements ResultSink {
+        final LongAdder written = new LongAdder();
+
+        @Override
+        public void write(JSONObject result) {
+            written.increment();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    static String url(Random random, int hosts, int pathsPerHost) {
+        return "https://host" + random.nextInt(hosts) + ".example.com/section/" + random.nextInt(16)
+                + "/page-" + random.nextInt(pathsPerHost) + ".html";
+    }
+}
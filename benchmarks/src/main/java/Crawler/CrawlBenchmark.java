@@ -0,0 +1,115 @@
+package Crawler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end crawl of the whole StubWebServer graph: frontier, dedup, fetch, parse and score together.
+// Scores are pages per second; add -prof gc for the allocation rate per page.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class CrawlBenchmark {
+    private static final int PAGES = 2000;
+    private static final String KEYWORD = "crawler";
+    private static final long CRAWL_TIMEOUT_MILLIS = 120_000;
+
+    @Param({"8", "64"})
+    public int fetchThreads;
+
+    @Param({"8"})
+    public int hosts;
+
+    @Param({"4096"})
+    public int pageTextBytes;
+
+    private StubWebServer server;
+    private ExecutorService fetchers;
+    private Frontier frontier;
+    private CrawlPipeline pipeline;
+    private WorkerThread worker;
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        BenchmarkSupport.quietLogging();
+        BenchmarkSupport.configure(Map.of(
+                "respect_robots_txt", "false",
+                "politeness_delay", "0",
+                // Otherwise every host is held to rate_min_delay_ms and the benchmark measures the rate limiter
+                "adaptive_rate_enabled", "false",
+                "http2_enabled", "false",
+                "visited_store", "fingerprint",
+                "visited_expected_urls", String.valueOf(PAGES * 2)
+        ));
+        server = new StubWebServer(PAGES, hosts, 8, pageTextBytes, KEYWORD);
+        fetchers = Executors.newFixedThreadPool(fetchThreads);
+    }
+
+    @Setup(Level.Invocation)
+    public void seed() {
+        URLManager.useVisitedStore(VisitedStore.fromConfig(CrawlerConfig.getInstance()));
+        frontier = new HostQueueFrontier();
+        pipeline = CrawlPipeline.fromConfig(frontier, KEYWORD, Integer.MAX_VALUE, 0, new BenchmarkSupport.CountingSink());
+        worker = new WorkerThread(frontier, System.currentTimeMillis(), CRAWL_TIMEOUT_MILLIS, Integer.MAX_VALUE, pipeline);
+        frontier.offer(new WorkerThread.UrlDepthPair(server.url(0), 0));
+    }
+
+    @TearDown(Level.Invocation)
+    public void drain() {
+        pipeline.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        fetchers.shutdownNow();
+        server.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGES)
+    public int crawl() throws Exception {
+        long deadline = System.currentTimeMillis() + CRAWL_TIMEOUT_MILLIS;
+        List<Future<?>> running = new ArrayList<>(fetchThreads);
+        for (int i = 0; i < fetchThreads; i++) {
+            running.add(fetchers.submit(() -> {
+                while (pipeline.getMatchedCount() < PAGES && System.currentTimeMillis() < deadline) {
+                    WorkerThread.UrlDepthPair pair = frontier.poll(10, TimeUnit.MILLISECONDS);
+                    if (pair != null) {
+                        worker.process(pair);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : running) {
+            future.get();
+        }
+        if (pipeline.getMatchedCount() < PAGES) {
+            throw new IllegalStateException("Crawled only " + pipeline.getMatchedCount() + " of " + PAGES + " pages");
+        }
+        return pipeline.getMatchedCount();
+    }
+}
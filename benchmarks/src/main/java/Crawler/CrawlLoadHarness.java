@@ -0,0 +1,262 @@
+package Crawler;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+// Runs the complete crawler, WebCrawler.main in a JVM of its own, against a SyntheticWeb and reports what each
+// run achieved: pages per second over the time the web was busy, p50 and p99 fetch latency, heap high-water
+// mark and GC time. The crawler's own numbers come from its metrics_file, so the server and the harness stay out
+// of the heap and GC figures. A run ends when the crawler exits or the web has been idle for --idle-ms, which
+// stops it the way SIGTERM would. Every run is appended to --report as a JSON line, labelled with --label, so
+// results of different versions can be compared.
+//
+//   java -cp target/benchmarks.jar Crawler.CrawlLoadHarness --pages 5000 --hosts 50 --runs 3 --label my-change
+public final class CrawlLoadHarness {
+    private static final String USAGE = """
+            Usage: java -cp target/benchmarks.jar Crawler.CrawlLoadHarness [options]
+              --pages <n>              pages in the generated web (default 2000)
+              --hosts <n>              host names they are spread over (default 20)
+              --fan-out <n>            links per page (default 8)
+              --page-bytes <n>         median page size (default 8192)
+              --page-bytes-sigma <x>   spread of the log-normal page size (default 0.5)
+              --latency-ms <x>         median response latency over all hosts (default 20)
+              --latency-sigma <x>      spread of latencies within a host (default 0.5)
+              --host-latency-spread <x> spread of the hosts' median latencies (default 1.0)
+              --error-rate <x>         share of pages answering 500 or 503 (default 0.01)
+              --robots-missing-rate <x> share of hosts without a robots.txt (default 0.25)
+              --private-link-rate <x>  share of links into the disallowed /private/ (default 0.05)
+              --seed <n>               generator seed (default 42)
+              --keyword <text>         keyword the crawler scores pages against (default crawler)
+              --replay <trace>         serve a recorded trace instead of the generated web
+              --record <trace>         record what the first run was served
+              --runs <n>               crawls to run (default 3)
+              --threads <n>            crawler max_threads (default 16)
+              --idle-ms <n>            stop a run after this long without a request (default 3000)
+              --max-minutes <n>        hard limit per run (default 30)
+              --jvm-opts <opts>        options for the crawler JVM (default -Xmx1g)
+              --set <key>=<value>      any crawler configuration key, may be repeated
+              --work-dir <dir>         run directories, logs and results (default target/load-harness)
+              --report <file>          JSON lines report, appended to (default target/load-harness/report.ndjson)
+              --label <text>           names this version in the report (default unlabelled)""";
+
+    private record Run(int run, long pages, long fetchErrors, double seconds, double fetchP50Millis, double fetchP99Millis,
+                       double heapPeakBytes, double gcSeconds, long requests, long robotsViolations) {
+        double pagesPerSecond() {
+            return seconds > 0 ? pages / seconds : 0;
+        }
+    }
+
+    private CrawlLoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> settings = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--help") || args[i].equals("-h")) {
+                System.out.println(USAGE);
+                return;
+            }
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+            if (args[i].equals("--set")) {
+                settings.add(args[++i]);
+            } else {
+                options.put(args[i].substring(2), args[++i]);
+            }
+        }
+
+        String keyword = options.getOrDefault("keyword", "crawler");
+        SyntheticWeb web;
+        if (options.containsKey("replay")) {
+            web = SyntheticWeb.replay(Path.of(options.get("replay")));
+        } else {
+            web = SyntheticWeb.generate(new SyntheticWeb.Spec(
+                    Long.parseLong(options.getOrDefault("seed", "42")),
+                    Integer.parseInt(options.getOrDefault("pages", "2000")),
+                    Integer.parseInt(options.getOrDefault("hosts", "20")),
+                    Integer.parseInt(options.getOrDefault("fan-out", "8")),
+                    Integer.parseInt(options.getOrDefault("page-bytes", "8192")),
+                    Double.parseDouble(options.getOrDefault("page-bytes-sigma", "0.5")),
+                    Double.parseDouble(options.getOrDefault("latency-ms", "20")),
+                    Double.parseDouble(options.getOrDefault("latency-sigma", "0.5")),
+                    Double.parseDouble(options.getOrDefault("host-latency-spread", "1.0")),
+                    Double.parseDouble(options.getOrDefault("error-rate", "0.01")),
+                    Double.parseDouble(options.getOrDefault("robots-missing-rate", "0.25")),
+                    Double.parseDouble(options.getOrDefault("private-link-rate", "0.05")),
+                    keyword));
+        }
+
+        Path workDir = Path.of(options.getOrDefault("work-dir", "target/load-harness")).toAbsolutePath();
+        Path report = Path.of(options.getOrDefault("report", workDir.resolve("report.ndjson").toString()));
+        String label = options.getOrDefault("label", "unlabelled");
+        int runs = Integer.parseInt(options.getOrDefault("runs", "3"));
+        Files.createDirectories(workDir);
+        Path hostsFile = workDir.resolve("hosts");
+        web.writeHostsFile(hostsFile);
+
+        List<Run> results = new ArrayList<>();
+        try (web) {
+            System.out.printf("%-4s %8s %10s %9s %9s %10s %8s %7s %7s%n",
+                    "run", "pages", "pages/sec", "p50 ms", "p99 ms", "heap MB", "GC ms", "errors", "robots");
+            for (int run = 1; run <= runs; run++) {
+                if (run == 1 && options.containsKey("record")) {
+                    web.record(Path.of(options.get("record")));
+                }
+                Run result = crawl(run, web, workDir.resolve("run-" + run), hostsFile, keyword, options, settings);
+                results.add(result);
+                System.out.printf("%-4d %8d %10.1f %9.1f %9.1f %10.1f %8.0f %7d %7d%n", result.run(), result.pages(),
+                        result.pagesPerSecond(), result.fetchP50Millis(), result.fetchP99Millis(),
+                        result.heapPeakBytes() / (1024 * 1024), result.gcSeconds() * 1000, result.fetchErrors(), result.robotsViolations());
+                writeReport(report, label, options, result);
+            }
+        }
+        System.out.printf("mean %8.0f %10.1f %9.1f %9.1f %10.1f %8.0f%n",
+                mean(results, run -> run.pages()), mean(results, Run::pagesPerSecond), mean(results, Run::fetchP50Millis),
+                mean(results, Run::fetchP99Millis), mean(results, run -> run.heapPeakBytes() / (1024 * 1024)),
+                mean(results, run -> run.gcSeconds() * 1000));
+        System.out.println("Report: " + report);
+    }
+
+    private static Run crawl(int run, SyntheticWeb web, Path runDir, Path hostsFile, String keyword,
+                             Map<String, String> options, List<String> settings) throws IOException, InterruptedException {
+        Files.createDirectories(runDir);
+        Path metricsFile = runDir.resolve("metrics.txt");
+        Files.deleteIfExists(metricsFile);
+        web.resetCounters();
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        for (String option : options.getOrDefault("jvm-opts", "-Xmx1g").split("\\s+")) {
+            if (!option.isEmpty()) {
+                command.add(option);
+            }
+        }
+        command.addAll(List.of("-cp", classPath(), WebCrawler.class.getName(),
+                "--keyword", keyword,
+                "--seeds", web.seedUrl(),
+                "--max-time", options.getOrDefault("max-minutes", "30"),
+                "--max-depth", "1000000",
+                "--relevance", "0",
+                "--threads", options.getOrDefault("threads", "16")));
+        // A fresh, self-contained crawl: no incremental state, no config file, no outside DNS
+        Map<String, String> config = new HashMap<>(Map.of(
+                "dns_hosts_file", hostsFile.toString(),
+                "metrics_file", metricsFile.toString(),
+                "recrawl_enabled", "false",
+                "config_reload_enabled", "false",
+                "politeness_delay", "0",
+                "rate_min_delay_ms", "0",
+                "stats_interval_ms", "5000"));
+        for (String setting : settings) {
+            int separator = setting.indexOf('=');
+            config.put(setting.substring(0, separator), setting.substring(separator + 1));
+        }
+        config.forEach((key, value) -> command.addAll(List.of("--set", key + "=" + value)));
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(runDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(runDir.resolve("crawler.log").toFile());
+        builder.environment().keySet().removeIf(name -> name.startsWith("CRAWLER_"));
+        Process crawler = builder.start();
+        // Nothing to answer: prompts read end of input and fall back to their defaults
+        crawler.getOutputStream().close();
+
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(options.getOrDefault("idle-ms", "3000")));
+        while (!crawler.waitFor(200, TimeUnit.MILLISECONDS)) {
+            long last = web.lastResponseNanos();
+            if (last != 0 && System.nanoTime() - last > idleNanos) {
+                // Same path as SIGTERM: drain, then write results and metrics
+                crawler.destroy();
+                if (!crawler.waitFor(60, TimeUnit.SECONDS)) {
+                    crawler.destroyForcibly();
+                }
+                break;
+            }
+        }
+        crawler.waitFor();
+
+        if (!Files.exists(metricsFile)) {
+            throw new IOException("Run " + run + " wrote no metrics; see " + runDir.resolve("crawler.log"));
+        }
+        Map<String, Double> metrics = readMetrics(metricsFile);
+        return new Run(run,
+                metrics.getOrDefault("crawler_pages_fetched_total", 0.0).longValue(),
+                metrics.getOrDefault("crawler_fetch_errors_total", 0.0).longValue(),
+                web.activeSeconds(),
+                metrics.getOrDefault("crawler_fetch_latency_seconds{quantile=\"0.5\"}", 0.0) * 1000,
+                metrics.getOrDefault("crawler_fetch_latency_seconds{quantile=\"0.99\"}", 0.0) * 1000,
+                metrics.getOrDefault("crawler_jvm_heap_peak_bytes", 0.0),
+                metrics.getOrDefault("crawler_jvm_gc_seconds_total", 0.0),
+                web.requests(),
+                web.robotsViolations());
+    }
+
+    // The crawler runs in its run directory, so relative entries have to be resolved here
+    private static String classPath() {
+        List<String> entries = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            entries.add(Path.of(entry).toAbsolutePath().toString());
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    // Prometheus text format: comments, then "name value" or "name{labels} value"
+    private static Map<String, Double> readMetrics(Path file) throws IOException {
+        Map<String, Double> metrics = new HashMap<>();
+        for (String line : Files.readAllLines(file)) {
+            int space = line.lastIndexOf(' ');
+            if (line.startsWith("#") || space <= 0) {
+                continue;
+            }
+            try {
+                metrics.put(line.substring(0, space), Double.parseDouble(line.substring(space + 1)));
+            } catch (NumberFormatException e) {
+                // not a sample
+            }
+        }
+        return metrics;
+    }
+
+    private static void writeReport(Path report, String label, Map<String, String> options, Run run) throws IOException {
+        JSONObject line = new JSONObject()
+                .put("label", label)
+                .put("time", System.currentTimeMillis())
+                .put("options", new JSONObject(options))
+                .put("run", run.run())
+                .put("pages", run.pages())
+                .put("seconds", run.seconds())
+                .put("pages_per_sec", run.pagesPerSecond())
+                .put("fetch_p50_ms", run.fetchP50Millis())
+                .put("fetch_p99_ms", run.fetchP99Millis())
+                .put("heap_peak_bytes", run.heapPeakBytes())
+                .put("gc_ms", run.gcSeconds() * 1000)
+                .put("fetch_errors", run.fetchErrors())
+                .put("requests", run.requests())
+                .put("robots_violations", run.robotsViolations());
+        Path parent = report.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.writeString(report, line + "\n", StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static double mean(List<Run> runs, ToDoubleFunction<Run> value) {
+        return runs.stream().mapToDouble(value).average().orElse(0);
+    }
+}
@@ -0,0 +1,131 @@
+package Crawler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// URL handoff between crawl threads: every thread offers a discovered link and takes the next URL to crawl,
+// as the fetch and parse stages do. Sweep the thread count with -t 1,4,16,64,256.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class FrontierHandoffBenchmark {
+    private static final int PREFILL = 65536;
+    private static final int CAPACITY = 1 << 20;
+
+    public enum Implementation {
+        LINKED_BLOCKING_QUEUE,
+        ARRAY_BLOCKING_QUEUE,
+        CONCURRENT_LINKED_QUEUE,
+        HOST_QUEUE_FRONTIER,
+        WORK_STEALING_FRONTIER
+    }
+
+    @Param({"LINKED_BLOCKING_QUEUE", "ARRAY_BLOCKING_QUEUE", "CONCURRENT_LINKED_QUEUE", "HOST_QUEUE_FRONTIER", "WORK_STEALING_FRONTIER"})
+    public Implementation implementation;
+
+    private Frontier frontier;
+    private WorkerThread.UrlDepthPair[] pairs;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final Random random = new Random();
+
+        int next(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkSupport.quietLogging();
+        BenchmarkSupport.configure(Map.of(
+                "respect_robots_txt", "false",
+                "politeness_delay", "0",
+                "adaptive_rate_enabled", "false"
+        ));
+        Random random = new Random(11);
+        pairs = new WorkerThread.UrlDepthPair[PREFILL];
+        for (int i = 0; i < PREFILL; i++) {
+            pairs[i] = new WorkerThread.UrlDepthPair(BenchmarkSupport.url(random, 4096, 1024), 1 + random.nextInt(3));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        frontier = switch (implementation) {
+            case LINKED_BLOCKING_QUEUE -> new BlockingQueueFrontier(new LinkedBlockingQueue<>(CAPACITY));
+            case ARRAY_BLOCKING_QUEUE -> new BlockingQueueFrontier(new ArrayBlockingQueue<>(CAPACITY));
+            case CONCURRENT_LINKED_QUEUE -> new QueueFrontier(new ConcurrentLinkedQueue<>());
+            case HOST_QUEUE_FRONTIER -> new HostQueueFrontier();
+            case WORK_STEALING_FRONTIER -> new WorkStealingFrontier(CAPACITY);
+        };
+        for (WorkerThread.UrlDepthPair pair : pairs) {
+            frontier.offer(pair);
+        }
+    }
+
+    @Benchmark
+    public WorkerThread.UrlDepthPair offerAndPoll(Cursor cursor) throws InterruptedException {
+        frontier.offer(pairs[cursor.next(PREFILL)]);
+        return frontier.poll(0, TimeUnit.MILLISECONDS);
+    }
+
+    private record BlockingQueueFrontier(BlockingQueue<WorkerThread.UrlDepthPair> queue) implements Frontier {
+        @Override
+        public boolean offer(WorkerThread.UrlDepthPair pair) {
+            return queue.offer(pair);
+        }
+
+        @Override
+        public WorkerThread.UrlDepthPair poll(long timeout, TimeUnit unit) throws InterruptedException {
+            return queue.poll(timeout, unit);
+        }
+
+        @Override
+        public int size() {
+            return queue.size();
+        }
+    }
+
+    // Non-blocking queue; a poll that finds nothing returns immediately instead of waiting
+    private record QueueFrontier(Queue<WorkerThread.UrlDepthPair> queue) implements Frontier {
+        @Override
+        public boolean offer(WorkerThread.UrlDepthPair pair) {
+            return queue.offer(pair);
+        }
+
+        @Override
+        public WorkerThread.UrlDepthPair poll(long timeout, TimeUnit unit) {
+            return queue.poll();
+        }
+
+        @Override
+        public int size() {
+            return queue.size();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package Crawler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Keyword scoring over page text of typical (10 KB), large (100 KB) and pathological (1 MB) size, with one
+// keyword and with many. The Aho-Corasick scan should cost about the same for any number of keywords.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelevanceScoreBenchmark {
+    private static final String KEYWORD = "Multithreading";
+
+    @Param({"10240", "102400", "1048576"})
+    public int textBytes;
+
+    @Param({"1", "16", "256"})
+    public int keywordCount;
+
+    private RelevanceScorer scorer;
+    private String title;
+    private String text;
+
+    @Setup
+    public void setup() {
+        StringBuilder keywords = new StringBuilder(KEYWORD);
+        for (int i = 1; i < keywordCount; i++) {
+            keywords.append(", topic").append(i).append(i % 2 == 0 ? " threads" : "");
+        }
+        scorer = new RelevanceScorer(keywords.toString(), 2.0, 1.0, 1000);
+        title = "Introduction to " + KEYWORD + " in Java";
+        text = BenchmarkSupport.text(textBytes, KEYWORD, 42);
+    }
+
+    @Benchmark
+    public RelevanceScorer.Score score() {
+        return scorer.score(title, text);
+    }
+}
@@ -0,0 +1,118 @@
+package Crawler;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Result persistence as the result count grows. write measures what score threads pay per result with
+// existingResults already on disk; compactOnClose measures the final rewrite into the JSON array.
+@State(Scope.Benchmark)
+@Fork(1)
+public class ResultSinkBenchmark {
+
+    @Param({"0", "10000", "100000"})
+    public int existingResults;
+
+    @Param({"NEVER", "ON_COMMIT"})
+    public NdjsonResultSink.FsyncPolicy fsyncPolicy;
+
+    private Path directory;
+    private Path compactFile;
+    private Path logFile;
+    private NdjsonResultSink sink;
+    private JSONObject result;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BenchmarkSupport.quietLogging();
+        directory = Files.createTempDirectory("result-sink-bench");
+        compactFile = directory.resolve("result.json");
+        logFile = Path.of(NdjsonResultSink.toLogFileName(compactFile.toString()));
+        result = result(0);
+    }
+
+    @Setup(Level.Iteration)
+    public void openSink(BenchmarkParams params) throws IOException {
+        prefill();
+        // Compacting the millions of records write() appends would only slow down teardown
+        boolean compact = params.getBenchmark().endsWith("compactOnClose");
+        sink = new NdjsonResultSink(logFile.toString(), compact ? compactFile.toString() : null, 10000, 256, 1000, fsyncPolicy);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeSink() {
+        sink.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Threads(4)
+    public void write() {
+        sink.write(result);
+    }
+
+    // Each iteration reopens the sink over the prefilled log, so one close compacts exactly existingResults
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public void compactOnClose() {
+        sink.close();
+    }
+
+    private void prefill() throws IOException {
+        Files.deleteIfExists(compactFile);
+        try (BufferedWriter writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < existingResults; i++) {
+                writer.write(result(i).toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    private static JSONObject result(int i) {
+        JSONObject result = new JSONObject();
+        result.put("url", "https://host" + (i % 512) + ".example.com/page-" + i + ".html");
+        result.put("title", "Page " + i);
+        result.put("content", BenchmarkSupport.text(300, "java", i) + "...");
+        result.put("relevance_score", 3.0);
+        result.put("crawl_depth", 2);
+        result.put("crawl_time", 1700000000000L + i);
+        return result;
+    }
+}
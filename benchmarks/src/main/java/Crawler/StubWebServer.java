@@ -0,0 +1,88 @@
+package Crawler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// In-process web server for crawl benchmarks. Serves a fixed synthetic link graph of HTML pages spread across
+// the loopback addresses 127.0.0.1..127.0.0.n, so the crawler sees several hosts without any DNS or network.
+// Every page links to the next one, so the whole graph is reachable from page 0, plus a few random pages.
+final class StubWebServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[][] pages;
+    private final int hosts;
+
+    StubWebServer(int pageCount, int hosts, int linksPerPage, int textBytes, String keyword) throws IOException {
+        this.hosts = hosts;
+        this.pages = new byte[pageCount][];
+        this.server = HttpServer.create(new InetSocketAddress("0.0.0.0", 0), 1024);
+        this.executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+
+        Random random = new Random(pageCount);
+        for (int i = 0; i < pageCount; i++) {
+            StringBuilder html = new StringBuilder(textBytes + linksPerPage * 64 + 128);
+            html.append("<html><head><title>Page ").append(i).append(' ').append(keyword).append("</title></head><body><p>");
+            html.append(BenchmarkSupport.text(textBytes, keyword, i));
+            html.append("</p><ul>");
+            appendLink(html, (i + 1) % pageCount);
+            for (int j = 1; j < linksPerPage; j++) {
+                appendLink(html, random.nextInt(pageCount));
+            }
+            html.append("</ul></body></html>");
+            pages[i] = html.toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    String url(int page) {
+        return "http://127.0.0." + (1 + page % hosts) + ":" + server.getAddress().getPort() + "/page/" + page + ".html";
+    }
+
+    int pageCount() {
+        return pages.length;
+    }
+
+    private void appendLink(StringBuilder html, int page) {
+        html.append("<li><a href=\"").append(url(page)).append("\">page ").append(page).append("</a></li>");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        byte[] body = null;
+        if (path.startsWith("/page/") && path.endsWith(".html")) {
+            try {
+                int page = Integer.parseInt(path, "/page/".length(), path.length() - ".html".length(), 10);
+                body = page >= 0 && page < pages.length ? pages[page] : null;
+            } catch (NumberFormatException e) {
+                body = null;
+            }
+        }
+
+        if (body == null) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
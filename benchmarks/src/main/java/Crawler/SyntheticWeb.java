@@ -0,0 +1,359 @@
+package Crawler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// A local web for load tests, served from one port under many host names (hostN.web.test, or the hosts of a
+// trace) that the crawler resolves to 127.0.0.1 through dns_hosts_file.
+//
+// Generated mode builds a link graph that depends only on the Spec: every page links to the next one, so the
+// whole graph is reachable from page 0, plus fanOut - 1 pages picked at random. Page sizes are log-normal around
+// pageBytes. Each host has a median latency drawn around latencyMillis, and each request a latency drawn around
+// its host's median. errorRate of the pages answer 500 or 503. Every host but a robotsMissingRate share serves a
+// robots.txt that disallows /private/, and privateLinkRate of the links lead there; fetches of those pages are
+// counted as robots violations.
+//
+// Replay mode serves a trace instead: one JSON object per line with url, status, latency_ms, bytes, links and
+// optionally the literal body. The served responses, including robots.txt, can be recorded in that format, so a
+// run can be repeated exactly after the generator changes, and traces taken elsewhere can be replayed too.
+final class SyntheticWeb implements AutoCloseable {
+    static final String DOMAIN = "web.test";
+    private static final String PRIVATE_PREFIX = "/private/";
+
+    record Spec(long seed, int pages, int hosts, int fanOut, int pageBytes, double pageBytesSigma, double latencyMillis,
+                double latencySigma, double hostLatencySpread, double errorRate, double robotsMissingRate,
+                double privateLinkRate, String keyword) {
+    }
+
+    // body, when set, is served as it is with contentType; otherwise a page of the given size is rendered
+    record Response(int status, long latencyMillis, int bytes, List<String> links, String body, String contentType) {
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Spec spec;
+    private final double[] hostLatencyMillis;
+    private final Map<String, Response> trace;
+    private final List<String> traceHosts;
+    private final String traceSeed;
+    private BufferedWriter recording;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder robotsViolations = new LongAdder();
+    private final AtomicLong firstRequestNanos = new AtomicLong();
+    private final AtomicLong lastResponseNanos = new AtomicLong();
+
+    private SyntheticWeb(Spec spec, Map<String, Response> trace, List<String> traceHosts, String traceSeed) throws IOException {
+        this.spec = spec;
+        this.trace = trace;
+        this.traceHosts = traceHosts;
+        this.traceSeed = traceSeed;
+        this.hostLatencyMillis = new double[spec == null ? 0 : spec.hosts()];
+        for (int host = 0; host < hostLatencyMillis.length; host++) {
+            Random random = new Random(spec.seed() * 31 + host);
+            hostLatencyMillis[host] = spec.latencyMillis() * Math.exp(spec.hostLatencySpread() * random.nextGaussian());
+        }
+        // Without TCP_NODELAY small responses wait on delayed ACKs and every fetch looks 40ms slower than it is
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        // Latency is simulated by sleeping, which virtual threads make cheap
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    static SyntheticWeb generate(Spec spec) throws IOException {
+        return new SyntheticWeb(spec, null, null, null);
+    }
+
+    static SyntheticWeb replay(Path traceFile) throws IOException {
+        Map<String, Response> trace = new HashMap<>();
+        Set<String> hosts = new LinkedHashSet<>();
+        String seed = null;
+        for (String line : Files.readAllLines(traceFile)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JSONObject entry = new JSONObject(line);
+            URI uri = URI.create(entry.getString("url"));
+            String key = key(uri.getHost(), uri.getRawPath(), uri.getRawQuery());
+            List<String> links = new ArrayList<>();
+            JSONArray recordedLinks = entry.optJSONArray("links");
+            for (int i = 0; recordedLinks != null && i < recordedLinks.length(); i++) {
+                links.add(recordedLinks.getString(i));
+            }
+            String defaultType = "/robots.txt".equals(uri.getRawPath()) ? "text/plain" : "text/html";
+            trace.put(key, new Response(entry.optInt("status", 200), entry.optLong("latency_ms", 0), entry.optInt("bytes", 0),
+                    links, entry.has("body") ? entry.getString("body") : null, entry.optString("content_type", defaultType)));
+            hosts.add(uri.getHost().toLowerCase(Locale.ROOT));
+            if (seed == null && !"/robots.txt".equals(uri.getRawPath())) {
+                seed = entry.getString("url");
+            }
+        }
+        if (seed == null) {
+            throw new IOException("No pages in trace " + traceFile);
+        }
+        return new SyntheticWeb(null, trace, new ArrayList<>(hosts), seed);
+    }
+
+    // Writes every response served from now on to the file, in the trace format replay reads
+    synchronized void record(Path file) throws IOException {
+        recording = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    String seedUrl() {
+        return localUrl(trace == null ? pageUrl(0) : traceSeed);
+    }
+
+    List<String> hosts() {
+        if (trace != null) {
+            return traceHosts;
+        }
+        List<String> hosts = new ArrayList<>();
+        for (int host = 0; host < spec.hosts(); host++) {
+            hosts.add(hostName(host));
+        }
+        return hosts;
+    }
+
+    // One line per host in the format dns_hosts_file expects
+    void writeHostsFile(Path file) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (String host : hosts()) {
+            lines.append("127.0.0.1 ").append(host).append('\n');
+        }
+        Files.writeString(file, lines);
+    }
+
+    long requests() {
+        return requests.sum();
+    }
+
+    long robotsViolations() {
+        return robotsViolations.sum();
+    }
+
+    // Nanos of the last response, or 0 before the first request
+    long lastResponseNanos() {
+        return lastResponseNanos.get();
+    }
+
+    // From the first request to the last response, the time the crawler was actually busy with this web
+    double activeSeconds() {
+        long first = firstRequestNanos.get();
+        return first == 0 ? 0 : (lastResponseNanos.get() - first) / 1e9;
+    }
+
+    void resetCounters() {
+        requests.reset();
+        robotsViolations.reset();
+        firstRequestNanos.set(0);
+        lastResponseNanos.set(0);
+    }
+
+    private static String hostName(int host) {
+        return "host" + host + "." + DOMAIN;
+    }
+
+    private static String key(String host, String path, String query) {
+        return host.toLowerCase(Locale.ROOT) + (path == null || path.isEmpty() ? "/" : path) + (query == null ? "" : "?" + query);
+    }
+
+    // Traces keep the URLs they were recorded with; the crawler reaches them over plain HTTP on this port
+    private String localUrl(String url) {
+        URI uri = URI.create(url);
+        return "http://" + uri.getHost() + ":" + port() + (uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath())
+                + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+    }
+
+    private int hostOf(int page) {
+        return page % spec.hosts();
+    }
+
+    private String pageUrl(int page) {
+        return "http://" + hostName(hostOf(page)) + "/page/" + page + ".html";
+    }
+
+    private String privateUrl(int page) {
+        return "http://" + hostName(hostOf(page)) + PRIVATE_PREFIX + page + ".html";
+    }
+
+    private boolean hasRobotsTxt(int host) {
+        return new Random(spec.seed() * 17 + host).nextDouble() >= spec.robotsMissingRate();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        firstRequestNanos.compareAndSet(0, start);
+        requests.increment();
+        try {
+            URI uri = exchange.getRequestURI();
+            String host = exchange.getRequestHeaders().getFirst("Host");
+            host = host == null ? "" : host.replaceFirst(":\\d+$", "").toLowerCase(Locale.ROOT);
+            String url = "http://" + host + uri.getRawPath() + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+            Response response = trace != null ? trace.get(key(host, uri.getRawPath(), uri.getRawQuery())) : generated(host, uri.getRawPath());
+            if (response == null) {
+                response = new Response(404, 0, 0, List.of(), null, null);
+            }
+            if (response.latencyMillis() > 0) {
+                Thread.sleep(response.latencyMillis());
+            }
+            writeTrace(url, response);
+            send(exchange, response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+            lastResponseNanos.accumulateAndGet(System.nanoTime(), Math::max);
+        }
+    }
+
+    private Response generated(String host, String path) {
+        int hostIndex = hostIndex(host);
+        if (hostIndex < 0) {
+            return null;
+        }
+        if ("/robots.txt".equals(path)) {
+            return hasRobotsTxt(hostIndex)
+                    ? new Response(200, 0, 0, List.of(), "User-agent: *\nDisallow: " + PRIVATE_PREFIX + "\n", "text/plain")
+                    : null;
+        }
+        boolean isPrivate = path.startsWith(PRIVATE_PREFIX);
+        String prefix = isPrivate ? PRIVATE_PREFIX : "/page/";
+        if (!path.startsWith(prefix) || !path.endsWith(".html")) {
+            return null;
+        }
+        int page;
+        try {
+            page = Integer.parseInt(path, prefix.length(), path.length() - ".html".length(), 10);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (page < 0 || page >= spec.pages() || hostOf(page) != hostIndex) {
+            return null;
+        }
+        if (isPrivate && hasRobotsTxt(hostIndex)) {
+            robotsViolations.increment();
+        }
+
+        Random random = new Random(spec.seed() * 1_000_003 + page);
+        long latency = Math.round(hostLatencyMillis[hostIndex] * Math.exp(spec.latencySigma() * random.nextGaussian()));
+        if (random.nextDouble() < spec.errorRate()) {
+            return new Response(random.nextBoolean() ? 500 : 503, latency, 0, List.of(), null, null);
+        }
+        int bytes = (int) Math.max(256, Math.min(16L * spec.pageBytes(),
+                Math.round(spec.pageBytes() * Math.exp(spec.pageBytesSigma() * random.nextGaussian()))));
+        List<String> links = new ArrayList<>(spec.fanOut());
+        links.add(pageUrl((page + 1) % spec.pages()));
+        for (int i = 1; i < spec.fanOut(); i++) {
+            int target = random.nextInt(spec.pages());
+            links.add(random.nextDouble() < spec.privateLinkRate() ? privateUrl(target) : pageUrl(target));
+        }
+        return new Response(200, latency, bytes, links, null, null);
+    }
+
+    private int hostIndex(String host) {
+        if (!host.startsWith("host") || !host.endsWith("." + DOMAIN)) {
+            return -1;
+        }
+        try {
+            int index = Integer.parseInt(host, "host".length(), host.length() - DOMAIN.length() - 1, 10);
+            return index < spec.hosts() ? index : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void send(HttpExchange exchange, Response response) throws IOException {
+        byte[] body;
+        if (response.body() != null) {
+            body = response.body().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", response.contentType() + "; charset=utf-8");
+        } else if (response.status() == 200) {
+            body = render(response).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        } else {
+            exchange.sendResponseHeaders(response.status(), -1);
+            return;
+        }
+        exchange.sendResponseHeaders(response.status(), body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Links first, then keyword-bearing prose up to the page's size
+    private String render(Response response) {
+        String keyword = spec == null ? "crawler" : spec.keyword();
+        StringBuilder html = new StringBuilder(response.bytes() + response.links().size() * 80 + 128);
+        html.append("<html><head><title>Synthetic page ").append(keyword).append("</title></head><body><ul>");
+        for (String link : response.links()) {
+            html.append("<li><a href=\"").append(localUrl(link)).append("\">").append(keyword).append(" link</a></li>");
+        }
+        html.append("</ul><p>");
+        int text = response.bytes() - html.length() - "</p></body></html>".length();
+        if (text > 0) {
+            html.append(BenchmarkSupport.text(text, keyword, response.links().hashCode()));
+        }
+        return html.append("</p></body></html>").toString();
+    }
+
+    private void writeTrace(String url, Response response) throws IOException {
+        synchronized (this) {
+            if (recording == null) {
+                return;
+            }
+            JSONObject entry = new JSONObject()
+                    .put("url", url)
+                    .put("status", response.status())
+                    .put("latency_ms", response.latencyMillis())
+                    .put("bytes", response.bytes())
+                    .put("links", new JSONArray(response.links()));
+            if (response.body() != null) {
+                entry.put("body", response.body()).put("content_type", response.contentType());
+            }
+            recording.write(entry.toString());
+            recording.newLine();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.stop(0);
+        executor.shutdownNow();
+        synchronized (this) {
+            if (recording != null) {
+                recording.close();
+                recording = null;
+            }
+        }
+    }
+}
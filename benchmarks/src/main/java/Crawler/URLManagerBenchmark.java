@@ -0,0 +1,84 @@
+package Crawler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// URL filtering and dedup as every fetch thread runs them. Threads share one visited store, so the numbers
+// include contention on it; rerun with -t 1,4,16,64 to see how each store scales.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class URLManagerBenchmark {
+    // Enough distinct URLs that the store keeps seeing both new and repeated ones within an iteration
+    private static final int POOL_SIZE = 1 << 20;
+
+    @Param({"STRING", "FINGERPRINT", "OFF_HEAP", "BLOOM"})
+    public VisitedStore.Type store;
+
+    private String[] urls;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final Random random = new Random();
+
+        int next() {
+            return random.nextInt(POOL_SIZE);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkSupport.quietLogging();
+        BenchmarkSupport.configure(Map.of(
+                "respect_robots_txt", "false",
+                "visited_store", store.name().toLowerCase(),
+                "visited_expected_urls", String.valueOf(POOL_SIZE)
+        ));
+        Random random = new Random(7);
+        urls = new String[POOL_SIZE];
+        for (int i = 0; i < POOL_SIZE; i++) {
+            urls[i] = BenchmarkSupport.url(random, 512, 4096);
+        }
+    }
+
+    // A fresh store each iteration keeps the hit ratio comparable across iterations
+    @Setup(Level.Iteration)
+    public void resetStore() {
+        URLManager.useVisitedStore(VisitedStore.fromConfig(CrawlerConfig.getInstance()));
+    }
+
+    @Benchmark
+    public boolean shouldProcess(Cursor cursor) {
+        return URLManager.shouldProcess(urls[cursor.next()]);
+    }
+
+    @Benchmark
+    public boolean visit(Cursor cursor) {
+        return URLManager.visit(urls[cursor.next()]);
+    }
+
+    // Canonicalize, filter and visit in one call, as WorkerThread does before each fetch
+    @Benchmark
+    public String claim(Cursor cursor) {
+        return URLManager.claim(urls[cursor.next()]);
+    }
+}
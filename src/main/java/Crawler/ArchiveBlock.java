@@ -0,0 +1,481 @@
+package Crawler;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// One block of a result archive: up to archive_block_records results stored column by column, each column
+// deflated on its own. Values of one kind sit next to each other, which is what makes them compress well, and a
+// reader that only wants some fields never inflates the others (the content snippets are most of the bytes).
+//
+// Block layout, big-endian: MAGIC, length of the rest, record count, CRC32 of everything after it, then for
+// each column its raw and compressed length, then the compressed columns in order. Inside a column, integers
+// are varints and strings are a varint byte length followed by UTF-8.
+//
+// URLs are split into origin and path. Origins go through a dictionary shared by the whole archive; a block
+// lists the origins it introduced, so an archive can be read front to back without its footer. crawl_time is
+// stored as the zigzag delta from the previous record. Which fields a record has is kept in a bitmask per
+// record, one bit per column; fields of an unexpected type and unknown fields go into EXTRA as JSON.
+final class ArchiveBlock {
+    static final int MAGIC = 0x43524142;
+
+    static final int HOSTS = 0;
+    static final int PRESENCE = 1;
+    static final int ORIGIN = 2;
+    static final int PATH = 3;
+    static final int CRAWL_TIME = 4;
+    static final int CRAWL_DEPTH = 5;
+    static final int RELEVANCE_SCORE = 6;
+    static final int CONTENT_HASH = 7;
+    static final int TITLE = 8;
+    static final int CONTENT = 9;
+    static final int MATCHED_KEYWORDS = 10;
+    static final int DUPLICATE_OF = 11;
+    static final int SIMHASH_DISTANCE = 12;
+    static final int EXTRA = 13;
+    private static final int COLUMNS = 14;
+
+    // JSON field per column; HOSTS, PRESENCE and EXTRA have none and PATH travels with ORIGIN as "url"
+    private static final String[] FIELDS = {
+            null, null, "url", null, "crawl_time", "crawl_depth", "relevance_score", "content_hash",
+            "title", "content", "matched_keywords", "duplicate_of", "simhash_distance", null
+    };
+
+    private final Column[] columns = new Column[COLUMNS];
+    private final List<String> newHosts = new ArrayList<>();
+    private int firstNewHost = -1;
+    private int records;
+    private long previousTime;
+
+    ArchiveBlock() {
+        for (int i = 0; i < COLUMNS; i++) {
+            columns[i] = new Column();
+        }
+    }
+
+    int records() {
+        return records;
+    }
+
+    // hostIds and hosts are the archive's origin dictionary; origins seen for the first time are added to both
+    void add(JSONObject result, Map<String, Integer> hostIds, List<String> hosts) {
+        int presence = 0;
+        JSONObject extra = null;
+        for (Iterator<String> keys = result.keys(); keys.hasNext(); ) {
+            String key = keys.next();
+            Object value = result.get(key);
+            int column = columnOf(key);
+            if (column < 0 || !encode(column, value, hostIds, hosts)) {
+                if (extra == null) {
+                    extra = new JSONObject();
+                }
+                extra.put(key, value);
+                continue;
+            }
+            presence |= 1 << column;
+        }
+        if (extra != null) {
+            columns[EXTRA].writeString(extra.toString());
+            presence |= 1 << EXTRA;
+        }
+        columns[PRESENCE].writeVarLong(presence);
+        records++;
+    }
+
+    private boolean encode(int column, Object value, Map<String, Integer> hostIds, List<String> hosts) {
+        switch (column) {
+            case ORIGIN -> {
+                if (!(value instanceof String url)) {
+                    return false;
+                }
+                int split = originLength(url);
+                String origin = url.substring(0, split);
+                Integer id = hostIds.get(origin);
+                if (id == null) {
+                    id = hosts.size();
+                    hosts.add(origin);
+                    hostIds.put(origin, id);
+                    if (firstNewHost < 0) {
+                        firstNewHost = id;
+                    }
+                    newHosts.add(origin);
+                }
+                columns[ORIGIN].writeVarLong(id);
+                columns[PATH].writeString(url.substring(split));
+            }
+            case CRAWL_TIME -> {
+                if (!(value instanceof Long || value instanceof Integer)) {
+                    return false;
+                }
+                long time = ((Number) value).longValue();
+                columns[CRAWL_TIME].writeVarLong(zigzag(time - previousTime));
+                previousTime = time;
+            }
+            case CRAWL_DEPTH, SIMHASH_DISTANCE -> {
+                if (!(value instanceof Integer number) || number < 0) {
+                    return false;
+                }
+                columns[column].writeVarLong(number);
+            }
+            case RELEVANCE_SCORE -> {
+                if (!(value instanceof Double || value instanceof Float || value instanceof BigDecimal)) {
+                    return false;
+                }
+                columns[RELEVANCE_SCORE].writeLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+            }
+            case CONTENT_HASH -> {
+                // Only the exact form Long.toHexString produces, so the string comes back unchanged
+                if (!(value instanceof String hex) || hex.isEmpty() || hex.length() > 16) {
+                    return false;
+                }
+                long hash;
+                try {
+                    hash = Long.parseUnsignedLong(hex, 16);
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+                if (!Long.toHexString(hash).equals(hex)) {
+                    return false;
+                }
+                columns[CONTENT_HASH].writeLong(hash);
+            }
+            case MATCHED_KEYWORDS -> {
+                List<String> keywords = keywordsOf(value);
+                if (keywords == null) {
+                    return false;
+                }
+                columns[MATCHED_KEYWORDS].writeVarLong(keywords.size());
+                for (String keyword : keywords) {
+                    columns[MATCHED_KEYWORDS].writeString(keyword);
+                }
+            }
+            default -> {
+                if (!(value instanceof String text)) {
+                    return false;
+                }
+                columns[column].writeString(text);
+            }
+        }
+        return true;
+    }
+
+    // The whole block as it goes on disk
+    byte[] encode(Deflater deflater) {
+        columns[HOSTS].writeVarLong(Math.max(firstNewHost, 0));
+        columns[HOSTS].writeVarLong(newHosts.size());
+        for (String host : newHosts) {
+            columns[HOSTS].writeString(host);
+        }
+
+        byte[][] compressed = new byte[COLUMNS][];
+        int dataLength = 0;
+        for (int i = 0; i < COLUMNS; i++) {
+            compressed[i] = columns[i].deflate(deflater);
+            dataLength += compressed[i].length;
+        }
+        ByteBuffer block = ByteBuffer.allocate(16 + COLUMNS * 8 + dataLength);
+        block.putInt(MAGIC).putInt(block.capacity() - 8).putInt(records).putInt(0);
+        for (int i = 0; i < COLUMNS; i++) {
+            block.putInt(columns[i].size).putInt(compressed[i].length);
+        }
+        for (byte[] column : compressed) {
+            block.put(column);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(block.array(), 16, block.capacity() - 16);
+        block.putInt(12, (int) crc.getValue());
+        return block.array();
+    }
+
+    // Length of a block from its first 8 bytes, or -1 if they do not start one
+    static int blockLength(ByteBuffer start) {
+        if (start.getInt(0) != MAGIC || start.getInt(4) < 8 + COLUMNS * 8) {
+            return -1;
+        }
+        return 8 + start.getInt(4);
+    }
+
+    static boolean isIntact(byte[] block) {
+        CRC32 crc = new CRC32();
+        crc.update(block, 16, block.length - 16);
+        return ByteBuffer.wrap(block).getInt(12) == (int) crc.getValue();
+    }
+
+    static int recordCount(byte[] block) {
+        return ByteBuffer.wrap(block).getInt(8);
+    }
+
+    // Decodes the records of a block, each with only the given fields, or every field when fields is null. Origins
+    // the block introduced are added to hosts if they are not there yet.
+    static List<JSONObject> decode(byte[] block, List<String> hosts, Set<String> fields, Inflater inflater) throws IOException {
+        ByteBuffer header = ByteBuffer.wrap(block);
+        int records = header.getInt(8);
+        Cursor[] cursors = new Cursor[COLUMNS];
+        boolean[] wanted = new boolean[COLUMNS];
+        int offset = 16 + COLUMNS * 8;
+        for (int i = 0; i < COLUMNS; i++) {
+            int rawLength = header.getInt(16 + i * 8);
+            int compressedLength = header.getInt(20 + i * 8);
+            wanted[i] = isWanted(i, fields);
+            if (wanted[i]) {
+                cursors[i] = new Cursor(inflate(block, offset, compressedLength, rawLength, inflater));
+            }
+            offset += compressedLength;
+        }
+
+        Cursor hostColumn = cursors[HOSTS];
+        int firstNewHost = (int) hostColumn.readVarLong();
+        int newHosts = (int) hostColumn.readVarLong();
+        for (int i = 0; i < newHosts; i++) {
+            String host = hostColumn.readString();
+            if (hosts.size() == firstNewHost + i) {
+                hosts.add(host);
+            }
+        }
+
+        List<JSONObject> results = new ArrayList<>(records);
+        long time = 0;
+        for (int r = 0; r < records; r++) {
+            int presence = (int) cursors[PRESENCE].readVarLong();
+            JSONObject result = new JSONObject();
+            for (int column = ORIGIN; column < COLUMNS; column++) {
+                if ((presence & (1 << column)) == 0 || column == PATH) {
+                    continue;
+                }
+                if (column == CRAWL_TIME) {
+                    // Deltas chain through the block, so the column is read whether it was asked for or not
+                    time += unzigzag(cursors[CRAWL_TIME].readVarLong());
+                    if (fields == null || fields.contains(FIELDS[CRAWL_TIME])) {
+                        result.put(FIELDS[CRAWL_TIME], time);
+                    }
+                    continue;
+                }
+                if (!wanted[column]) {
+                    continue;
+                }
+                decode(column, cursors, hosts, result);
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    private static void decode(int column, Cursor[] cursors, List<String> hosts, JSONObject result) throws IOException {
+        Cursor cursor = cursors[column];
+        switch (column) {
+            case ORIGIN -> {
+                int id = (int) cursor.readVarLong();
+                if (id >= hosts.size()) {
+                    throw new IOException("Unknown origin " + id + " in result archive");
+                }
+                result.put("url", hosts.get(id) + cursors[PATH].readString());
+            }
+            case CRAWL_DEPTH, SIMHASH_DISTANCE -> result.put(FIELDS[column], (int) cursor.readVarLong());
+            case RELEVANCE_SCORE -> result.put(FIELDS[column], Double.longBitsToDouble(cursor.readLong()));
+            case CONTENT_HASH -> result.put(FIELDS[column], Long.toHexString(cursor.readLong()));
+            case MATCHED_KEYWORDS -> {
+                int count = (int) cursor.readVarLong();
+                JSONArray keywords = new JSONArray();
+                for (int i = 0; i < count; i++) {
+                    keywords.put(cursor.readString());
+                }
+                result.put(FIELDS[column], keywords);
+            }
+            case EXTRA -> {
+                JSONObject extra = new JSONObject(cursor.readString());
+                for (String key : extra.keySet()) {
+                    result.put(key, extra.get(key));
+                }
+            }
+            default -> result.put(FIELDS[column], cursor.readString());
+        }
+    }
+
+    private static boolean isWanted(int column, Set<String> fields) {
+        if (fields == null) {
+            return true;
+        }
+        return switch (column) {
+            case HOSTS, PRESENCE, CRAWL_TIME -> true;
+            case PATH -> fields.contains("url");
+            case EXTRA -> false;
+            default -> fields.contains(FIELDS[column]);
+        };
+    }
+
+    private static int columnOf(String field) {
+        for (int i = 0; i < COLUMNS; i++) {
+            if (field.equals(FIELDS[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // "https://example.com" out of "https://example.com/a/b"; 0 for anything without a scheme
+    private static int originLength(String url) {
+        int scheme = url.indexOf("://");
+        if (scheme < 0) {
+            return 0;
+        }
+        int path = url.indexOf('/', scheme + 3);
+        return path < 0 ? url.length() : path;
+    }
+
+    private static List<String> keywordsOf(Object value) {
+        if (value instanceof JSONArray array) {
+            List<String> keywords = new ArrayList<>(array.length());
+            for (Object keyword : array) {
+                if (!(keyword instanceof String text)) {
+                    return null;
+                }
+                keywords.add(text);
+            }
+            return keywords;
+        }
+        if (value instanceof List<?> list) {
+            return keywordsOf(new JSONArray(list));
+        }
+        return null;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static byte[] inflate(byte[] block, int offset, int length, int rawLength, Inflater inflater) throws IOException {
+        byte[] raw = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(block, offset, length);
+        try {
+            int read = 0;
+            while (read < rawLength) {
+                int n = inflater.inflate(raw, read, rawLength - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != rawLength) {
+                throw new IOException("Truncated column in result archive block");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt column in result archive block", e);
+        }
+        return raw;
+    }
+
+    // Growable byte buffer for one column
+    private static final class Column {
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+        }
+
+        byte[] deflate(Deflater deflater) {
+            deflater.reset();
+            deflater.setInput(bytes, 0, size);
+            deflater.finish();
+            byte[] out = new byte[Math.max(64, size / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            return Arrays.copyOf(out, length);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+
+    private static final class Cursor {
+        private final byte[] bytes;
+        private int position;
+
+        Cursor(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= bytes.length) {
+                    throw new IOException("Truncated varint in result archive block");
+                }
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in result archive block");
+        }
+
+        long readLong() throws IOException {
+            if (position + 8 > bytes.length) {
+                throw new IOException("Truncated value in result archive block");
+            }
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (bytes[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        String readString() throws IOException {
+            int length = (int) readVarLong();
+            if (length < 0 || position + length > bytes.length) {
+                throw new IOException("Truncated string in result archive block");
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package Crawler;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Result sink that writes a compressed result archive instead of JSON. Like NdjsonResultSink, workers hand
+// records to a bounded queue and a single writer thread does the I/O. A block is written when it is full or
+// when its oldest result has waited flushIntervalMillis, so a slow crawl still reaches the disk; the fsync
+// policy applies per block.
+public class ArchiveResultSink implements ResultSink {
+    private static final Logger logger = Logger.getLogger(ArchiveResultSink.class.getName());
+
+    private final Path file;
+    private final ResultArchiveWriter archive;
+    private final SinkQueue queue;
+    private final long flushIntervalMillis;
+    private final NdjsonResultSink.FsyncPolicy fsyncPolicy;
+    private final Thread writerThread;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    public ArchiveResultSink(Path file, int queueCapacity, int blockRecords, int compressionLevel,
+                             long flushIntervalMillis, NdjsonResultSink.FsyncPolicy fsyncPolicy) throws IOException {
+        this.file = file;
+        this.archive = new ResultArchiveWriter(file, blockRecords, compressionLevel);
+        this.queue = new SinkQueue(queueCapacity);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.fsyncPolicy = fsyncPolicy;
+
+        this.writerThread = new Thread(this::writeLoop, "archive-sink-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    public static ArchiveResultSink fromConfig() throws IOException {
+        CrawlerConfig config = CrawlerConfig.getInstance();
+        return new ArchiveResultSink(
+                Path.of(config.getArchiveFile()),
+                config.getSinkQueueCapacity(),
+                config.getArchiveBlockRecords(),
+                config.getArchiveCompressionLevel(),
+                config.getArchiveFlushIntervalMillis(),
+                config.getSinkFsyncPolicy()
+        );
+    }
+
+    @Override
+    public void write(JSONObject result) {
+        if (closed.get()) {
+            throw new IllegalStateException("Result sink is closed");
+        }
+        long writeStart = System.nanoTime();
+        try {
+            queue.put(result);
+            CrawlMetrics.getInstance().recordSinkWrite(System.nanoTime() - writeStart);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning("Interrupted while queueing result for " + result.optString("url"));
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (queue.finish()) {
+                writerThread.join();
+            } else {
+                logger.warning("Archive sink writer failed; " + file + " may be incomplete");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning("Interrupted while closing result sink; pending results may be lost");
+        }
+    }
+
+    private void writeLoop() {
+        List<JSONObject> batch = new ArrayList<>();
+        long blockStarted = 0;
+        boolean finished = false;
+
+        try {
+            while (!finished) {
+                JSONObject first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, Integer.MAX_VALUE);
+                }
+
+                for (JSONObject result : batch) {
+                    if (result == SinkQueue.END_OF_STREAM) {
+                        finished = true;
+                        break;
+                    }
+                    if (archive.pending() == 0) {
+                        blockStarted = System.currentTimeMillis();
+                    }
+                    long commitStart = System.nanoTime();
+                    archive.append(result);
+                    // Nothing pending right after an append means the block filled up and was written
+                    if (archive.pending() == 0) {
+                        commit(commitStart);
+                    }
+                }
+                batch.clear();
+
+                if (!finished && archive.pending() > 0 && System.currentTimeMillis() - blockStarted >= flushIntervalMillis) {
+                    long commitStart = System.nanoTime();
+                    archive.flush();
+                    commit(commitStart);
+                }
+            }
+            long commitStart = System.nanoTime();
+            archive.close(fsyncPolicy != NdjsonResultSink.FsyncPolicy.NEVER);
+            CrawlMetrics.getInstance().recordSinkCommit(System.nanoTime() - commitStart);
+            logger.info("Closed result archive " + file);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning("Archive sink writer interrupted");
+            queue.failed(e);
+            closeQuietly();
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.SEVERE, "Failed to write results to " + file, e);
+            queue.failed(e);
+            closeQuietly();
+        }
+    }
+
+    private void commit(long commitStart) throws IOException {
+        if (fsyncPolicy == NdjsonResultSink.FsyncPolicy.ON_COMMIT) {
+            archive.sync();
+        }
+        CrawlMetrics.getInstance().recordSinkCommit(System.nanoTime() - commitStart);
+    }
+
+    private void closeQuietly() {
+        try {
+            archive.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to close " + file, e);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package Crawler;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bounded best-first frontier for focused crawls. Priorities from 0 to 1 are quantized into buckets, each a FIFO
+// deque, so offer and poll cost O(1) apart from an occasional scan over empty buckets instead of O(log n) heap
+// sifts. Workers always get a URL from the highest non-empty bucket. When the frontier is full, a new URL displaces
+// the newest URL in the lowest bucket if it ranks above it and is dropped otherwise, so memory stays bounded and
+// what is lost is what the crawl was least likely to reach in time.
+//
+// It has no politeness of its own and is meant as the backlog of a HostQueueFrontier.
+public class BestFirstFrontier implements Frontier {
+    private static final int BUCKETS = 256;
+
+    private final ArrayDeque<WorkerThread.UrlDepthPair>[] buckets;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final LongAdder evicted = new LongAdder();
+    private int size;
+    // Highest and lowest non-empty bucket; only meaningful while size > 0
+    private int highest;
+    private int lowest;
+
+    @SuppressWarnings("unchecked")
+    public BestFirstFrontier(int capacity) {
+        this.capacity = capacity;
+        this.buckets = (ArrayDeque<WorkerThread.UrlDepthPair>[]) new ArrayDeque<?>[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        CrawlMetrics.getInstance().registerCounter("crawler_frontier_evicted_total",
+                "URLs dropped or displaced because the best-first frontier was full", evicted::sum);
+    }
+
+    @Override
+    public boolean offer(WorkerThread.UrlDepthPair pair) {
+        lock.lock();
+        try {
+            boolean accepted = insert(pair);
+            if (accepted) {
+                notEmpty.signal();
+            }
+            return accepted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // One lock acquisition for the whole batch
+    @Override
+    public int offerAll(List<WorkerThread.UrlDepthPair> pairs) {
+        if (pairs.isEmpty()) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            int accepted = 0;
+            for (WorkerThread.UrlDepthPair pair : pairs) {
+                if (insert(pair)) {
+                    accepted++;
+                }
+            }
+            if (accepted > 0) {
+                notEmpty.signalAll();
+            }
+            return accepted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public WorkerThread.UrlDepthPair poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            WorkerThread.UrlDepthPair pair = buckets[highest].pollFirst();
+            size--;
+            if (size > 0) {
+                while (buckets[highest].isEmpty()) {
+                    highest--;
+                }
+            }
+            return pair;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean insert(WorkerThread.UrlDepthPair pair) {
+        int bucket = bucketOf(pair.priority());
+        if (size >= capacity) {
+            if (bucket <= lowest) {
+                evicted.increment();
+                return false;
+            }
+            buckets[lowest].pollLast();
+            size--;
+            evicted.increment();
+            while (size > 0 && buckets[lowest].isEmpty()) {
+                lowest++;
+            }
+        }
+
+        buckets[bucket].addLast(pair);
+        if (size == 0) {
+            highest = bucket;
+            lowest = bucket;
+        } else {
+            highest = Math.max(highest, bucket);
+            lowest = Math.min(lowest, bucket);
+        }
+        size++;
+        return true;
+    }
+
+    private static int bucketOf(double priority) {
+        if (!(priority > 0)) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, (int) (priority * BUCKETS));
+    }
+}
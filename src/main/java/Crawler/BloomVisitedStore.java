@@ -0,0 +1,102 @@
+package Crawler;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bloom filter over URL fingerprints. Memory is fixed up front from the expected URL count and the target
+// false-positive rate. A false positive means a new URL is skipped as already visited; nothing is crawled twice.
+public class BloomVisitedStore implements VisitedStore {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final LongAdder size = new LongAdder();
+
+    public BloomVisitedStore(long expectedUrls, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("false positive rate must be between 0 and 1");
+        }
+        long optimalBits = (long) Math.ceil(-expectedUrls * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimalBits + 63) / 64));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / Math.max(1, expectedUrls) * Math.log(2)));
+    }
+
+    @Override
+    public boolean add(String url) {
+        long hash1 = UrlFingerprint.of(url);
+        long hash2 = UrlFingerprint.mix(hash1 ^ 0x9e3779b97f4a7c15L) | 1;
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            changed |= setBit(Math.floorMod(hash1 + i * hash2, bitCount));
+        }
+        if (changed) {
+            size.increment();
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean contains(String url) {
+        long hash1 = UrlFingerprint.of(url);
+        long hash2 = UrlFingerprint.mix(hash1 ^ 0x9e3779b97f4a7c15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long size() {
+        return size.sum();
+    }
+
+    @Override
+    public long memoryBytes() {
+        return bitCount / 8;
+    }
+
+    @Override
+    public void save(DataOutputStream out) throws IOException {
+        out.writeLong(bitCount);
+        out.writeInt(hashCount);
+        out.writeLong(size.sum());
+        for (int i = 0; i < bits.length(); i++) {
+            out.writeLong(bits.get(i));
+        }
+    }
+
+    @Override
+    public void load(DataInputStream in) throws IOException {
+        long savedBitCount = in.readLong();
+        int savedHashCount = in.readInt();
+        if (savedBitCount != bitCount || savedHashCount != hashCount) {
+            throw new IOException("Checkpointed Bloom filter was sized differently; keep visited_expected_urls and visited_false_positive_rate unchanged when resuming");
+        }
+        size.add(in.readLong());
+        for (int i = 0; i < bits.length(); i++) {
+            long word = in.readLong();
+            bits.getAndAccumulate(i, word, (current, saved) -> current | saved);
+        }
+    }
+
+    private boolean setBit(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        while (true) {
+            long current = bits.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (bits.compareAndSet(word, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+}
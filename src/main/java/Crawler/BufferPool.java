@@ -0,0 +1,60 @@
+package Crawler;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fixed-size byte chunks that page bodies are read into and handed back to once the page is parsed. Chunks
+// keep a large page from needing one large contiguous array, and reuse keeps steady-state fetching from
+// allocating at all. The pool holds at most buffer_pool_bytes of idle chunks; beyond that they are dropped.
+public final class BufferPool {
+    static final int CHUNK_BYTES = 16 * 1024;
+
+    private static volatile BufferPool instance;
+
+    private final int maxIdleChunks;
+    private final Queue<byte[]> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final LongAdder allocated = new LongAdder();
+
+    BufferPool(long maxIdleBytes) {
+        this.maxIdleChunks = (int) Math.min(Integer.MAX_VALUE, maxIdleBytes / CHUNK_BYTES);
+
+        CrawlMetrics metrics = CrawlMetrics.getInstance();
+        metrics.registerCounter("crawler_buffer_chunks_allocated_total", "Body buffer chunks the pool had to allocate", allocated::sum);
+        metrics.registerGauge("crawler_buffer_pool_idle_bytes", "Body buffer bytes waiting in the pool", () -> (double) idleCount.get() * CHUNK_BYTES);
+    }
+
+    public static BufferPool getInstance() {
+        BufferPool pool = instance;
+        if (pool == null) {
+            synchronized (BufferPool.class) {
+                pool = instance;
+                if (pool == null) {
+                    pool = new BufferPool(CrawlerConfig.getInstance().getBufferPoolBytes());
+                    instance = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    public byte[] acquire() {
+        byte[] chunk = idle.poll();
+        if (chunk != null) {
+            idleCount.decrementAndGet();
+            return chunk;
+        }
+        allocated.increment();
+        return new byte[CHUNK_BYTES];
+    }
+
+    public void release(byte[] chunk) {
+        if (idleCount.incrementAndGet() <= maxIdleChunks) {
+            idle.offer(chunk);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+}
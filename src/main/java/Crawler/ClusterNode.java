@@ -0,0 +1,379 @@
+package Crawler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// One member of a crawl cluster. Hosts are assigned to members by a consistent-hash ring, so each host's
+// politeness and dedup state lives on exactly one node. Links to hosts owned by other members are sent to
+// them in batches over a plain TCP connection per peer.
+//
+// Wire format, all big-endian via DataOutputStream: every connection starts with MAGIC, followed by frames of
+// one type byte and a body. URL_BATCH is a count and that many (url, int depth, double priority) entries, the url
+// as an int byte count and UTF-8 since URLs may exceed writeUTF's limit; JOIN is the UTF address of a new member;
+// MEMBERS is a count and that many UTF addresses.
+public class ClusterNode implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(ClusterNode.class.getName());
+    // Bumped whenever the frames change, so nodes of different versions refuse each other
+    private static final int MAGIC = 0x57434c33;
+    private static final byte URL_BATCH = 1;
+    private static final byte JOIN = 2;
+    private static final byte MEMBERS = 3;
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 5000;
+    // Remembers recently forwarded URLs so a link found on many pages crosses the network about once
+    private static final int FORWARDED_FILTER_SLOTS = 1 << 16;
+
+    private final String self;
+    private final Frontier local;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final int outboundCapacity;
+    private final AtomicReference<HashRing> ring;
+    private final ConcurrentMap<String, Peer> peers = new ConcurrentHashMap<>();
+    private final AtomicLongArray forwardedFilter = new AtomicLongArray(FORWARDED_FILTER_SLOTS);
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private ServerSocket server;
+    private volatile boolean closed;
+
+    // self and members are host:port addresses; self is added to the members if it is not listed
+    public ClusterNode(String self, Collection<String> members, Frontier local, int virtualNodes,
+                       int batchSize, long flushIntervalMillis, int outboundCapacity) {
+        this.self = self;
+        this.local = local;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.outboundCapacity = outboundCapacity;
+        Set<String> initial = new LinkedHashSet<>(members);
+        initial.add(self);
+        this.ring = new AtomicReference<>(new HashRing(initial, virtualNodes));
+
+        CrawlMetrics metrics = CrawlMetrics.getInstance();
+        metrics.registerCounter("crawler_cluster_forwarded_urls_total", "URLs sent to the nodes that own their host", forwarded::sum);
+        metrics.registerCounter("crawler_cluster_received_urls_total", "URLs received from other nodes", received::sum);
+        metrics.registerCounter("crawler_cluster_dropped_urls_total", "URLs dropped because a peer's outbound queue was full", dropped::sum);
+        metrics.registerGauge("crawler_cluster_members", "Members in this node's view of the cluster", () -> ring.get().getMembers().size());
+    }
+
+    public static ClusterNode fromConfig(Frontier local) {
+        CrawlerConfig config = CrawlerConfig.getInstance();
+        List<String> members = new ArrayList<>();
+        for (String member : config.getClusterPeers().split(",")) {
+            if (!member.isBlank()) {
+                members.add(member.trim());
+            }
+        }
+        return new ClusterNode(config.getClusterSelf().trim(), members, local, config.getClusterVirtualNodes(),
+                config.getClusterBatchSize(), config.getClusterFlushIntervalMillis(), config.getClusterOutboundCapacity());
+    }
+
+    // Listens for peers and announces this node to every configured member
+    public void start() throws IOException {
+        server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(toSocketAddress(self));
+        Thread acceptor = new Thread(this::acceptLoop, "cluster-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        logger.info("Cluster node " + self + " started with members " + ring.get().getMembers());
+
+        for (String member : ring.get().getMembers()) {
+            if (!member.equals(self)) {
+                peer(member).sendControl(JOIN, out -> out.writeUTF(self));
+            }
+        }
+    }
+
+    public String ownerOf(String host) {
+        return ring.get().ownerOf(host);
+    }
+
+    public boolean isLocal(String host) {
+        String owner = ownerOf(host);
+        return owner == null || owner.equals(self);
+    }
+
+    public void forward(String owner, WorkerThread.UrlDepthPair pair) {
+        long fingerprint = UrlFingerprint.of(pair.url());
+        int slot = (int) (fingerprint & (FORWARDED_FILTER_SLOTS - 1));
+        if (forwardedFilter.get(slot) == fingerprint) {
+            return;
+        }
+        if (peer(owner).urls.offer(pair)) {
+            // Only a URL that is on its way is filtered; a dropped one may be forwarded when it is found again
+            forwardedFilter.lazySet(slot, fingerprint);
+            forwarded.increment();
+        } else {
+            dropped.increment();
+            // The first drop and every 10,000th after it
+            if (dropped.sum() % 10000 == 1) {
+                logger.warning("Outbound queue to " + owner + " is full; dropping forwarded URLs");
+            }
+        }
+    }
+
+    public Set<String> getMembers() {
+        return ring.get().getMembers();
+    }
+
+    // Sends whatever is still queued, then stops listening
+    @Override
+    public void close() {
+        closed = true;
+        for (Peer peer : peers.values()) {
+            peer.close();
+        }
+        try {
+            if (server != null) {
+                server.close();
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Failed to close cluster server socket", e);
+        }
+        connections.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                connections.execute(() -> receive(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    logger.log(Level.WARNING, "Cluster accept failed", e);
+                }
+            }
+        }
+    }
+
+    private void receive(Socket socket) {
+        try (socket; DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            if (in.readInt() != MAGIC) {
+                logger.warning("Rejected cluster connection from " + socket.getRemoteSocketAddress() + ": bad handshake");
+                return;
+            }
+            while (!closed) {
+                byte type = in.readByte();
+                switch (type) {
+                    case URL_BATCH -> {
+                        int count = in.readInt();
+                        for (int i = 0; i < count; i++) {
+                            String url = DataStrings.read(in);
+                            int depth = in.readInt();
+                            double priority = in.readDouble();
+                            // Ownership is checked again when the URL is polled, which also covers rings that disagree
+                            local.offer(new WorkerThread.UrlDepthPair(url, depth, priority));
+                        }
+                        received.add(count);
+                    }
+                    case JOIN -> {
+                        String member = in.readUTF();
+                        addMember(member);
+                        Set<String> members = ring.get().getMembers();
+                        peer(member).sendControl(MEMBERS, out -> {
+                            out.writeInt(members.size());
+                            for (String known : members) {
+                                out.writeUTF(known);
+                            }
+                        });
+                    }
+                    case MEMBERS -> {
+                        int count = in.readInt();
+                        for (int i = 0; i < count; i++) {
+                            String member = in.readUTF();
+                            // Introduce ourselves to members we only heard about, so they route to us too
+                            if (addMember(member)) {
+                                peer(member).sendControl(JOIN, out -> out.writeUTF(self));
+                            }
+                        }
+                    }
+                    default -> {
+                        logger.warning("Unknown cluster frame " + type + " from " + socket.getRemoteSocketAddress());
+                        return;
+                    }
+                }
+            }
+        } catch (EOFException e) {
+            // Peer closed the connection
+        } catch (IOException e) {
+            if (!closed) {
+                logger.log(Level.FINE, "Cluster connection from " + socket.getRemoteSocketAddress() + " failed", e);
+            }
+        }
+    }
+
+    // Hosts that move to the new member are handed over lazily, as this node polls them from its frontier
+    private boolean addMember(String member) {
+        HashRing before = ring.getAndUpdate(current -> current.withMember(member));
+        if (before.getMembers().contains(member)) {
+            return false;
+        }
+        logger.info("Cluster member " + member + " joined; now " + ring.get().getMembers().size() + " members");
+        return true;
+    }
+
+    private Peer peer(String address) {
+        return peers.computeIfAbsent(address, Peer::new);
+    }
+
+    private static InetSocketAddress toSocketAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Cluster address must be host:port: " + address);
+        }
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    private interface FrameBody {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // Outbound link to one member. A single sender thread batches queued URLs and reconnects with backoff,
+    // keeping the unsent batch, if the peer goes away.
+    private final class Peer {
+        private final String address;
+        private final BlockingQueue<WorkerThread.UrlDepthPair> urls;
+        private final Queue<byte[]> control = new ConcurrentLinkedQueue<>();
+        private final Thread sender;
+        private Socket socket;
+        private DataOutputStream out;
+
+        private Peer(String address) {
+            this.address = address;
+            this.urls = new ArrayBlockingQueue<>(outboundCapacity);
+            this.sender = new Thread(this::sendLoop, "cluster-send-" + address);
+            this.sender.setDaemon(true);
+            this.sender.start();
+        }
+
+        private void sendControl(byte type, FrameBody body) {
+            try {
+                ByteArrayOutputStream frame = new ByteArrayOutputStream();
+                DataOutputStream data = new DataOutputStream(frame);
+                data.writeByte(type);
+                body.write(data);
+                data.flush();
+                // Picked up by the sender within one flush interval
+                control.add(frame.toByteArray());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void sendLoop() {
+            List<WorkerThread.UrlDepthPair> batch = new ArrayList<>(batchSize);
+            long reconnectDelay = 100;
+            while (true) {
+                try {
+                    if (batch.isEmpty() && control.isEmpty()) {
+                        WorkerThread.UrlDepthPair first = urls.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                        if (first != null) {
+                            batch.add(first);
+                        } else if (closed) {
+                            break;
+                        }
+                    }
+                    urls.drainTo(batch, batchSize - batch.size());
+                    if (batch.isEmpty() && control.isEmpty()) {
+                        continue;
+                    }
+
+                    connect();
+                    byte[] frame;
+                    while ((frame = control.peek()) != null) {
+                        out.write(frame);
+                        control.poll();
+                    }
+                    if (!batch.isEmpty()) {
+                        out.writeByte(URL_BATCH);
+                        out.writeInt(batch.size());
+                        for (WorkerThread.UrlDepthPair pair : batch) {
+                            DataStrings.write(out, pair.url());
+                            out.writeInt(pair.depth());
+                            out.writeDouble(pair.priority());
+                        }
+                    }
+                    out.flush();
+                    batch.clear();
+                    reconnectDelay = 100;
+                } catch (InterruptedException e) {
+                    break;
+                } catch (IOException e) {
+                    disconnect();
+                    if (closed) {
+                        logger.warning("Could not deliver " + (batch.size() + urls.size()) + " URLs to " + address + " before shutdown");
+                        break;
+                    }
+                    logger.log(Level.FINE, "Cluster peer " + address + " unreachable, retrying in " + reconnectDelay + " ms", e);
+                    try {
+                        Thread.sleep(reconnectDelay);
+                    } catch (InterruptedException interrupted) {
+                        break;
+                    }
+                    reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY_MILLIS);
+                }
+            }
+            disconnect();
+        }
+
+        private void connect() throws IOException {
+            if (out != null) {
+                return;
+            }
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(toSocketAddress(address), 5000);
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+            out.writeInt(MAGIC);
+        }
+
+        private void disconnect() {
+            try {
+                if (socket != null) {
+                    socket.close();
+                }
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Failed to close connection to " + address, e);
+            }
+            socket = null;
+            out = null;
+        }
+
+        // The sender finishes its current batch and drains the queue before it sees closed
+        private void close() {
+            try {
+                sender.join(flushIntervalMillis + MAX_RECONNECT_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
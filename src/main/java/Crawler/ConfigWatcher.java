@@ -0,0 +1,112 @@
+package Crawler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Reloads the configuration when its properties file changes. The overrides (environment, command line and
+// anything prompted for) are laid over the file again on every reload, so they keep winning. A file that does not
+// parse or validate is logged and the running configuration stays as it is.
+public class ConfigWatcher implements Closeable {
+    private static final Logger logger = Logger.getLogger(ConfigWatcher.class.getName());
+
+    // Editors often write a file in several steps; changes this close together are one reload
+    private static final long SETTLE_MILLIS = 200;
+
+    private final Path file;
+    private final Properties overrides;
+    private final CrawlerConfig config;
+    private final WatchService watchService;
+    private final Thread watcherThread;
+    private Properties loaded;
+
+    public ConfigWatcher(Path file, Properties overrides, CrawlerConfig config) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.overrides = overrides;
+        this.config = config;
+        this.loaded = read();
+        this.watchService = this.file.getFileSystem().newWatchService();
+        // Directories are what can be watched; creates cover editors that save by renaming a new file over the old
+        this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        this.watcherThread = new Thread(this::watchLoop, "config-watcher");
+        this.watcherThread.setDaemon(true);
+        this.watcherThread.start();
+        logger.info("Watching " + this.file + " for configuration changes");
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Failed to close the watch service", e);
+        }
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                            changed = true;
+                        }
+                    }
+                    if (!key.reset()) {
+                        logger.warning("Stopped watching " + file + ": its directory is gone");
+                        return;
+                    }
+                } while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed by close()
+        }
+    }
+
+    private void reload() {
+        Properties props;
+        try {
+            props = read();
+        } catch (IOException e) {
+            logger.warning("Could not read " + file + "; keeping the current configuration: " + e.getMessage());
+            return;
+        }
+        if (props.equals(loaded)) {
+            return;
+        }
+        try {
+            config.load(props, file + " (reloaded)");
+            loaded = props;
+        } catch (IllegalArgumentException e) {
+            logger.warning("Invalid configuration in " + file + "; keeping the current configuration: " + e.getMessage());
+        }
+    }
+
+    private Properties read() throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            props.load(in);
+        }
+        props.putAll(overrides);
+        return props;
+    }
+}
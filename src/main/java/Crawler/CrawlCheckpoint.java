@@ -0,0 +1,93 @@
+package Crawler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+// Periodic snapshot of crawl state: the visited set, the read position of the disk frontier and the URLs
+// buffered in memory ahead of it. URLs that were in flight when the checkpoint was taken are not replayed.
+public final class CrawlCheckpoint {
+    private static final Logger logger = Logger.getLogger(CrawlCheckpoint.class.getName());
+    private static final String FILE_NAME = "checkpoint.dat";
+    private static final int MAGIC = 0x43524b50;
+    // Version 1 wrote URLs with writeUTF, which fails on URLs over 65,535 bytes; it can still be read
+    private static final int VERSION = 2;
+
+    private final DiskFrontier.Position position;
+    private final List<WorkerThread.UrlDepthPair> buffered;
+
+    private CrawlCheckpoint(DiskFrontier.Position position, List<WorkerThread.UrlDepthPair> buffered) {
+        this.position = position;
+        this.buffered = buffered;
+    }
+
+    public DiskFrontier.Position position() {
+        return position;
+    }
+
+    public List<WorkerThread.UrlDepthPair> buffered() {
+        return buffered;
+    }
+
+    public static boolean exists(Path directory) {
+        return Files.exists(directory.resolve(FILE_NAME));
+    }
+
+    public static void write(Path directory, HostQueueFrontier frontier, DiskFrontier backlog, VisitedStore visited) throws IOException {
+        DiskFrontier.Position[] position = new DiskFrontier.Position[1];
+        List<WorkerThread.UrlDepthPair> buffered = frontier.snapshot(() -> position[0] = backlog.position());
+        backlog.force();
+
+        Path file = directory.resolve(FILE_NAME);
+        Path tmp = directory.resolve(FILE_NAME + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(position[0].segment());
+            out.writeInt(position[0].offset());
+            out.writeInt(buffered.size());
+            for (WorkerThread.UrlDepthPair pair : buffered) {
+                DataStrings.write(out, pair.url());
+                out.writeInt(pair.depth());
+            }
+            out.writeUTF(visited.getClass().getSimpleName());
+            visited.save(out);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        backlog.releaseBefore(position[0]);
+        logger.info("Checkpoint written: " + buffered.size() + " buffered URLs, " + visited.size() + " visited");
+    }
+
+    // Loads the visited set into the given store and returns where the frontier should continue
+    public static CrawlCheckpoint read(Path directory, VisitedStore visited) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(directory.resolve(FILE_NAME)), 1 << 16))) {
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unrecognized checkpoint file in " + directory);
+            }
+            DiskFrontier.Position position = new DiskFrontier.Position(in.readLong(), in.readInt());
+            int count = in.readInt();
+            List<WorkerThread.UrlDepthPair> buffered = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String url = version == 1 ? in.readUTF() : DataStrings.read(in);
+                buffered.add(new WorkerThread.UrlDepthPair(url, in.readInt()));
+            }
+            String storeType = in.readUTF();
+            if (!storeType.equals(visited.getClass().getSimpleName())) {
+                throw new IOException("Checkpoint was written by " + storeType + " but the crawler is configured with "
+                        + visited.getClass().getSimpleName());
+            }
+            visited.load(in);
+            logger.info("Checkpoint loaded: " + count + " buffered URLs, " + visited.size() + " visited");
+            return new CrawlCheckpoint(position, buffered);
+        }
+    }
+}
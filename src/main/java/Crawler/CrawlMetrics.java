@@ -0,0 +1,302 @@
+package Crawler;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Process-wide metrics registry. Hot-path counters are striped LongAdders and latencies go to lock-free
+// histograms, so recording never blocks a fetch thread. Everything registered here is rendered in the
+// Prometheus text format by MetricsHttpServer and exposed as attributes of the Crawler:type=Metrics MBean.
+public class CrawlMetrics {
+    private static final Logger logger = Logger.getLogger(CrawlMetrics.class.getName());
+    private static final CrawlMetrics INSTANCE = new CrawlMetrics();
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+    // Fetch latencies for hosts beyond the configured limit are folded into this label
+    private static final String OTHER_HOSTS = "other";
+
+    private final LongAdder pagesFetched = new LongAdder();
+    private final LongAdder fetchErrors = new LongAdder();
+    private final LongAdder bytesDownloaded = new LongAdder();
+    private final LongAdder truncatedBodies = new LongAdder();
+    private final LongAdder skippedBodies = new LongAdder();
+    private final LatencyHistogram fetchLatency = new LatencyHistogram();
+    private final LatencyHistogram politenessWait = new LatencyHistogram();
+    private final LatencyHistogram parseTime = new LatencyHistogram();
+    private final LatencyHistogram sinkWriteLatency = new LatencyHistogram();
+    private final LatencyHistogram sinkCommitLatency = new LatencyHistogram();
+
+    private final ConcurrentMap<FetchSeries, LatencyHistogram> fetchLatencyBySeries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Boolean> labeledHosts = new ConcurrentHashMap<>();
+    private final List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+    private record FetchSeries(String host, String status) {
+    }
+
+    private enum Type {
+        COUNTER, GAUGE, SUMMARY
+    }
+
+    private record Metric(String name, String help, Type type, DoubleSupplier value, LatencyHistogram histogram) {
+    }
+
+    private CrawlMetrics() {
+        registerCounter("crawler_pages_fetched_total", "Pages fetched, whatever their status", pagesFetched::sum);
+        registerCounter("crawler_fetch_errors_total", "Fetches that failed without a response", fetchErrors::sum);
+        registerCounter("crawler_downloaded_bytes_total", "Response body bytes downloaded", bytesDownloaded::sum);
+        registerCounter("crawler_truncated_bodies_total", "Response bodies cut off at max_body_bytes", truncatedBodies::sum);
+        registerCounter("crawler_skipped_bodies_total", "Response bodies left unread because the page was not HTML", skippedBodies::sum);
+        registerHistogram("crawler_politeness_wait_seconds", "Time a fetch thread waited in the frontier while queued hosts were held back by their delay", politenessWait);
+        registerHistogram("crawler_parse_seconds", "Time to parse a page and extract its links", parseTime);
+        registerHistogram("crawler_sink_write_seconds", "Time to hand a result to the result sink", sinkWriteLatency);
+        registerHistogram("crawler_sink_commit_seconds", "Time to commit a batch of results to disk", sinkCommitLatency);
+        registerGauge("crawler_jvm_heap_peak_bytes", "Highest heap use since the JVM started, summed over the heap pools", CrawlMetrics::heapPeakBytes);
+        registerCounter("crawler_jvm_gc_seconds_total", "Time spent in garbage collection", CrawlMetrics::gcSeconds);
+    }
+
+    public static CrawlMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    // Registering a name again replaces the previous supplier, so components can be rebuilt without leaking
+    public void registerCounter(String name, String help, DoubleSupplier value) {
+        register(new Metric(name, help, Type.COUNTER, value, null));
+    }
+
+    public void registerGauge(String name, String help, DoubleSupplier value) {
+        register(new Metric(name, help, Type.GAUGE, value, null));
+    }
+
+    public void registerHistogram(String name, String help, LatencyHistogram histogram) {
+        register(new Metric(name, help, Type.SUMMARY, null, histogram));
+    }
+
+    private void register(Metric metric) {
+        metrics.removeIf(existing -> existing.name().equals(metric.name()));
+        metrics.add(metric);
+    }
+
+    // Status 0 means the fetch failed before a response arrived
+    public void recordFetch(String host, int status, long nanos, long bytes) {
+        fetchLatency.recordNanos(nanos);
+        if (status == 0) {
+            fetchErrors.increment();
+        } else {
+            pagesFetched.increment();
+            bytesDownloaded.add(bytes);
+        }
+        FetchSeries series = new FetchSeries(labelFor(host), status == 0 ? "error" : Integer.toString(status));
+        fetchLatencyBySeries.computeIfAbsent(series, s -> new LatencyHistogram()).recordNanos(nanos);
+    }
+
+    public void recordTruncatedBody() {
+        truncatedBodies.increment();
+    }
+
+    public void recordSkippedBody() {
+        skippedBodies.increment();
+    }
+
+    public void recordPolitenessWait(long nanos) {
+        politenessWait.recordNanos(nanos);
+    }
+
+    public void recordParse(long nanos) {
+        parseTime.recordNanos(nanos);
+    }
+
+    public void recordSinkWrite(long nanos) {
+        sinkWriteLatency.recordNanos(nanos);
+    }
+
+    public void recordSinkCommit(long nanos) {
+        sinkCommitLatency.recordNanos(nanos);
+    }
+
+    public long getPagesFetched() {
+        return pagesFetched.sum();
+    }
+
+    public long getBytesDownloaded() {
+        return bytesDownloaded.sum();
+    }
+
+    // Each pool peaks at its own moment, so the sum is an upper bound on the real high-water mark
+    private static double heapPeakBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static double gcSeconds() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis / 1000.0;
+    }
+
+    // Caps the number of distinct host labels so a broad crawl cannot grow the series without bound
+    private String labelFor(String host) {
+        if (host == null) {
+            return OTHER_HOSTS;
+        }
+        if (labeledHosts.containsKey(host)) {
+            return host;
+        }
+        if (labeledHosts.size() >= CrawlerConfig.getInstance().getMetricsMaxHosts()) {
+            return OTHER_HOSTS;
+        }
+        labeledHosts.putIfAbsent(host, Boolean.TRUE);
+        return host;
+    }
+
+    public String toPrometheusText() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Metric metric : metrics) {
+            writeHeader(out, metric.name(), metric.help(), metric.type());
+            if (metric.type() == Type.SUMMARY) {
+                writeSummary(out, metric.name(), "", metric.histogram());
+            } else {
+                out.append(metric.name()).append(' ').append(format(metric.value().getAsDouble())).append('\n');
+            }
+        }
+
+        String name = "crawler_fetch_latency_seconds";
+        writeHeader(out, name, "Fetch latency by host and HTTP status", Type.SUMMARY);
+        writeSummary(out, name, "", fetchLatency);
+        for (Map.Entry<FetchSeries, LatencyHistogram> entry : fetchLatencyBySeries.entrySet()) {
+            String labels = "host=\"" + escape(entry.getKey().host()) + "\",status=\"" + entry.getKey().status() + "\"";
+            writeSummary(out, name, labels, entry.getValue());
+        }
+        return out.toString();
+    }
+
+    private static void writeHeader(StringBuilder out, String name, String help, Type type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type.name().toLowerCase()).append('\n');
+    }
+
+    private static void writeSummary(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        String separator = labels.isEmpty() ? "" : ",";
+        for (double quantile : QUANTILES) {
+            out.append(name).append('{').append(labels).append(separator).append("quantile=\"").append(quantile).append("\"} ")
+                    .append(format(histogram.getQuantileSeconds(quantile))).append('\n');
+        }
+        String suffixLabels = labels.isEmpty() ? "" : "{" + labels + "}";
+        out.append(name).append("_sum").append(suffixLabels).append(' ').append(format(histogram.getSumSeconds())).append('\n');
+        out.append(name).append("_count").append(suffixLabels).append(' ').append(histogram.getCount()).append('\n');
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    // Flattened view for JMX: counters and gauges as they are, histograms as _count, _p50, _p90 and _p99
+    private Map<String, Object> attributes() {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        for (Metric metric : metrics) {
+            if (metric.type() == Type.SUMMARY) {
+                putHistogram(attributes, metric.name(), metric.histogram());
+            } else {
+                attributes.put(metric.name(), metric.value().getAsDouble());
+            }
+        }
+        putHistogram(attributes, "crawler_fetch_latency_seconds", fetchLatency);
+        return attributes;
+    }
+
+    private static void putHistogram(Map<String, Object> attributes, String name, LatencyHistogram histogram) {
+        attributes.put(name + "_count", (double) histogram.getCount());
+        for (double quantile : QUANTILES) {
+            attributes.put(name + "_p" + Math.round(quantile * 100), histogram.getQuantileSeconds(quantile));
+        }
+    }
+
+    public void registerMBean() {
+        try {
+            ObjectName name = new ObjectName("Crawler:type=Metrics");
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), name);
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to register metrics MBean", e);
+        }
+    }
+
+    // Read-only MBean whose attributes follow whatever is registered at the time it is asked
+    private class MetricsMBean implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Object value = attributes().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) {
+            throw new UnsupportedOperationException("Crawler metrics are read-only");
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] names) {
+            Map<String, Object> attributes = attributes();
+            AttributeList list = new AttributeList();
+            for (String name : names) {
+                if (attributes.containsKey(name)) {
+                    list.add(new Attribute(name, attributes.get(name)));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException(actionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> infos = new ArrayList<>();
+            for (String name : attributes().keySet()) {
+                infos.add(new MBeanAttributeInfo(name, Double.class.getName(), name, true, false, false));
+            }
+            return new MBeanInfo(CrawlMetrics.class.getName(), "Web crawler metrics",
+                    infos.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[0], null);
+        }
+    }
+}
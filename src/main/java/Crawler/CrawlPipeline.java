@@ -0,0 +1,224 @@
+package Crawler;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Parse and score stages that follow the fetch done by worker threads. Each stage has its own threads and a
+// bounded handoff queue, so CPU-bound parsing never takes threads away from network I/O.
+public class CrawlPipeline {
+    private static final Logger logger = Logger.getLogger(CrawlPipeline.class.getName());
+    private static final int SNIPPET_LENGTH = 300;
+
+    private final Frontier queue;
+    private final RelevanceScorer scorer;
+    // Changed while crawling when the configuration is reloaded
+    private volatile int maxDepth;
+    private volatile double minRelevanceScore;
+    private final ResultSink resultSink;
+    private final NearDuplicateIndex nearDuplicates;
+    private final int nearDuplicateMinWords;
+    private final CrawlerConfig.NearDuplicateAction nearDuplicateAction;
+    private final LinkPrioritizer linkPrioritizer;
+    private final PipelineStage parseStage;
+    private final PipelineStage scoreStage;
+    private final AtomicInteger matchedUrlCount = new AtomicInteger(0);
+
+    public record FetchedPage(String url, int depth, PageBody body, String charset) {
+    }
+
+    // links is only filled when links are prioritized; otherwise they went to the frontier during parsing
+    public record ParsedPage(String url, int depth, String title, String text, long contentHash, List<HtmlExtractor.Link> links) {
+    }
+
+    // nearDuplicates may be null to score every page. With a linkPrioritizer, links are held back until the page
+    // is scored and then offered with a priority; without one they are offered as soon as they are parsed.
+    public CrawlPipeline(Frontier queue, RelevanceScorer scorer, int maxDepth, double minRelevanceScore, ResultSink resultSink,
+                         NearDuplicateIndex nearDuplicates, int nearDuplicateMinWords, CrawlerConfig.NearDuplicateAction nearDuplicateAction,
+                         LinkPrioritizer linkPrioritizer, int parseThreads, int scoreThreads, int stageQueueCapacity) {
+        this.queue = queue;
+        this.scorer = scorer;
+        this.maxDepth = maxDepth;
+        this.minRelevanceScore = minRelevanceScore;
+        this.resultSink = resultSink;
+        this.nearDuplicates = nearDuplicates;
+        this.nearDuplicateMinWords = nearDuplicateMinWords;
+        this.nearDuplicateAction = nearDuplicateAction;
+        this.linkPrioritizer = linkPrioritizer;
+        this.parseStage = new PipelineStage("parse", parseThreads, stageQueueCapacity);
+        this.scoreStage = new PipelineStage("score", scoreThreads, stageQueueCapacity);
+    }
+
+    public static CrawlPipeline fromConfig(Frontier queue, String keyword, int maxDepth, double minRelevanceScore, ResultSink resultSink) {
+        CrawlerConfig config = CrawlerConfig.getInstance();
+        RelevanceScorer scorer = RelevanceScorer.fromConfig(keyword);
+        boolean bestFirst = config.getFrontierType() == CrawlerConfig.FrontierType.BEST_FIRST && !config.isFrontierPersistent();
+        return new CrawlPipeline(queue, scorer, maxDepth, minRelevanceScore, resultSink,
+                config.isNearDuplicateEnabled() ? NearDuplicateIndex.fromConfig() : null,
+                config.getNearDuplicateMinWords(), config.getNearDuplicateAction(),
+                bestFirst ? LinkPrioritizer.fromConfig(scorer) : null,
+                config.getParseThreads(), config.getScoreThreads(), config.getStageQueueCapacity());
+    }
+
+    // Called by fetch threads; blocks while the parse stage is saturated
+    public void submit(FetchedPage page) throws InterruptedException {
+        parseStage.submit(() -> parse(page));
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public void setMinRelevanceScore(double minRelevanceScore) {
+        this.minRelevanceScore = minRelevanceScore;
+    }
+
+    public int getMatchedCount() {
+        return matchedUrlCount.get();
+    }
+
+    public int getBacklog() {
+        return parseStage.backlog() + scoreStage.backlog();
+    }
+
+    // Drains both stages in order. Fetch threads must have stopped submitting before this is called.
+    public void close() {
+        try {
+            parseStage.close();
+            scoreStage.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning("Interrupted while draining the crawl pipeline");
+        }
+    }
+
+    private void parse(FetchedPage page) {
+        long parseStart = System.nanoTime();
+        HtmlExtractor.Extracted extracted;
+        boolean followLinks = page.depth() < maxDepth;
+        Consumer<String> links = followLinks ? href -> offerLink(href, page.depth() + 1) : null;
+        try (Reader reader = new InputStreamReader(page.body().openStream(), charsetOf(page.charset()))) {
+            extracted = linkPrioritizer != null && followLinks
+                    ? HtmlExtractor.extractWithAnchors(reader, page.url())
+                    : HtmlExtractor.extract(reader, page.url(), links);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Failed to parse: " + page.url(), e);
+            return;
+        } finally {
+            page.body().release();
+        }
+
+        CrawlMetrics.getInstance().recordParse(System.nanoTime() - parseStart);
+
+        if (nearDuplicates != null && isNearDuplicate(page, extracted.text())) {
+            // The copy is not scored, so its links rank on their own anchor text and context
+            offerLinks(extracted.links(), page.depth() + 1, 0);
+            return;
+        }
+
+        ParsedPage parsed = new ParsedPage(page.url(), page.depth(), extracted.title(), extracted.text(), page.body().hash(),
+                extracted.links());
+        try {
+            scoreStage.submit(() -> score(parsed));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Pages too short for a meaningful fingerprint are always scored
+    private boolean isNearDuplicate(FetchedPage page, String text) {
+        int[] words = new int[1];
+        long fingerprint = SimHash.of(text, words);
+        if (words[0] < nearDuplicateMinWords) {
+            return false;
+        }
+        NearDuplicateIndex.Match match = nearDuplicates.findOrAdd(fingerprint, page.url());
+        if (match == null) {
+            return false;
+        }
+        logger.fine("Skipping " + page.url() + ": near-duplicate of " + match.canonicalUrl() + " (distance " + match.distance() + ")");
+        if (nearDuplicateAction == CrawlerConfig.NearDuplicateAction.LINK) {
+            JSONObject link = new JSONObject();
+            link.put("url", page.url());
+            link.put("duplicate_of", match.canonicalUrl());
+            link.put("simhash_distance", match.distance());
+            link.put("crawl_depth", page.depth());
+            link.put("crawl_time", System.currentTimeMillis());
+            resultSink.write(link);
+        }
+        return true;
+    }
+
+    private void offerLink(String href, int depth) {
+        String link = URLManager.canonicalize(href);
+        if (link != null && !URLManager.isVisited(link)) {
+            queue.offer(new WorkerThread.UrlDepthPair(link, depth));
+        }
+    }
+
+    // A page may link the same URL several times; the best-ranked mention wins
+    private void offerLinks(List<HtmlExtractor.Link> links, int depth, double parentScore) {
+        if (links.isEmpty()) {
+            return;
+        }
+        Map<String, WorkerThread.UrlDepthPair> pairs = new LinkedHashMap<>();
+        for (HtmlExtractor.Link link : links) {
+            String url = URLManager.canonicalize(link.url());
+            if (url == null || URLManager.isVisited(url)) {
+                continue;
+            }
+            double priority = linkPrioritizer.priority(link.anchorText(), link.context(), parentScore, depth);
+            WorkerThread.UrlDepthPair previous = pairs.get(url);
+            if (previous == null || previous.priority() < priority) {
+                pairs.put(url, new WorkerThread.UrlDepthPair(url, depth, priority));
+            }
+        }
+        queue.offerAll(new ArrayList<>(pairs.values()));
+    }
+
+    // Unknown or missing charsets fall back to UTF-8
+    private static Charset charsetOf(String name) {
+        if (name != null) {
+            try {
+                return Charset.forName(name);
+            } catch (IllegalArgumentException e) {
+                logger.fine("Unsupported charset " + name + "; reading as UTF-8");
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private void score(ParsedPage page) {
+        RelevanceScorer.Score relevance = scorer.score(page.title(), page.text());
+        offerLinks(page.links(), page.depth() + 1, relevance.value());
+        if (relevance.value() < minRelevanceScore) {
+            return;
+        }
+
+        String text = page.text();
+        JSONObject result = new JSONObject();
+        result.put("url", page.url());
+        result.put("title", page.title().isEmpty() ? "No Title" : page.title());
+        result.put("content", text.length() > SNIPPET_LENGTH ? text.substring(0, SNIPPET_LENGTH) + "..." : text);
+        result.put("relevance_score", relevance.value());
+        result.put("matched_keywords", relevance.matchedKeywords());
+        result.put("crawl_depth", page.depth());
+        result.put("content_hash", Long.toHexString(page.contentHash()));
+        result.put("crawl_time", System.currentTimeMillis());
+
+        resultSink.write(result);
+        matchedUrlCount.incrementAndGet();
+    }
+}
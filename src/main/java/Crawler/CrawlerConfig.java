@@ -3,9 +3,10 @@ package Crawler;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -17,11 +18,96 @@ public final class CrawlerConfig {
     private static final long DEFAULT_TIMEOUT_MILLIS = 10 * 60 * 1000;
     private static final int DEFAULT_MAX_DEPTH = 3;
     private static final long DEFAULT_POLITENESS_DELAY = 1000;
-    private static final String DEFAULT_OUTPUT_FILE = "output/results.json";
+    private static final String DEFAULT_OUTPUT_FILE = "output/result.json";
     private static final int DEFAULT_MAX_RETRIES = 2;
     private static final boolean DEFAULT_RESPECT_ROBOTS_TXT = true;
     private static final String DEFAULT_USER_AGENT = "Mozilla/5.0 (compatible; MyWebCrawler/1.0)";
     private static final double DEFAULT_MIN_RELEVANCE_SCORE = 1.0;
+    private static final int DEFAULT_SINK_QUEUE_CAPACITY = 10000;
+    private static final int DEFAULT_SINK_BATCH_SIZE = 512;
+    private static final long DEFAULT_SINK_FLUSH_INTERVAL_MILLIS = 1000;
+    private static final NdjsonResultSink.FsyncPolicy DEFAULT_SINK_FSYNC_POLICY = NdjsonResultSink.FsyncPolicy.ON_COMMIT;
+    private static final boolean DEFAULT_SINK_COMPACT_ON_CLOSE = true;
+    private static final ExecutionMode DEFAULT_EXECUTION_MODE = ExecutionMode.PLATFORM;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 10000;
+    private static final int DEFAULT_MAX_IN_FLIGHT_PER_HOST = 2;
+    private static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final long DEFAULT_READ_TIMEOUT_MILLIS = 10000;
+    private static final boolean DEFAULT_HTTP2_ENABLED = true;
+    private static final int DEFAULT_FETCH_EXECUTOR_THREADS = 4;
+    private static final int DEFAULT_PARSE_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_SCORE_THREADS = 1;
+    private static final int DEFAULT_STAGE_QUEUE_CAPACITY = 256;
+    private static final VisitedStore.Type DEFAULT_VISITED_STORE = VisitedStore.Type.STRING;
+    private static final long DEFAULT_VISITED_EXPECTED_URLS = 1_000_000;
+    private static final double DEFAULT_VISITED_FALSE_POSITIVE_RATE = 0.001;
+    private static final boolean DEFAULT_FRONTIER_PERSISTENT = false;
+    private static final String DEFAULT_FRONTIER_DIR = "output/frontier";
+    private static final int DEFAULT_FRONTIER_SEGMENT_BYTES = 64 * 1024 * 1024;
+    private static final int DEFAULT_FRONTIER_HEAD_CAPACITY = 10000;
+    private static final long DEFAULT_CHECKPOINT_INTERVAL_MILLIS = 60000;
+    private static final int DEFAULT_ROBOTS_CACHE_SIZE = 10000;
+    private static final long DEFAULT_ROBOTS_TTL_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final double DEFAULT_RELEVANCE_TITLE_WEIGHT = 2.0;
+    private static final double DEFAULT_RELEVANCE_BODY_WEIGHT = 1.0;
+    private static final int DEFAULT_RELEVANCE_LENGTH_NORM_WORDS = 1000;
+    private static final int DEFAULT_METRICS_PORT = 0;
+    private static final int DEFAULT_METRICS_MAX_HOSTS = 100;
+    private static final FrontierType DEFAULT_FRONTIER_TYPE = FrontierType.HOST_QUEUE;
+    private static final int DEFAULT_FRONTIER_LOCAL_CAPACITY = 4096;
+    private static final String DEFAULT_CLUSTER_SELF = "";
+    private static final String DEFAULT_CLUSTER_PEERS = "";
+    private static final int DEFAULT_CLUSTER_VIRTUAL_NODES = 128;
+    private static final int DEFAULT_CLUSTER_BATCH_SIZE = 256;
+    private static final long DEFAULT_CLUSTER_FLUSH_INTERVAL_MILLIS = 100;
+    private static final int DEFAULT_CLUSTER_OUTBOUND_CAPACITY = 100000;
+    private static final boolean DEFAULT_ADAPTIVE_RATE_ENABLED = true;
+    private static final long DEFAULT_RATE_MIN_DELAY_MILLIS = 250;
+    private static final long DEFAULT_RATE_MAX_DELAY_MILLIS = 60000;
+    private static final long DEFAULT_RATE_DELAY_STEP_MILLIS = 100;
+    private static final int DEFAULT_RATE_MIN_CONCURRENCY = 1;
+    private static final int DEFAULT_RATE_MAX_CONCURRENCY = 4;
+    private static final long DEFAULT_RATE_LATENCY_TARGET_MILLIS = 2000;
+    private static final boolean DEFAULT_RECRAWL_ENABLED = true;
+    private static final String DEFAULT_METADATA_FILE = "output/page-metadata.dat";
+    private static final long DEFAULT_RECRAWL_MIN_INTERVAL_MILLIS = 60 * 60 * 1000L;
+    private static final long DEFAULT_RECRAWL_MAX_INTERVAL_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+    private static final int DEFAULT_MAX_BODY_BYTES = 5 * 1024 * 1024;
+    private static final long DEFAULT_BUFFER_POOL_BYTES = 64 * 1024 * 1024L;
+    private static final boolean DEFAULT_NEAR_DUPLICATE_ENABLED = true;
+    private static final int DEFAULT_NEAR_DUPLICATE_MAX_DISTANCE = 3;
+    private static final int DEFAULT_NEAR_DUPLICATE_MIN_WORDS = 50;
+    private static final NearDuplicateAction DEFAULT_NEAR_DUPLICATE_ACTION = NearDuplicateAction.DROP;
+    private static final SeedProvider.Type DEFAULT_SEED_PROVIDER = SeedProvider.Type.GOOGLE;
+    private static final String DEFAULT_SEED_FILE = "seeds.txt";
+    private static final String DEFAULT_SEED_SEARCH_URL = "https://www.googleapis.com/customsearch/v1";
+    private static final int DEFAULT_SEED_MAX_RESULTS = 30;
+    private static final String DEFAULT_SEED_CACHE_DIR = "output/seed-cache";
+    private static final long DEFAULT_SEED_CACHE_TTL_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final int DEFAULT_SEED_DAILY_QUOTA = 100;
+    private static final String DEFAULT_KEYWORD = "";
+    private static final long DEFAULT_SHUTDOWN_DRAIN_MILLIS = 30 * 1000L;
+    private static final long DEFAULT_STATS_INTERVAL_MILLIS = 30 * 1000L;
+    private static final int DEFAULT_BEST_FIRST_CAPACITY = 1000000;
+    private static final int DEFAULT_BEST_FIRST_HEAD_CAPACITY = 256;
+    private static final int DEFAULT_BEST_FIRST_HEAD_HOST_CAPACITY = 8;
+    private static final double DEFAULT_LINK_ANCHOR_WEIGHT = 0.5;
+    private static final double DEFAULT_LINK_CONTEXT_WEIGHT = 0.25;
+    private static final double DEFAULT_LINK_PARENT_WEIGHT = 0.25;
+    private static final double DEFAULT_LINK_DEPTH_DECAY = 0.8;
+    private static final ResultFormat DEFAULT_RESULT_FORMAT = ResultFormat.JSON;
+    private static final String DEFAULT_ARCHIVE_FILE = "output/result.archive";
+    private static final int DEFAULT_ARCHIVE_BLOCK_RECORDS = 4096;
+    private static final int DEFAULT_ARCHIVE_COMPRESSION_LEVEL = 6;
+    private static final long DEFAULT_ARCHIVE_FLUSH_INTERVAL_MILLIS = 30_000;
+    private static final boolean DEFAULT_DNS_CACHE_ENABLED = true;
+    private static final int DEFAULT_DNS_CACHE_SIZE = 10000;
+    private static final long DEFAULT_DNS_POSITIVE_TTL_MILLIS = 5 * 60 * 1000;
+    private static final long DEFAULT_DNS_NEGATIVE_TTL_MILLIS = 30 * 1000;
+    private static final int DEFAULT_DNS_PREFETCH_THREADS = 4;
+    private static final String DEFAULT_DNS_HOSTS_FILE = "";
+    private static final boolean DEFAULT_CONFIG_RELOAD_ENABLED = true;
+    private static final String DEFAULT_METRICS_FILE = "";
 
     // Configuration keys
     private static final String KEY_MAX_THREADS = "max_threads";
@@ -34,108 +120,704 @@ public final class CrawlerConfig {
     private static final String KEY_USER_AGENT = "user_agent";
     private static final String KEY_MIN_RELEVANCE_SCORE = "min_relevance_score";
     private static final String KEY_SEED_URLS = "seed_urls";
+    private static final String KEY_SINK_QUEUE_CAPACITY = "sink_queue_capacity";
+    private static final String KEY_SINK_BATCH_SIZE = "sink_batch_size";
+    private static final String KEY_SINK_FLUSH_INTERVAL_MILLIS = "sink_flush_interval_ms";
+    private static final String KEY_SINK_FSYNC_POLICY = "sink_fsync_policy";
+    private static final String KEY_SINK_COMPACT_ON_CLOSE = "sink_compact_on_close";
+    private static final String KEY_EXECUTION_MODE = "execution_mode";
+    private static final String KEY_MAX_IN_FLIGHT = "max_in_flight";
+    private static final String KEY_MAX_IN_FLIGHT_PER_HOST = "max_in_flight_per_host";
+    private static final String KEY_CONNECT_TIMEOUT_MILLIS = "connect_timeout_ms";
+    private static final String KEY_READ_TIMEOUT_MILLIS = "read_timeout_ms";
+    private static final String KEY_HTTP2_ENABLED = "http2_enabled";
+    private static final String KEY_FETCH_EXECUTOR_THREADS = "fetch_executor_threads";
+    private static final String KEY_PARSE_THREADS = "parse_threads";
+    private static final String KEY_SCORE_THREADS = "score_threads";
+    private static final String KEY_STAGE_QUEUE_CAPACITY = "stage_queue_capacity";
+    private static final String KEY_VISITED_STORE = "visited_store";
+    private static final String KEY_VISITED_EXPECTED_URLS = "visited_expected_urls";
+    private static final String KEY_VISITED_FALSE_POSITIVE_RATE = "visited_false_positive_rate";
+    private static final String KEY_FRONTIER_PERSISTENT = "frontier_persistent";
+    private static final String KEY_FRONTIER_DIR = "frontier_dir";
+    private static final String KEY_FRONTIER_SEGMENT_BYTES = "frontier_segment_bytes";
+    private static final String KEY_FRONTIER_HEAD_CAPACITY = "frontier_head_capacity";
+    private static final String KEY_CHECKPOINT_INTERVAL_MILLIS = "checkpoint_interval_ms";
+    private static final String KEY_ROBOTS_CACHE_SIZE = "robots_cache_size";
+    private static final String KEY_ROBOTS_TTL_MILLIS = "robots_ttl_ms";
+    private static final String KEY_RELEVANCE_TITLE_WEIGHT = "relevance_title_weight";
+    private static final String KEY_RELEVANCE_BODY_WEIGHT = "relevance_body_weight";
+    private static final String KEY_RELEVANCE_LENGTH_NORM_WORDS = "relevance_length_norm_words";
+    private static final String KEY_METRICS_PORT = "metrics_port";
+    private static final String KEY_METRICS_MAX_HOSTS = "metrics_max_hosts";
+    private static final String KEY_FRONTIER_TYPE = "frontier_type";
+    private static final String KEY_FRONTIER_LOCAL_CAPACITY = "frontier_local_capacity";
+    private static final String KEY_CLUSTER_SELF = "cluster_self";
+    private static final String KEY_CLUSTER_PEERS = "cluster_peers";
+    private static final String KEY_CLUSTER_VIRTUAL_NODES = "cluster_virtual_nodes";
+    private static final String KEY_CLUSTER_BATCH_SIZE = "cluster_batch_size";
+    private static final String KEY_CLUSTER_FLUSH_INTERVAL_MILLIS = "cluster_flush_interval_ms";
+    private static final String KEY_CLUSTER_OUTBOUND_CAPACITY = "cluster_outbound_capacity";
+    private static final String KEY_ADAPTIVE_RATE_ENABLED = "adaptive_rate_enabled";
+    private static final String KEY_RATE_MIN_DELAY_MILLIS = "rate_min_delay_ms";
+    private static final String KEY_RATE_MAX_DELAY_MILLIS = "rate_max_delay_ms";
+    private static final String KEY_RATE_DELAY_STEP_MILLIS = "rate_delay_step_ms";
+    private static final String KEY_RATE_MIN_CONCURRENCY = "rate_min_concurrency";
+    private static final String KEY_RATE_MAX_CONCURRENCY = "rate_max_concurrency";
+    private static final String KEY_RATE_LATENCY_TARGET_MILLIS = "rate_latency_target_ms";
+    private static final String KEY_RECRAWL_ENABLED = "recrawl_enabled";
+    private static final String KEY_METADATA_FILE = "metadata_file";
+    private static final String KEY_RECRAWL_MIN_INTERVAL_MILLIS = "recrawl_min_interval_ms";
+    private static final String KEY_RECRAWL_MAX_INTERVAL_MILLIS = "recrawl_max_interval_ms";
+    private static final String KEY_MAX_BODY_BYTES = "max_body_bytes";
+    private static final String KEY_BUFFER_POOL_BYTES = "buffer_pool_bytes";
+    private static final String KEY_NEAR_DUPLICATE_ENABLED = "near_duplicate_enabled";
+    private static final String KEY_NEAR_DUPLICATE_MAX_DISTANCE = "near_duplicate_max_distance";
+    private static final String KEY_NEAR_DUPLICATE_MIN_WORDS = "near_duplicate_min_words";
+    private static final String KEY_NEAR_DUPLICATE_ACTION = "near_duplicate_action";
+    private static final String KEY_SEED_PROVIDER = "seed_provider";
+    private static final String KEY_SEED_FILE = "seed_file";
+    private static final String KEY_SEED_SEARCH_URL = "seed_search_url";
+    private static final String KEY_SEED_MAX_RESULTS = "seed_max_results";
+    private static final String KEY_SEED_CACHE_DIR = "seed_cache_dir";
+    private static final String KEY_SEED_CACHE_TTL_MILLIS = "seed_cache_ttl_ms";
+    private static final String KEY_SEED_DAILY_QUOTA = "seed_daily_quota";
+    private static final String KEY_KEYWORD = "keyword";
+    private static final String KEY_SHUTDOWN_DRAIN_MILLIS = "shutdown_drain_ms";
+    private static final String KEY_STATS_INTERVAL_MILLIS = "stats_interval_ms";
+    private static final String KEY_BEST_FIRST_CAPACITY = "best_first_capacity";
+    private static final String KEY_BEST_FIRST_HEAD_CAPACITY = "best_first_head_capacity";
+    private static final String KEY_BEST_FIRST_HEAD_HOST_CAPACITY = "best_first_head_host_capacity";
+    private static final String KEY_LINK_ANCHOR_WEIGHT = "link_anchor_weight";
+    private static final String KEY_LINK_CONTEXT_WEIGHT = "link_context_weight";
+    private static final String KEY_LINK_PARENT_WEIGHT = "link_parent_weight";
+    private static final String KEY_LINK_DEPTH_DECAY = "link_depth_decay";
+    private static final String KEY_RESULT_FORMAT = "result_format";
+    private static final String KEY_ARCHIVE_FILE = "archive_file";
+    private static final String KEY_ARCHIVE_BLOCK_RECORDS = "archive_block_records";
+    private static final String KEY_ARCHIVE_COMPRESSION_LEVEL = "archive_compression_level";
+    private static final String KEY_ARCHIVE_FLUSH_INTERVAL_MILLIS = "archive_flush_interval_ms";
+    private static final String KEY_DNS_CACHE_ENABLED = "dns_cache_enabled";
+    private static final String KEY_DNS_CACHE_SIZE = "dns_cache_size";
+    private static final String KEY_DNS_POSITIVE_TTL_MILLIS = "dns_positive_ttl_ms";
+    private static final String KEY_DNS_NEGATIVE_TTL_MILLIS = "dns_negative_ttl_ms";
+    private static final String KEY_DNS_PREFETCH_THREADS = "dns_prefetch_threads";
+    private static final String KEY_DNS_HOSTS_FILE = "dns_hosts_file";
+    private static final String KEY_CONFIG_RELOAD_ENABLED = "config_reload_enabled";
+    private static final String KEY_METRICS_FILE = "metrics_file";
+
+    public enum ExecutionMode {
+        PLATFORM,   // a fixed pool of max_threads worker threads
+        VIRTUAL     // one virtual thread per in-flight fetch, bounded by max_in_flight
+    }
+
+    public enum FrontierType {
+        HOST_QUEUE,     // per-host queues behind one lock, required for checkpoints
+        WORK_STEALING,  // per-thread deques with stealing, no global lock
+        BEST_FIRST      // most promising links first, from anchor text, context and the linking page's score
+    }
+
+    public enum NearDuplicateAction {
+        DROP,   // leave near-duplicates out of the results
+        LINK    // write a short record pointing at the page it duplicates instead of a scored result
+    }
+
+    public enum ResultFormat {
+        JSON,       // result.ndjson, compacted into result.json
+        ARCHIVE,    // compressed columnar archive at archive_file
+        BOTH
+    }
+
+    // One consistent view of the configuration. A load builds a new snapshot and publishes it in one step, so
+    // readers never see half of an old and half of a new configuration and need no lock.
+    public record Snapshot(
+            int maxThreads,
+            long timeoutMillis,
+            int maxDepth,
+            long politenessDelay,
+            List<String> seedUrls,
+            String outputFile,
+            int maxRetries,
+            boolean respectRobotsTxt,
+            String userAgent,
+            double minRelevanceScore,
+            int sinkQueueCapacity,
+            int sinkBatchSize,
+            long sinkFlushIntervalMillis,
+            NdjsonResultSink.FsyncPolicy sinkFsyncPolicy,
+            boolean sinkCompactOnClose,
+            ExecutionMode executionMode,
+            int maxInFlight,
+            int maxInFlightPerHost,
+            long connectTimeoutMillis,
+            long readTimeoutMillis,
+            boolean http2Enabled,
+            int fetchExecutorThreads,
+            int parseThreads,
+            int scoreThreads,
+            int stageQueueCapacity,
+            VisitedStore.Type visitedStore,
+            long visitedExpectedUrls,
+            double visitedFalsePositiveRate,
+            boolean frontierPersistent,
+            String frontierDir,
+            int frontierSegmentBytes,
+            int frontierHeadCapacity,
+            long checkpointIntervalMillis,
+            int robotsCacheSize,
+            long robotsTtlMillis,
+            double relevanceTitleWeight,
+            double relevanceBodyWeight,
+            int relevanceLengthNormWords,
+            int metricsPort,
+            int metricsMaxHosts,
+            FrontierType frontierType,
+            int frontierLocalCapacity,
+            String clusterSelf,
+            String clusterPeers,
+            int clusterVirtualNodes,
+            int clusterBatchSize,
+            long clusterFlushIntervalMillis,
+            int clusterOutboundCapacity,
+            boolean adaptiveRateEnabled,
+            long rateMinDelayMillis,
+            long rateMaxDelayMillis,
+            long rateDelayStepMillis,
+            int rateMinConcurrency,
+            int rateMaxConcurrency,
+            long rateLatencyTargetMillis,
+            boolean recrawlEnabled,
+            String metadataFile,
+            long recrawlMinIntervalMillis,
+            long recrawlMaxIntervalMillis,
+            int maxBodyBytes,
+            long bufferPoolBytes,
+            boolean nearDuplicateEnabled,
+            int nearDuplicateMaxDistance,
+            int nearDuplicateMinWords,
+            NearDuplicateAction nearDuplicateAction,
+            SeedProvider.Type seedProvider,
+            String seedFile,
+            String seedSearchUrl,
+            int seedMaxResults,
+            String seedCacheDir,
+            long seedCacheTtlMillis,
+            int seedDailyQuota,
+            String keyword,
+            long shutdownDrainMillis,
+            long statsIntervalMillis,
+            int bestFirstCapacity,
+            int bestFirstHeadCapacity,
+            int bestFirstHeadHostCapacity,
+            double linkAnchorWeight,
+            double linkContextWeight,
+            double linkParentWeight,
+            double linkDepthDecay,
+            ResultFormat resultFormat,
+            String archiveFile,
+            int archiveBlockRecords,
+            int archiveCompressionLevel,
+            long archiveFlushIntervalMillis,
+            boolean dnsCacheEnabled,
+            int dnsCacheSize,
+            long dnsPositiveTtlMillis,
+            long dnsNegativeTtlMillis,
+            int dnsPrefetchThreads,
+            String dnsHostsFile,
+            boolean configReloadEnabled,
+            String metricsFile
+    ) {
+        public Snapshot {
+            seedUrls = List.copyOf(seedUrls);
+        }
+    }
+
+    // Called after a new snapshot is published, on the thread that loaded it
+    public interface Listener {
+        void onChange(Snapshot previous, Snapshot current);
+    }
 
     private static final CrawlerConfig INSTANCE = new CrawlerConfig();
 
-    private  int maxThreads;
-    private  long timeoutMillis;
-    private  int maxDepth;
-    private  long politenessDelay;
-    private  List<String> seedUrls;
-    private  String outputFile;
-    private  int maxRetries;
-    private  boolean respectRobotsTxt;
-    private  String userAgent;
-    private  double minRelevanceScore;
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(defaults());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
 
     private CrawlerConfig() {
-        this.maxThreads = DEFAULT_MAX_THREADS;
-        this.timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
-        this.maxDepth = DEFAULT_MAX_DEPTH;
-        this.politenessDelay = DEFAULT_POLITENESS_DELAY;
-        this.seedUrls = new ArrayList<>(getDefaultSeedUrls());
-        this.outputFile = DEFAULT_OUTPUT_FILE;
-        this.maxRetries = DEFAULT_MAX_RETRIES;
-        this.respectRobotsTxt = DEFAULT_RESPECT_ROBOTS_TXT;
-        this.userAgent = DEFAULT_USER_AGENT;
-        this.minRelevanceScore = DEFAULT_MIN_RELEVANCE_SCORE;
     }
 
     public static CrawlerConfig getInstance() {
         return INSTANCE;
     }
 
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private static Snapshot defaults() {
+        return new Snapshot(
+                DEFAULT_MAX_THREADS,
+                DEFAULT_TIMEOUT_MILLIS,
+                DEFAULT_MAX_DEPTH,
+                DEFAULT_POLITENESS_DELAY,
+                getDefaultSeedUrls(),
+                DEFAULT_OUTPUT_FILE,
+                DEFAULT_MAX_RETRIES,
+                DEFAULT_RESPECT_ROBOTS_TXT,
+                DEFAULT_USER_AGENT,
+                DEFAULT_MIN_RELEVANCE_SCORE,
+                DEFAULT_SINK_QUEUE_CAPACITY,
+                DEFAULT_SINK_BATCH_SIZE,
+                DEFAULT_SINK_FLUSH_INTERVAL_MILLIS,
+                DEFAULT_SINK_FSYNC_POLICY,
+                DEFAULT_SINK_COMPACT_ON_CLOSE,
+                DEFAULT_EXECUTION_MODE,
+                DEFAULT_MAX_IN_FLIGHT,
+                DEFAULT_MAX_IN_FLIGHT_PER_HOST,
+                DEFAULT_CONNECT_TIMEOUT_MILLIS,
+                DEFAULT_READ_TIMEOUT_MILLIS,
+                DEFAULT_HTTP2_ENABLED,
+                DEFAULT_FETCH_EXECUTOR_THREADS,
+                DEFAULT_PARSE_THREADS,
+                DEFAULT_SCORE_THREADS,
+                DEFAULT_STAGE_QUEUE_CAPACITY,
+                DEFAULT_VISITED_STORE,
+                DEFAULT_VISITED_EXPECTED_URLS,
+                DEFAULT_VISITED_FALSE_POSITIVE_RATE,
+                DEFAULT_FRONTIER_PERSISTENT,
+                DEFAULT_FRONTIER_DIR,
+                DEFAULT_FRONTIER_SEGMENT_BYTES,
+                DEFAULT_FRONTIER_HEAD_CAPACITY,
+                DEFAULT_CHECKPOINT_INTERVAL_MILLIS,
+                DEFAULT_ROBOTS_CACHE_SIZE,
+                DEFAULT_ROBOTS_TTL_MILLIS,
+                DEFAULT_RELEVANCE_TITLE_WEIGHT,
+                DEFAULT_RELEVANCE_BODY_WEIGHT,
+                DEFAULT_RELEVANCE_LENGTH_NORM_WORDS,
+                DEFAULT_METRICS_PORT,
+                DEFAULT_METRICS_MAX_HOSTS,
+                DEFAULT_FRONTIER_TYPE,
+                DEFAULT_FRONTIER_LOCAL_CAPACITY,
+                DEFAULT_CLUSTER_SELF,
+                DEFAULT_CLUSTER_PEERS,
+                DEFAULT_CLUSTER_VIRTUAL_NODES,
+                DEFAULT_CLUSTER_BATCH_SIZE,
+                DEFAULT_CLUSTER_FLUSH_INTERVAL_MILLIS,
+                DEFAULT_CLUSTER_OUTBOUND_CAPACITY,
+                DEFAULT_ADAPTIVE_RATE_ENABLED,
+                DEFAULT_RATE_MIN_DELAY_MILLIS,
+                DEFAULT_RATE_MAX_DELAY_MILLIS,
+                DEFAULT_RATE_DELAY_STEP_MILLIS,
+                DEFAULT_RATE_MIN_CONCURRENCY,
+                DEFAULT_RATE_MAX_CONCURRENCY,
+                DEFAULT_RATE_LATENCY_TARGET_MILLIS,
+                DEFAULT_RECRAWL_ENABLED,
+                DEFAULT_METADATA_FILE,
+                DEFAULT_RECRAWL_MIN_INTERVAL_MILLIS,
+                DEFAULT_RECRAWL_MAX_INTERVAL_MILLIS,
+                DEFAULT_MAX_BODY_BYTES,
+                DEFAULT_BUFFER_POOL_BYTES,
+                DEFAULT_NEAR_DUPLICATE_ENABLED,
+                DEFAULT_NEAR_DUPLICATE_MAX_DISTANCE,
+                DEFAULT_NEAR_DUPLICATE_MIN_WORDS,
+                DEFAULT_NEAR_DUPLICATE_ACTION,
+                DEFAULT_SEED_PROVIDER,
+                DEFAULT_SEED_FILE,
+                DEFAULT_SEED_SEARCH_URL,
+                DEFAULT_SEED_MAX_RESULTS,
+                DEFAULT_SEED_CACHE_DIR,
+                DEFAULT_SEED_CACHE_TTL_MILLIS,
+                DEFAULT_SEED_DAILY_QUOTA,
+                DEFAULT_KEYWORD,
+                DEFAULT_SHUTDOWN_DRAIN_MILLIS,
+                DEFAULT_STATS_INTERVAL_MILLIS,
+                DEFAULT_BEST_FIRST_CAPACITY,
+                DEFAULT_BEST_FIRST_HEAD_CAPACITY,
+                DEFAULT_BEST_FIRST_HEAD_HOST_CAPACITY,
+                DEFAULT_LINK_ANCHOR_WEIGHT,
+                DEFAULT_LINK_CONTEXT_WEIGHT,
+                DEFAULT_LINK_PARENT_WEIGHT,
+                DEFAULT_LINK_DEPTH_DECAY,
+                DEFAULT_RESULT_FORMAT,
+                DEFAULT_ARCHIVE_FILE,
+                DEFAULT_ARCHIVE_BLOCK_RECORDS,
+                DEFAULT_ARCHIVE_COMPRESSION_LEVEL,
+                DEFAULT_ARCHIVE_FLUSH_INTERVAL_MILLIS,
+                DEFAULT_DNS_CACHE_ENABLED,
+                DEFAULT_DNS_CACHE_SIZE,
+                DEFAULT_DNS_POSITIVE_TTL_MILLIS,
+                DEFAULT_DNS_NEGATIVE_TTL_MILLIS,
+                DEFAULT_DNS_PREFETCH_THREADS,
+                DEFAULT_DNS_HOSTS_FILE,
+                DEFAULT_CONFIG_RELOAD_ENABLED,
+                DEFAULT_METRICS_FILE
+        );
+    }
+
+    // Serialized so listeners see the snapshots in the order they were published
+    private synchronized void publish(Snapshot next) {
+        Snapshot previous = current.getAndSet(next);
+        for (Listener listener : listeners) {
+            try {
+                listener.onChange(previous, next);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Configuration listener failed", e);
+            }
+        }
+    }
+
     public void loadFromFile(String configFile) {
         Properties props = new Properties();
         try (FileInputStream in = new FileInputStream(configFile)) {
             props.load(in);
-
-            int maxThreads = getIntProperty(props, KEY_MAX_THREADS, DEFAULT_MAX_THREADS);
-            long timeoutMillis = getLongProperty(props, KEY_TIMEOUT_MINUTES, DEFAULT_TIMEOUT_MILLIS / (60 * 1000)) * 60 * 1000;
-            int maxDepth = getIntProperty(props, KEY_MAX_DEPTH, DEFAULT_MAX_DEPTH);
-            long politenessDelay = getLongProperty(props, KEY_POLITENESS_DELAY, DEFAULT_POLITENESS_DELAY);
-            String outputFile = props.getProperty(KEY_OUTPUT_FILE, DEFAULT_OUTPUT_FILE);
-            int maxRetries = getIntProperty(props, KEY_MAX_RETRIES, DEFAULT_MAX_RETRIES);
-            boolean respectRobotsTxt = getBooleanProperty(props, KEY_RESPECT_ROBOTS_TXT, DEFAULT_RESPECT_ROBOTS_TXT);
-            String userAgent = props.getProperty(KEY_USER_AGENT, DEFAULT_USER_AGENT);
-            double minRelevanceScore = getDoubleProperty(props, KEY_MIN_RELEVANCE_SCORE, DEFAULT_MIN_RELEVANCE_SCORE);
-            List<String> seedUrls = getSeedUrls(props);
-
-            validateConfig(maxThreads, timeoutMillis, maxDepth, politenessDelay, maxRetries, minRelevanceScore);
-
-            synchronized (this) {
-                this.maxThreads = maxThreads;
-                this.timeoutMillis = timeoutMillis;
-                this.maxDepth = maxDepth;
-                this.politenessDelay = politenessDelay;
-                this.seedUrls.clear();
-                this.seedUrls.addAll(seedUrls);
-                this.outputFile = outputFile;
-                this.maxRetries = maxRetries;
-                this.respectRobotsTxt = respectRobotsTxt;
-                this.userAgent = userAgent;
-                this.minRelevanceScore = minRelevanceScore;
-            }
-
-            logger.info("Configuration loaded successfully from " + configFile);
         } catch (IOException e) {
             logger.log(Level.WARNING, "Failed to load configuration file. Using defaults.", e);
             loadDefaults();
+            return;
         }
+        load(props, configFile);
     }
 
+    // Applies a complete set of properties; missing keys take their defaults. The source only names them in the log.
+    public void load(Properties props, String source) {
+        int maxThreads = getIntProperty(props, KEY_MAX_THREADS, DEFAULT_MAX_THREADS);
+        long timeoutMillis = getLongProperty(props, KEY_TIMEOUT_MINUTES, DEFAULT_TIMEOUT_MILLIS / (60 * 1000)) * 60 * 1000;
+        int maxDepth = getIntProperty(props, KEY_MAX_DEPTH, DEFAULT_MAX_DEPTH);
+        long politenessDelay = getLongProperty(props, KEY_POLITENESS_DELAY, DEFAULT_POLITENESS_DELAY);
+        String outputFile = props.getProperty(KEY_OUTPUT_FILE, DEFAULT_OUTPUT_FILE);
+        int maxRetries = getIntProperty(props, KEY_MAX_RETRIES, DEFAULT_MAX_RETRIES);
+        boolean respectRobotsTxt = getBooleanProperty(props, KEY_RESPECT_ROBOTS_TXT, DEFAULT_RESPECT_ROBOTS_TXT);
+        String userAgent = props.getProperty(KEY_USER_AGENT, DEFAULT_USER_AGENT);
+        double minRelevanceScore = getDoubleProperty(props, KEY_MIN_RELEVANCE_SCORE, DEFAULT_MIN_RELEVANCE_SCORE);
+        List<String> seedUrls = getSeedUrls(props);
+        int sinkQueueCapacity = getIntProperty(props, KEY_SINK_QUEUE_CAPACITY, DEFAULT_SINK_QUEUE_CAPACITY);
+        int sinkBatchSize = getIntProperty(props, KEY_SINK_BATCH_SIZE, DEFAULT_SINK_BATCH_SIZE);
+        long sinkFlushIntervalMillis = getLongProperty(props, KEY_SINK_FLUSH_INTERVAL_MILLIS, DEFAULT_SINK_FLUSH_INTERVAL_MILLIS);
+        NdjsonResultSink.FsyncPolicy sinkFsyncPolicy = getEnumProperty(props, KEY_SINK_FSYNC_POLICY, DEFAULT_SINK_FSYNC_POLICY);
+        boolean sinkCompactOnClose = getBooleanProperty(props, KEY_SINK_COMPACT_ON_CLOSE, DEFAULT_SINK_COMPACT_ON_CLOSE);
+        ExecutionMode executionMode = getEnumProperty(props, KEY_EXECUTION_MODE, DEFAULT_EXECUTION_MODE);
+        int maxInFlight = getIntProperty(props, KEY_MAX_IN_FLIGHT, DEFAULT_MAX_IN_FLIGHT);
+        int maxInFlightPerHost = getIntProperty(props, KEY_MAX_IN_FLIGHT_PER_HOST, DEFAULT_MAX_IN_FLIGHT_PER_HOST);
+        long connectTimeoutMillis = getLongProperty(props, KEY_CONNECT_TIMEOUT_MILLIS, DEFAULT_CONNECT_TIMEOUT_MILLIS);
+        long readTimeoutMillis = getLongProperty(props, KEY_READ_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS);
+        boolean http2Enabled = getBooleanProperty(props, KEY_HTTP2_ENABLED, DEFAULT_HTTP2_ENABLED);
+        int fetchExecutorThreads = getIntProperty(props, KEY_FETCH_EXECUTOR_THREADS, DEFAULT_FETCH_EXECUTOR_THREADS);
+        int parseThreads = getIntProperty(props, KEY_PARSE_THREADS, DEFAULT_PARSE_THREADS);
+        int scoreThreads = getIntProperty(props, KEY_SCORE_THREADS, DEFAULT_SCORE_THREADS);
+        int stageQueueCapacity = getIntProperty(props, KEY_STAGE_QUEUE_CAPACITY, DEFAULT_STAGE_QUEUE_CAPACITY);
+        VisitedStore.Type visitedStore = getEnumProperty(props, KEY_VISITED_STORE, DEFAULT_VISITED_STORE);
+        long visitedExpectedUrls = getLongProperty(props, KEY_VISITED_EXPECTED_URLS, DEFAULT_VISITED_EXPECTED_URLS);
+        double visitedFalsePositiveRate = getDoubleProperty(props, KEY_VISITED_FALSE_POSITIVE_RATE, DEFAULT_VISITED_FALSE_POSITIVE_RATE);
+        boolean frontierPersistent = getBooleanProperty(props, KEY_FRONTIER_PERSISTENT, DEFAULT_FRONTIER_PERSISTENT);
+        String frontierDir = props.getProperty(KEY_FRONTIER_DIR, DEFAULT_FRONTIER_DIR);
+        int frontierSegmentBytes = getIntProperty(props, KEY_FRONTIER_SEGMENT_BYTES, DEFAULT_FRONTIER_SEGMENT_BYTES);
+        int frontierHeadCapacity = getIntProperty(props, KEY_FRONTIER_HEAD_CAPACITY, DEFAULT_FRONTIER_HEAD_CAPACITY);
+        long checkpointIntervalMillis = getLongProperty(props, KEY_CHECKPOINT_INTERVAL_MILLIS, DEFAULT_CHECKPOINT_INTERVAL_MILLIS);
+        int robotsCacheSize = getIntProperty(props, KEY_ROBOTS_CACHE_SIZE, DEFAULT_ROBOTS_CACHE_SIZE);
+        long robotsTtlMillis = getLongProperty(props, KEY_ROBOTS_TTL_MILLIS, DEFAULT_ROBOTS_TTL_MILLIS);
+        double relevanceTitleWeight = getDoubleProperty(props, KEY_RELEVANCE_TITLE_WEIGHT, DEFAULT_RELEVANCE_TITLE_WEIGHT);
+        double relevanceBodyWeight = getDoubleProperty(props, KEY_RELEVANCE_BODY_WEIGHT, DEFAULT_RELEVANCE_BODY_WEIGHT);
+        int relevanceLengthNormWords = getIntProperty(props, KEY_RELEVANCE_LENGTH_NORM_WORDS, DEFAULT_RELEVANCE_LENGTH_NORM_WORDS);
+        int metricsPort = getIntProperty(props, KEY_METRICS_PORT, DEFAULT_METRICS_PORT);
+        int metricsMaxHosts = getIntProperty(props, KEY_METRICS_MAX_HOSTS, DEFAULT_METRICS_MAX_HOSTS);
+        FrontierType frontierType = getEnumProperty(props, KEY_FRONTIER_TYPE, DEFAULT_FRONTIER_TYPE);
+        int frontierLocalCapacity = getIntProperty(props, KEY_FRONTIER_LOCAL_CAPACITY, DEFAULT_FRONTIER_LOCAL_CAPACITY);
+        String clusterSelf = props.getProperty(KEY_CLUSTER_SELF, DEFAULT_CLUSTER_SELF);
+        String clusterPeers = props.getProperty(KEY_CLUSTER_PEERS, DEFAULT_CLUSTER_PEERS);
+        int clusterVirtualNodes = getIntProperty(props, KEY_CLUSTER_VIRTUAL_NODES, DEFAULT_CLUSTER_VIRTUAL_NODES);
+        int clusterBatchSize = getIntProperty(props, KEY_CLUSTER_BATCH_SIZE, DEFAULT_CLUSTER_BATCH_SIZE);
+        long clusterFlushIntervalMillis = getLongProperty(props, KEY_CLUSTER_FLUSH_INTERVAL_MILLIS, DEFAULT_CLUSTER_FLUSH_INTERVAL_MILLIS);
+        int clusterOutboundCapacity = getIntProperty(props, KEY_CLUSTER_OUTBOUND_CAPACITY, DEFAULT_CLUSTER_OUTBOUND_CAPACITY);
+        boolean adaptiveRateEnabled = getBooleanProperty(props, KEY_ADAPTIVE_RATE_ENABLED, DEFAULT_ADAPTIVE_RATE_ENABLED);
+        long rateMinDelayMillis = getLongProperty(props, KEY_RATE_MIN_DELAY_MILLIS, DEFAULT_RATE_MIN_DELAY_MILLIS);
+        long rateMaxDelayMillis = getLongProperty(props, KEY_RATE_MAX_DELAY_MILLIS, DEFAULT_RATE_MAX_DELAY_MILLIS);
+        long rateDelayStepMillis = getLongProperty(props, KEY_RATE_DELAY_STEP_MILLIS, DEFAULT_RATE_DELAY_STEP_MILLIS);
+        int rateMinConcurrency = getIntProperty(props, KEY_RATE_MIN_CONCURRENCY, DEFAULT_RATE_MIN_CONCURRENCY);
+        int rateMaxConcurrency = getIntProperty(props, KEY_RATE_MAX_CONCURRENCY, DEFAULT_RATE_MAX_CONCURRENCY);
+        long rateLatencyTargetMillis = getLongProperty(props, KEY_RATE_LATENCY_TARGET_MILLIS, DEFAULT_RATE_LATENCY_TARGET_MILLIS);
+        boolean recrawlEnabled = getBooleanProperty(props, KEY_RECRAWL_ENABLED, DEFAULT_RECRAWL_ENABLED);
+        String metadataFile = props.getProperty(KEY_METADATA_FILE, DEFAULT_METADATA_FILE);
+        long recrawlMinIntervalMillis = getLongProperty(props, KEY_RECRAWL_MIN_INTERVAL_MILLIS, DEFAULT_RECRAWL_MIN_INTERVAL_MILLIS);
+        long recrawlMaxIntervalMillis = getLongProperty(props, KEY_RECRAWL_MAX_INTERVAL_MILLIS, DEFAULT_RECRAWL_MAX_INTERVAL_MILLIS);
+        int maxBodyBytes = getIntProperty(props, KEY_MAX_BODY_BYTES, DEFAULT_MAX_BODY_BYTES);
+        long bufferPoolBytes = getLongProperty(props, KEY_BUFFER_POOL_BYTES, DEFAULT_BUFFER_POOL_BYTES);
+        boolean nearDuplicateEnabled = getBooleanProperty(props, KEY_NEAR_DUPLICATE_ENABLED, DEFAULT_NEAR_DUPLICATE_ENABLED);
+        int nearDuplicateMaxDistance = getIntProperty(props, KEY_NEAR_DUPLICATE_MAX_DISTANCE, DEFAULT_NEAR_DUPLICATE_MAX_DISTANCE);
+        int nearDuplicateMinWords = getIntProperty(props, KEY_NEAR_DUPLICATE_MIN_WORDS, DEFAULT_NEAR_DUPLICATE_MIN_WORDS);
+        NearDuplicateAction nearDuplicateAction = getEnumProperty(props, KEY_NEAR_DUPLICATE_ACTION, DEFAULT_NEAR_DUPLICATE_ACTION);
+        SeedProvider.Type seedProvider = getEnumProperty(props, KEY_SEED_PROVIDER, DEFAULT_SEED_PROVIDER);
+        String seedFile = props.getProperty(KEY_SEED_FILE, DEFAULT_SEED_FILE);
+        String seedSearchUrl = props.getProperty(KEY_SEED_SEARCH_URL, DEFAULT_SEED_SEARCH_URL);
+        int seedMaxResults = getIntProperty(props, KEY_SEED_MAX_RESULTS, DEFAULT_SEED_MAX_RESULTS);
+        String seedCacheDir = props.getProperty(KEY_SEED_CACHE_DIR, DEFAULT_SEED_CACHE_DIR);
+        long seedCacheTtlMillis = getLongProperty(props, KEY_SEED_CACHE_TTL_MILLIS, DEFAULT_SEED_CACHE_TTL_MILLIS);
+        int seedDailyQuota = getIntProperty(props, KEY_SEED_DAILY_QUOTA, DEFAULT_SEED_DAILY_QUOTA);
+        String keyword = props.getProperty(KEY_KEYWORD, DEFAULT_KEYWORD);
+        long shutdownDrainMillis = getLongProperty(props, KEY_SHUTDOWN_DRAIN_MILLIS, DEFAULT_SHUTDOWN_DRAIN_MILLIS);
+        long statsIntervalMillis = getLongProperty(props, KEY_STATS_INTERVAL_MILLIS, DEFAULT_STATS_INTERVAL_MILLIS);
+        int bestFirstCapacity = getIntProperty(props, KEY_BEST_FIRST_CAPACITY, DEFAULT_BEST_FIRST_CAPACITY);
+        int bestFirstHeadCapacity = getIntProperty(props, KEY_BEST_FIRST_HEAD_CAPACITY, DEFAULT_BEST_FIRST_HEAD_CAPACITY);
+        int bestFirstHeadHostCapacity = getIntProperty(props, KEY_BEST_FIRST_HEAD_HOST_CAPACITY, DEFAULT_BEST_FIRST_HEAD_HOST_CAPACITY);
+        double linkAnchorWeight = getDoubleProperty(props, KEY_LINK_ANCHOR_WEIGHT, DEFAULT_LINK_ANCHOR_WEIGHT);
+        double linkContextWeight = getDoubleProperty(props, KEY_LINK_CONTEXT_WEIGHT, DEFAULT_LINK_CONTEXT_WEIGHT);
+        double linkParentWeight = getDoubleProperty(props, KEY_LINK_PARENT_WEIGHT, DEFAULT_LINK_PARENT_WEIGHT);
+        double linkDepthDecay = getDoubleProperty(props, KEY_LINK_DEPTH_DECAY, DEFAULT_LINK_DEPTH_DECAY);
+        ResultFormat resultFormat = getEnumProperty(props, KEY_RESULT_FORMAT, DEFAULT_RESULT_FORMAT);
+        String archiveFile = props.getProperty(KEY_ARCHIVE_FILE, DEFAULT_ARCHIVE_FILE);
+        int archiveBlockRecords = getIntProperty(props, KEY_ARCHIVE_BLOCK_RECORDS, DEFAULT_ARCHIVE_BLOCK_RECORDS);
+        int archiveCompressionLevel = getIntProperty(props, KEY_ARCHIVE_COMPRESSION_LEVEL, DEFAULT_ARCHIVE_COMPRESSION_LEVEL);
+        long archiveFlushIntervalMillis = getLongProperty(props, KEY_ARCHIVE_FLUSH_INTERVAL_MILLIS, DEFAULT_ARCHIVE_FLUSH_INTERVAL_MILLIS);
+        boolean dnsCacheEnabled = getBooleanProperty(props, KEY_DNS_CACHE_ENABLED, DEFAULT_DNS_CACHE_ENABLED);
+        int dnsCacheSize = getIntProperty(props, KEY_DNS_CACHE_SIZE, DEFAULT_DNS_CACHE_SIZE);
+        long dnsPositiveTtlMillis = getLongProperty(props, KEY_DNS_POSITIVE_TTL_MILLIS, DEFAULT_DNS_POSITIVE_TTL_MILLIS);
+        long dnsNegativeTtlMillis = getLongProperty(props, KEY_DNS_NEGATIVE_TTL_MILLIS, DEFAULT_DNS_NEGATIVE_TTL_MILLIS);
+        int dnsPrefetchThreads = getIntProperty(props, KEY_DNS_PREFETCH_THREADS, DEFAULT_DNS_PREFETCH_THREADS);
+        String dnsHostsFile = props.getProperty(KEY_DNS_HOSTS_FILE, DEFAULT_DNS_HOSTS_FILE);
+        boolean configReloadEnabled = getBooleanProperty(props, KEY_CONFIG_RELOAD_ENABLED, DEFAULT_CONFIG_RELOAD_ENABLED);
+        String metricsFile = props.getProperty(KEY_METRICS_FILE, DEFAULT_METRICS_FILE);
+
+        validateConfig(maxThreads, timeoutMillis, maxDepth, politenessDelay, maxRetries, minRelevanceScore);
+        validateSinkConfig(sinkQueueCapacity, sinkBatchSize, sinkFlushIntervalMillis);
+        if (maxInFlight <= 0 || maxInFlightPerHost <= 0) {
+            throw new IllegalArgumentException("max_in_flight and max_in_flight_per_host must be greater than 0");
+        }
+        if (connectTimeoutMillis <= 0 || readTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("connect_timeout_ms and read_timeout_ms must be greater than 0");
+        }
+        if (fetchExecutorThreads <= 0) {
+            throw new IllegalArgumentException("fetch_executor_threads must be greater than 0");
+        }
+        if (parseThreads <= 0 || scoreThreads <= 0 || stageQueueCapacity <= 0) {
+            throw new IllegalArgumentException("parse_threads, score_threads and stage_queue_capacity must be greater than 0");
+        }
+        if (visitedExpectedUrls <= 0) {
+            throw new IllegalArgumentException("visited_expected_urls must be greater than 0");
+        }
+        if (visitedFalsePositiveRate <= 0 || visitedFalsePositiveRate >= 1) {
+            throw new IllegalArgumentException("visited_false_positive_rate must be between 0 and 1");
+        }
+        if (robotsCacheSize <= 0 || robotsTtlMillis <= 0) {
+            throw new IllegalArgumentException("robots_cache_size and robots_ttl_ms must be greater than 0");
+        }
+        if (frontierSegmentBytes < 4096 || frontierHeadCapacity <= 0 || checkpointIntervalMillis <= 0) {
+            throw new IllegalArgumentException("frontier_segment_bytes must be at least 4096, frontier_head_capacity and checkpoint_interval_ms greater than 0");
+        }
+        if (relevanceTitleWeight < 0 || relevanceBodyWeight < 0 || relevanceLengthNormWords <= 0) {
+            throw new IllegalArgumentException("relevance weights must not be negative and relevance_length_norm_words must be greater than 0");
+        }
+        if (metricsPort < 0 || metricsPort > 65535 || metricsMaxHosts < 0) {
+            throw new IllegalArgumentException("metrics_port must be between 0 and 65535 and metrics_max_hosts must not be negative");
+        }
+        if (frontierLocalCapacity <= 0) {
+            throw new IllegalArgumentException("frontier_local_capacity must be greater than 0");
+        }
+        if (clusterVirtualNodes <= 0 || clusterBatchSize <= 0 || clusterFlushIntervalMillis <= 0 || clusterOutboundCapacity <= 0) {
+            throw new IllegalArgumentException("cluster_virtual_nodes, cluster_batch_size, cluster_flush_interval_ms and cluster_outbound_capacity must be greater than 0");
+        }
+        if (rateMinDelayMillis < 0 || rateMaxDelayMillis < rateMinDelayMillis || rateDelayStepMillis <= 0) {
+            throw new IllegalArgumentException("rate_min_delay_ms must not be negative, rate_max_delay_ms must not be below it and rate_delay_step_ms must be greater than 0");
+        }
+        if (rateMinConcurrency <= 0 || rateMaxConcurrency < rateMinConcurrency || rateLatencyTargetMillis <= 0) {
+            throw new IllegalArgumentException("rate_min_concurrency and rate_latency_target_ms must be greater than 0 and rate_max_concurrency must not be below rate_min_concurrency");
+        }
+        if (recrawlMinIntervalMillis <= 0 || recrawlMaxIntervalMillis < recrawlMinIntervalMillis) {
+            throw new IllegalArgumentException("recrawl_min_interval_ms must be greater than 0 and recrawl_max_interval_ms must not be below it");
+        }
+        if (maxBodyBytes <= 0 || bufferPoolBytes < 0) {
+            throw new IllegalArgumentException("max_body_bytes must be greater than 0 and buffer_pool_bytes must not be negative");
+        }
+        if (nearDuplicateMaxDistance < 0 || nearDuplicateMaxDistance > 10 || nearDuplicateMinWords < 0) {
+            throw new IllegalArgumentException("near_duplicate_max_distance must be between 0 and 10 and near_duplicate_min_words must not be negative");
+        }
+        if (seedMaxResults <= 0 || seedCacheTtlMillis < 0 || seedDailyQuota < 0) {
+            throw new IllegalArgumentException("seed_max_results must be greater than 0 and seed_cache_ttl_ms and seed_daily_quota must not be negative");
+        }
+        if (shutdownDrainMillis < 0 || statsIntervalMillis <= 0) {
+            throw new IllegalArgumentException("shutdown_drain_ms must not be negative and stats_interval_ms must be greater than 0");
+        }
+        if (bestFirstCapacity <= 0 || bestFirstHeadCapacity <= 0 || bestFirstHeadHostCapacity <= 0) {
+            throw new IllegalArgumentException("best_first_capacity, best_first_head_capacity and best_first_head_host_capacity must be greater than 0");
+        }
+        if (linkAnchorWeight < 0 || linkContextWeight < 0 || linkParentWeight < 0 || linkDepthDecay <= 0 || linkDepthDecay > 1) {
+            throw new IllegalArgumentException("link weights must not be negative and link_depth_decay must be greater than 0 and at most 1");
+        }
+        if (archiveFile.isBlank()) {
+            throw new IllegalArgumentException("archive_file must not be empty");
+        }
+        if (archiveBlockRecords <= 0 || archiveFlushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("archive_block_records and archive_flush_interval_ms must be greater than 0");
+        }
+        if (archiveCompressionLevel < 0 || archiveCompressionLevel > 9) {
+            throw new IllegalArgumentException("archive_compression_level must be between 0 and 9");
+        }
+        if (dnsCacheSize <= 0 || dnsPrefetchThreads <= 0) {
+            throw new IllegalArgumentException("dns_cache_size and dns_prefetch_threads must be greater than 0");
+        }
+        if (dnsPositiveTtlMillis < 0 || dnsNegativeTtlMillis < 0) {
+            throw new IllegalArgumentException("dns_positive_ttl_ms and dns_negative_ttl_ms must not be negative");
+        }
+
+        publish(new Snapshot(
+                maxThreads,
+                timeoutMillis,
+                maxDepth,
+                politenessDelay,
+                seedUrls,
+                outputFile,
+                maxRetries,
+                respectRobotsTxt,
+                userAgent,
+                minRelevanceScore,
+                sinkQueueCapacity,
+                sinkBatchSize,
+                sinkFlushIntervalMillis,
+                sinkFsyncPolicy,
+                sinkCompactOnClose,
+                executionMode,
+                maxInFlight,
+                maxInFlightPerHost,
+                connectTimeoutMillis,
+                readTimeoutMillis,
+                http2Enabled,
+                fetchExecutorThreads,
+                parseThreads,
+                scoreThreads,
+                stageQueueCapacity,
+                visitedStore,
+                visitedExpectedUrls,
+                visitedFalsePositiveRate,
+                frontierPersistent,
+                frontierDir,
+                frontierSegmentBytes,
+                frontierHeadCapacity,
+                checkpointIntervalMillis,
+                robotsCacheSize,
+                robotsTtlMillis,
+                relevanceTitleWeight,
+                relevanceBodyWeight,
+                relevanceLengthNormWords,
+                metricsPort,
+                metricsMaxHosts,
+                frontierType,
+                frontierLocalCapacity,
+                clusterSelf,
+                clusterPeers,
+                clusterVirtualNodes,
+                clusterBatchSize,
+                clusterFlushIntervalMillis,
+                clusterOutboundCapacity,
+                adaptiveRateEnabled,
+                rateMinDelayMillis,
+                rateMaxDelayMillis,
+                rateDelayStepMillis,
+                rateMinConcurrency,
+                rateMaxConcurrency,
+                rateLatencyTargetMillis,
+                recrawlEnabled,
+                metadataFile,
+                recrawlMinIntervalMillis,
+                recrawlMaxIntervalMillis,
+                maxBodyBytes,
+                bufferPoolBytes,
+                nearDuplicateEnabled,
+                nearDuplicateMaxDistance,
+                nearDuplicateMinWords,
+                nearDuplicateAction,
+                seedProvider,
+                seedFile,
+                seedSearchUrl,
+                seedMaxResults,
+                seedCacheDir,
+                seedCacheTtlMillis,
+                seedDailyQuota,
+                keyword,
+                shutdownDrainMillis,
+                statsIntervalMillis,
+                bestFirstCapacity,
+                bestFirstHeadCapacity,
+                bestFirstHeadHostCapacity,
+                linkAnchorWeight,
+                linkContextWeight,
+                linkParentWeight,
+                linkDepthDecay,
+                resultFormat,
+                archiveFile,
+                archiveBlockRecords,
+                archiveCompressionLevel,
+                archiveFlushIntervalMillis,
+                dnsCacheEnabled,
+                dnsCacheSize,
+                dnsPositiveTtlMillis,
+                dnsNegativeTtlMillis,
+                dnsPrefetchThreads,
+                dnsHostsFile,
+                configReloadEnabled,
+                metricsFile
+        ));
+
+        logger.info("Configuration loaded successfully from " + source);
+    }
+
+    // A value that does not parse rejects the whole configuration, like one that is out of range, so a typo in a
+    // reloaded file cannot quietly put a setting back to its default
     private int getIntProperty(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key, String.valueOf(defaultValue));
         try {
-            return Integer.parseInt(props.getProperty(key, String.valueOf(defaultValue)));
+            return Integer.parseInt(value.trim());
         } catch (NumberFormatException e) {
-            logger.warning("Invalid value for " + key + ". Using default: " + defaultValue);
-            return defaultValue;
+            throw invalidValue(key, value);
         }
     }
 
     private long getLongProperty(Properties props, String key, long defaultValue) {
+        String value = props.getProperty(key, String.valueOf(defaultValue));
         try {
-            return Long.parseLong(props.getProperty(key, String.valueOf(defaultValue)));
+            return Long.parseLong(value.trim());
         } catch (NumberFormatException e) {
-            logger.warning("Invalid value for " + key + ". Using default: " + defaultValue);
-            return defaultValue;
+            throw invalidValue(key, value);
         }
     }
 
     private double getDoubleProperty(Properties props, String key, double defaultValue) {
+        String value = props.getProperty(key, String.valueOf(defaultValue));
         try {
-            return Double.parseDouble(props.getProperty(key, String.valueOf(defaultValue)));
+            return Double.parseDouble(value.trim());
         } catch (NumberFormatException e) {
-            logger.warning("Invalid value for " + key + ". Using default: " + defaultValue);
-            return defaultValue;
+            throw invalidValue(key, value);
         }
     }
 
     private boolean getBooleanProperty(Properties props, String key, boolean defaultValue) {
-        String value = props.getProperty(key, String.valueOf(defaultValue));
+        String value = props.getProperty(key, String.valueOf(defaultValue)).trim();
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+            throw invalidValue(key, value);
+        }
         return Boolean.parseBoolean(value);
     }
 
+    private <E extends Enum<E>> E getEnumProperty(Properties props, String key, E defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(defaultValue.getDeclaringClass(), value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw invalidValue(key, value);
+        }
+    }
+
+    private static IllegalArgumentException invalidValue(String key, String value) {
+        return new IllegalArgumentException("Invalid value for " + key + ": " + value);
+    }
+
     private List<String> getSeedUrls(Properties props) {
         List<String> urls = new ArrayList<>();
         if (props.containsKey(KEY_SEED_URLS)) {
@@ -150,7 +832,7 @@ public final class CrawlerConfig {
         return urls.isEmpty() ? getDefaultSeedUrls() : urls;
     }
 
-    private List<String> getDefaultSeedUrls() {
+    private static List<String> getDefaultSeedUrls() {
         List<String> defaultSeedUrls = new ArrayList<>();
 
        // defaultSeedUrls.add("https://www.bbc.com/news");
@@ -181,32 +863,117 @@ public final class CrawlerConfig {
         }
     }
 
-    public void loadDefaults() {
-        synchronized (this) {
-            this.maxThreads = DEFAULT_MAX_THREADS;
-            this.timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
-            this.maxDepth = DEFAULT_MAX_DEPTH;
-            this.politenessDelay = DEFAULT_POLITENESS_DELAY;
-            this.seedUrls.clear();
-            this.seedUrls.addAll(getDefaultSeedUrls());
-            this.outputFile = DEFAULT_OUTPUT_FILE;
-            this.maxRetries = DEFAULT_MAX_RETRIES;
-            this.respectRobotsTxt = DEFAULT_RESPECT_ROBOTS_TXT;
-            this.userAgent = DEFAULT_USER_AGENT;
-            this.minRelevanceScore = DEFAULT_MIN_RELEVANCE_SCORE;
+    private void validateSinkConfig(int sinkQueueCapacity, int sinkBatchSize, long sinkFlushIntervalMillis) {
+        if (sinkQueueCapacity <= 0) {
+            throw new IllegalArgumentException("sink_queue_capacity must be greater than 0");
         }
+        if (sinkBatchSize <= 0) {
+            throw new IllegalArgumentException("sink_batch_size must be greater than 0");
+        }
+        if (sinkFlushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("sink_flush_interval_ms must be greater than 0");
+        }
+    }
+
+    public void loadDefaults() {
+        publish(defaults());
         logger.info("Loaded default configuration");
     }
 
     // Getters
-    public int getMaxThreads() { return maxThreads; }
-    public long getTimeoutMillis() { return timeoutMillis; }
-    public int getMaxDepth() { return maxDepth; }
-    public long getPolitenessDelay() { return politenessDelay; }
-    public List<String> getSeedUrls() { return Collections.unmodifiableList(seedUrls); }
-    public String getOutputFile() { return outputFile; }
-    public int getMaxRetries() { return maxRetries; }
-    public boolean isRespectRobotsTxt() { return respectRobotsTxt; }
-    public String getUserAgent() { return userAgent; }
-    public double getMinRelevanceScore() { return minRelevanceScore; }
+    public int getMaxThreads() { return current.get().maxThreads(); }
+    public long getTimeoutMillis() { return current.get().timeoutMillis(); }
+    public int getMaxDepth() { return current.get().maxDepth(); }
+    public long getPolitenessDelay() { return current.get().politenessDelay(); }
+    public List<String> getSeedUrls() { return current.get().seedUrls(); }
+    public String getOutputFile() { return current.get().outputFile(); }
+    public int getMaxRetries() { return current.get().maxRetries(); }
+    public boolean isRespectRobotsTxt() { return current.get().respectRobotsTxt(); }
+    public String getUserAgent() { return current.get().userAgent(); }
+    public double getMinRelevanceScore() { return current.get().minRelevanceScore(); }
+    public int getSinkQueueCapacity() { return current.get().sinkQueueCapacity(); }
+    public int getSinkBatchSize() { return current.get().sinkBatchSize(); }
+    public long getSinkFlushIntervalMillis() { return current.get().sinkFlushIntervalMillis(); }
+    public NdjsonResultSink.FsyncPolicy getSinkFsyncPolicy() { return current.get().sinkFsyncPolicy(); }
+    public boolean isSinkCompactOnClose() { return current.get().sinkCompactOnClose(); }
+    public ExecutionMode getExecutionMode() { return current.get().executionMode(); }
+    public int getMaxInFlight() { return current.get().maxInFlight(); }
+    public int getMaxInFlightPerHost() { return current.get().maxInFlightPerHost(); }
+    public long getConnectTimeoutMillis() { return current.get().connectTimeoutMillis(); }
+    public long getReadTimeoutMillis() { return current.get().readTimeoutMillis(); }
+    public boolean isHttp2Enabled() { return current.get().http2Enabled(); }
+    public int getFetchExecutorThreads() { return current.get().fetchExecutorThreads(); }
+    public int getParseThreads() { return current.get().parseThreads(); }
+    public int getScoreThreads() { return current.get().scoreThreads(); }
+    public int getStageQueueCapacity() { return current.get().stageQueueCapacity(); }
+    public VisitedStore.Type getVisitedStore() { return current.get().visitedStore(); }
+    public long getVisitedExpectedUrls() { return current.get().visitedExpectedUrls(); }
+    public double getVisitedFalsePositiveRate() { return current.get().visitedFalsePositiveRate(); }
+    public boolean isFrontierPersistent() { return current.get().frontierPersistent(); }
+    public String getFrontierDir() { return current.get().frontierDir(); }
+    public int getFrontierSegmentBytes() { return current.get().frontierSegmentBytes(); }
+    public int getFrontierHeadCapacity() { return current.get().frontierHeadCapacity(); }
+    public long getCheckpointIntervalMillis() { return current.get().checkpointIntervalMillis(); }
+    public int getRobotsCacheSize() { return current.get().robotsCacheSize(); }
+    public long getRobotsTtlMillis() { return current.get().robotsTtlMillis(); }
+    public double getRelevanceTitleWeight() { return current.get().relevanceTitleWeight(); }
+    public double getRelevanceBodyWeight() { return current.get().relevanceBodyWeight(); }
+    public int getRelevanceLengthNormWords() { return current.get().relevanceLengthNormWords(); }
+    public int getMetricsPort() { return current.get().metricsPort(); }
+    public int getMetricsMaxHosts() { return current.get().metricsMaxHosts(); }
+    public FrontierType getFrontierType() { return current.get().frontierType(); }
+    public int getFrontierLocalCapacity() { return current.get().frontierLocalCapacity(); }
+    public String getClusterSelf() { return current.get().clusterSelf(); }
+    public String getClusterPeers() { return current.get().clusterPeers(); }
+    public int getClusterVirtualNodes() { return current.get().clusterVirtualNodes(); }
+    public int getClusterBatchSize() { return current.get().clusterBatchSize(); }
+    public long getClusterFlushIntervalMillis() { return current.get().clusterFlushIntervalMillis(); }
+    public int getClusterOutboundCapacity() { return current.get().clusterOutboundCapacity(); }
+    public boolean isAdaptiveRateEnabled() { return current.get().adaptiveRateEnabled(); }
+    public long getRateMinDelayMillis() { return current.get().rateMinDelayMillis(); }
+    public long getRateMaxDelayMillis() { return current.get().rateMaxDelayMillis(); }
+    public long getRateDelayStepMillis() { return current.get().rateDelayStepMillis(); }
+    public int getRateMinConcurrency() { return current.get().rateMinConcurrency(); }
+    public int getRateMaxConcurrency() { return current.get().rateMaxConcurrency(); }
+    public long getRateLatencyTargetMillis() { return current.get().rateLatencyTargetMillis(); }
+    public boolean isRecrawlEnabled() { return current.get().recrawlEnabled(); }
+    public String getMetadataFile() { return current.get().metadataFile(); }
+    public long getRecrawlMinIntervalMillis() { return current.get().recrawlMinIntervalMillis(); }
+    public long getRecrawlMaxIntervalMillis() { return current.get().recrawlMaxIntervalMillis(); }
+    public int getMaxBodyBytes() { return current.get().maxBodyBytes(); }
+    public long getBufferPoolBytes() { return current.get().bufferPoolBytes(); }
+    public boolean isNearDuplicateEnabled() { return current.get().nearDuplicateEnabled(); }
+    public int getNearDuplicateMaxDistance() { return current.get().nearDuplicateMaxDistance(); }
+    public int getNearDuplicateMinWords() { return current.get().nearDuplicateMinWords(); }
+    public NearDuplicateAction getNearDuplicateAction() { return current.get().nearDuplicateAction(); }
+    public SeedProvider.Type getSeedProvider() { return current.get().seedProvider(); }
+    public String getSeedFile() { return current.get().seedFile(); }
+    public String getSeedSearchUrl() { return current.get().seedSearchUrl(); }
+    public int getSeedMaxResults() { return current.get().seedMaxResults(); }
+    public String getSeedCacheDir() { return current.get().seedCacheDir(); }
+    public long getSeedCacheTtlMillis() { return current.get().seedCacheTtlMillis(); }
+    public int getSeedDailyQuota() { return current.get().seedDailyQuota(); }
+    public String getKeyword() { return current.get().keyword(); }
+    public long getShutdownDrainMillis() { return current.get().shutdownDrainMillis(); }
+    public long getStatsIntervalMillis() { return current.get().statsIntervalMillis(); }
+    public int getBestFirstCapacity() { return current.get().bestFirstCapacity(); }
+    public int getBestFirstHeadCapacity() { return current.get().bestFirstHeadCapacity(); }
+    public int getBestFirstHeadHostCapacity() { return current.get().bestFirstHeadHostCapacity(); }
+    public double getLinkAnchorWeight() { return current.get().linkAnchorWeight(); }
+    public double getLinkContextWeight() { return current.get().linkContextWeight(); }
+    public double getLinkParentWeight() { return current.get().linkParentWeight(); }
+    public double getLinkDepthDecay() { return current.get().linkDepthDecay(); }
+    public ResultFormat getResultFormat() { return current.get().resultFormat(); }
+    public String getArchiveFile() { return current.get().archiveFile(); }
+    public int getArchiveBlockRecords() { return current.get().archiveBlockRecords(); }
+    public int getArchiveCompressionLevel() { return current.get().archiveCompressionLevel(); }
+    public long getArchiveFlushIntervalMillis() { return current.get().archiveFlushIntervalMillis(); }
+    public boolean isDnsCacheEnabled() { return current.get().dnsCacheEnabled(); }
+    public int getDnsCacheSize() { return current.get().dnsCacheSize(); }
+    public long getDnsPositiveTtlMillis() { return current.get().dnsPositiveTtlMillis(); }
+    public long getDnsNegativeTtlMillis() { return current.get().dnsNegativeTtlMillis(); }
+    public int getDnsPrefetchThreads() { return current.get().dnsPrefetchThreads(); }
+    public String getDnsHostsFile() { return current.get().dnsHostsFile(); }
+    public boolean isConfigReloadEnabled() { return current.get().configReloadEnabled(); }
+    public String getMetricsFile() { return current.get().metricsFile(); }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package Crawler;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Strings in the binary files and frames, as an int byte count and UTF-8. DataOutput.writeUTF cannot be used for
+// URLs or headers because it fails on anything longer than 65,535 bytes.
+final class DataStrings {
+    private DataStrings() {
+    }
+
+    static void write(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String read(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,219 @@
+package Crawler;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+// FIFO frontier stored in append-only, memory-mapped segment files, so the number of pending URLs is bounded
+// by disk rather than heap. Each record is [payload length][depth][UTF-8 url]; a zero length marks the end of
+// the data written to a segment. Consumed segments are only deleted once a checkpoint has moved past them.
+public class DiskFrontier implements Frontier {
+    private static final Logger logger = Logger.getLogger(DiskFrontier.class.getName());
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    private long writeSegment;
+    private int writeOffset;
+    private MappedByteBuffer writeBuffer;
+    private long readSegment;
+    private int readOffset;
+    private MappedByteBuffer readBuffer;
+    private int size;
+
+    // Position of the next record to be read
+    public record Position(long segment, int offset) {
+    }
+
+    private DiskFrontier(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+    }
+
+    // Starts an empty frontier, discarding any segments left in the directory
+    public static DiskFrontier create(Path directory, int segmentBytes) throws IOException {
+        Files.createDirectories(directory);
+        deleteSegments(directory, Long.MAX_VALUE);
+
+        DiskFrontier frontier = new DiskFrontier(directory, segmentBytes);
+        frontier.writeSegment = 1;
+        frontier.writeBuffer = frontier.map(1);
+        frontier.readSegment = 1;
+        frontier.readBuffer = frontier.writeBuffer.duplicate();
+        return frontier;
+    }
+
+    // Reopens the segments written by an earlier run and continues reading from a checkpointed position
+    public static DiskFrontier resume(Path directory, int segmentBytes, Position from) throws IOException {
+        DiskFrontier frontier = new DiskFrontier(directory, segmentBytes);
+        frontier.readSegment = from.segment();
+        frontier.readOffset = from.offset();
+        frontier.readBuffer = frontier.map(from.segment());
+
+        // Walk forward to count pending records and find where writing left off
+        long segment = from.segment();
+        int offset = from.offset();
+        MappedByteBuffer buffer = frontier.readBuffer;
+        while (true) {
+            int length = offset + 4 <= segmentBytes ? buffer.getInt(offset) : 0;
+            if (length > 0) {
+                frontier.size++;
+                offset += RECORD_HEADER_BYTES + length;
+                continue;
+            }
+            if (!Files.exists(frontier.segmentPath(segment + 1))) {
+                break;
+            }
+            segment++;
+            offset = 0;
+            buffer = frontier.map(segment);
+        }
+        frontier.writeSegment = segment;
+        frontier.writeOffset = offset;
+        frontier.writeBuffer = buffer;
+        logger.info("Resumed disk frontier with " + frontier.size + " pending URLs");
+        return frontier;
+    }
+
+    @Override
+    public boolean offer(WorkerThread.UrlDepthPair pair) {
+        byte[] url = pair.url().getBytes(StandardCharsets.UTF_8);
+        int recordBytes = RECORD_HEADER_BYTES + url.length;
+        // Leave room for the terminating zero length
+        if (recordBytes + 4 > segmentBytes) {
+            return false;
+        }
+
+        lock.lock();
+        try {
+            if (writeOffset + recordBytes + 4 > segmentBytes) {
+                rollSegment();
+            }
+            writeBuffer.put(writeOffset + RECORD_HEADER_BYTES, url);
+            writeBuffer.putInt(writeOffset + 4, pair.depth());
+            // Length goes in last so a reader never sees a partially written record
+            writeBuffer.putInt(writeOffset, url.length);
+            writeOffset += recordBytes;
+            size++;
+            notEmpty.signal();
+            return true;
+        } catch (IOException e) {
+            logger.warning("Failed to append to disk frontier: " + e.getMessage());
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public WorkerThread.UrlDepthPair poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (size == 0) {
+                if (remaining <= 0) {
+                    return null;
+                }
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+
+            int length = readOffset + 4 <= segmentBytes ? readBuffer.getInt(readOffset) : 0;
+            if (length == 0) {
+                readSegment++;
+                readOffset = 0;
+                readBuffer = readSegment == writeSegment ? writeBuffer.duplicate() : map(readSegment);
+                length = readBuffer.getInt(0);
+            }
+
+            int depth = readBuffer.getInt(readOffset + 4);
+            byte[] url = new byte[length];
+            readBuffer.get(readOffset + RECORD_HEADER_BYTES, url);
+            readOffset += RECORD_HEADER_BYTES + length;
+            size--;
+            return new WorkerThread.UrlDepthPair(new String(url, StandardCharsets.UTF_8), depth);
+        } catch (IOException e) {
+            logger.warning("Failed to read from disk frontier: " + e.getMessage());
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Position position() {
+        lock.lock();
+        try {
+            return new Position(readSegment, readOffset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Flushes written records to the file system
+    public void force() {
+        lock.lock();
+        try {
+            writeBuffer.force();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Removes segments that a checkpoint no longer needs
+    public void releaseBefore(Position position) throws IOException {
+        deleteSegments(directory, position.segment());
+    }
+
+    private void rollSegment() throws IOException {
+        writeBuffer.force();
+        writeSegment++;
+        writeOffset = 0;
+        writeBuffer = map(writeSegment);
+    }
+
+    private MappedByteBuffer map(long segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private static void deleteSegments(Path directory, long belowSegment) throws IOException {
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : segments) {
+                String name = segment.getFileName().toString();
+                long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                if (id < belowSegment) {
+                    Files.delete(segment);
+                }
+            }
+        }
+    }
+}
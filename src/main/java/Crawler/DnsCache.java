@@ -0,0 +1,305 @@
+package Crawler;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.net.spi.InetAddressResolver;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+// Crawler-level DNS cache. Every host name lookup in the process, from the HttpClient or anything else, reaches it
+// through DnsResolverProvider. Answers are kept for dns_positive_ttl_ms, failures for dns_negative_ttl_ms, and the
+// least recently used host is evicted once dns_cache_size hosts are cached. Hosts are prefetched on a small pool
+// as they first enter the frontier, so by the time one of their URLs is fetched the address is normally known.
+// Concurrent lookups of the same host share one resolution. A fetch never waits behind the prefetch queue: a
+// prefetch that has not started yet is taken over and resolved by the fetching thread, and prefetches beyond
+// PREFETCH_QUEUE_CAPACITY are dropped.
+//
+// With dns_hosts_file set, names are resolved from that file (hosts format: address, then names) and nothing else,
+// so crawls against local stub servers need no network.
+public final class DnsCache {
+    private static final Logger logger = Logger.getLogger(DnsCache.class.getName());
+
+    private static volatile DnsCache instance;
+    // Set by DnsResolverProvider once the JVM has loaded it
+    private static volatile InetAddressResolver systemResolver;
+    // Lookups made from here must not come back through the provider into the cache
+    private static final ThreadLocal<Boolean> bypass = ThreadLocal.withInitial(() -> false);
+    private static final int PREFETCH_QUEUE_CAPACITY = 1024;
+
+    private final Map<String, Entry> entries;
+    private final Map<String, InetAddress[]> hostsFile;
+    private final long positiveTtlMillis;
+    private final long negativeTtlMillis;
+    private final ThreadPoolExecutor prefetcher;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder prefetches = new LongAdder();
+    private final LongAdder droppedPrefetches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LatencyHistogram lookupLatency = new LatencyHistogram();
+
+    // An entry whose lookup is still running never expires. started is claimed by whoever resolves it.
+    private record Entry(CompletableFuture<InetAddress[]> addresses, long expiresAt, AtomicBoolean started) {
+    }
+
+    DnsCache(int maxEntries, long positiveTtlMillis, long negativeTtlMillis, int prefetchThreads, Map<String, InetAddress[]> hostsFile) {
+        this.positiveTtlMillis = positiveTtlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.hostsFile = hostsFile;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        AtomicInteger threadCount = new AtomicInteger();
+        this.prefetcher = new ThreadPoolExecutor(prefetchThreads, prefetchThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(PREFETCH_QUEUE_CAPACITY), r -> {
+            Thread thread = new Thread(r, "dns-prefetch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        CrawlMetrics metrics = CrawlMetrics.getInstance();
+        metrics.registerCounter("crawler_dns_cache_hits_total", "Host lookups answered from the DNS cache or an in-flight lookup", hits::sum);
+        metrics.registerCounter("crawler_dns_cache_misses_total", "Host lookups that had to resolve the name", misses::sum);
+        metrics.registerGauge("crawler_dns_cache_hit_ratio", "Share of host lookups answered from the DNS cache", () -> {
+            long lookups = hits.sum() + misses.sum();
+            return lookups == 0 ? 0 : (double) hits.sum() / lookups;
+        });
+        metrics.registerCounter("crawler_dns_prefetches_total", "Hosts resolved ahead of their first fetch", prefetches::sum);
+        metrics.registerCounter("crawler_dns_prefetches_dropped_total", "Prefetches dropped because the prefetch queue was full",
+                droppedPrefetches::sum);
+        metrics.registerCounter("crawler_dns_failures_total", "Host names that could not be resolved", failures::sum);
+        metrics.registerGauge("crawler_dns_cache_entries", "Hosts in the DNS cache", this::size);
+        metrics.registerHistogram("crawler_dns_lookup_seconds", "Time spent resolving host names that were not cached", lookupLatency);
+    }
+
+    public static DnsCache getInstance() {
+        DnsCache cache = instance;
+        if (cache == null) {
+            synchronized (DnsCache.class) {
+                cache = instance;
+                if (cache == null) {
+                    CrawlerConfig config = CrawlerConfig.getInstance();
+                    Map<String, InetAddress[]> hostsFile = null;
+                    if (!config.getDnsHostsFile().isBlank()) {
+                        try {
+                            hostsFile = loadHostsFile(Path.of(config.getDnsHostsFile()));
+                        } catch (IOException e) {
+                            logger.warning("Could not read " + config.getDnsHostsFile() + "; no host names will resolve: " + e.getMessage());
+                            hostsFile = Map.of();
+                        }
+                    }
+                    cache = new DnsCache(config.getDnsCacheSize(), config.getDnsPositiveTtlMillis(), config.getDnsNegativeTtlMillis(),
+                            config.getDnsPrefetchThreads(), hostsFile);
+                    instance = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    // The JVM keeps its own cache in front of every resolver (30 seconds by default), which would override the TTLs
+    // here. Has to be called before the first lookup in the process.
+    static void disableJvmCache() {
+        Security.setProperty("networkaddress.cache.ttl", "0");
+        Security.setProperty("networkaddress.cache.negative.ttl", "0");
+    }
+
+    static void useSystemResolver(InetAddressResolver resolver) {
+        systemResolver = resolver;
+    }
+
+    static boolean isBypassed() {
+        return bypass.get();
+    }
+
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        String name = host.toLowerCase(Locale.ROOT);
+        CompletableFuture<InetAddress[]> addresses = lookup(name, false);
+        try {
+            return addresses.join().clone();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UnknownHostException unknown) {
+                throw new UnknownHostException(unknown.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    // Starts resolving the host in the background if it is not cached yet. Address literals need no lookup.
+    public void prefetch(String host) {
+        if (!isAddressLiteral(host)) {
+            lookup(host.toLowerCase(Locale.ROOT), true);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    long prefetches() {
+        return prefetches.sum();
+    }
+
+    private CompletableFuture<InetAddress[]> lookup(String name, boolean background) {
+        Entry cached;
+        Entry created = null;
+        synchronized (entries) {
+            cached = entries.get(name);
+            if (cached == null || cached.expiresAt() <= System.currentTimeMillis()) {
+                // Placeholder first so that concurrent callers wait on this lookup instead of starting their own
+                created = new Entry(new CompletableFuture<>(), Long.MAX_VALUE, new AtomicBoolean());
+                entries.put(name, created);
+            }
+        }
+        if (created == null) {
+            if (!background) {
+                // A prefetch still waiting for a pool thread is resolved here rather than waited for
+                if (cached.started().compareAndSet(false, true)) {
+                    misses.increment();
+                    resolveInto(name, cached.addresses());
+                } else {
+                    hits.increment();
+                }
+            }
+            return cached.addresses();
+        }
+        Entry entry = created;
+        if (background) {
+            try {
+                prefetcher.execute(() -> {
+                    if (entry.started().compareAndSet(false, true)) {
+                        prefetches.increment();
+                        resolveInto(name, entry.addresses());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // A fetch of the host resolves it itself; a later prefetch may try again
+                droppedPrefetches.increment();
+                forget(name, entry);
+            }
+        } else {
+            entry.started().set(true);
+            misses.increment();
+            resolveInto(name, entry.addresses());
+        }
+        return entry.addresses();
+    }
+
+    // Removes a placeholder nobody has started resolving; one that has been started is left to complete
+    private void forget(String name, Entry entry) {
+        synchronized (entries) {
+            if (entries.get(name) == entry && !entry.started().get()) {
+                entries.remove(name);
+            }
+        }
+    }
+
+    private void resolveInto(String name, CompletableFuture<InetAddress[]> addresses) {
+        long start = System.nanoTime();
+        try {
+            InetAddress[] resolved = resolveUncached(name);
+            addresses.complete(resolved);
+            expireAfter(name, addresses, positiveTtlMillis);
+        } catch (UnknownHostException e) {
+            failures.increment();
+            addresses.completeExceptionally(e);
+            expireAfter(name, addresses, negativeTtlMillis);
+        } catch (RuntimeException e) {
+            // Not worth remembering; the next lookup tries again
+            addresses.completeExceptionally(new UnknownHostException(name + ": " + e));
+            expireAfter(name, addresses, 0);
+        } finally {
+            lookupLatency.recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    private InetAddress[] resolveUncached(String name) throws UnknownHostException {
+        if (hostsFile != null) {
+            InetAddress[] addresses = hostsFile.get(name);
+            if (addresses == null) {
+                throw new UnknownHostException(name + ": not in dns_hosts_file");
+            }
+            return addresses;
+        }
+        InetAddressResolver resolver = systemResolver;
+        if (resolver != null) {
+            return resolver.lookupByName(name, DnsResolverProvider.ANY).toArray(InetAddress[]::new);
+        }
+        // The provider is not loaded yet (or at all); if this lookup loads it, it must not answer from the cache
+        bypass.set(true);
+        try {
+            return InetAddress.getAllByName(name);
+        } finally {
+            bypass.set(false);
+        }
+    }
+
+    private void expireAfter(String name, CompletableFuture<InetAddress[]> addresses, long ttlMillis) {
+        synchronized (entries) {
+            Entry entry = entries.get(name);
+            if (entry != null && entry.addresses() == addresses) {
+                entries.put(name, new Entry(addresses, System.currentTimeMillis() + ttlMillis, entry.started()));
+            }
+        }
+    }
+
+    private static boolean isAddressLiteral(String host) {
+        return host.startsWith("[") || host.matches("[0-9.]+|[0-9a-fA-F:.]*:[0-9a-fA-F:.]*");
+    }
+
+    // Lines of "address name [name...]"; # starts a comment
+    static Map<String, InetAddress[]> loadHostsFile(Path file) throws IOException {
+        Map<String, List<InetAddress>> names = new HashMap<>();
+        for (String line : Files.readAllLines(file)) {
+            int comment = line.indexOf('#');
+            String[] fields = (comment >= 0 ? line.substring(0, comment) : line).trim().split("\\s+");
+            if (fields.length < 2) {
+                continue;
+            }
+            // Only address literals, which InetAddress parses without a lookup
+            if (!isAddressLiteral(fields[0])) {
+                logger.warning("Skipping " + fields[0] + " in " + file + ": not an IP address");
+                continue;
+            }
+            for (int i = 1; i < fields.length; i++) {
+                String name = fields[i].toLowerCase(Locale.ROOT);
+                InetAddress address = InetAddress.getByAddress(name, InetAddress.getByName(fields[0]).getAddress());
+                names.computeIfAbsent(name, n -> new ArrayList<>()).add(address);
+            }
+        }
+        Map<String, InetAddress[]> hosts = new HashMap<>();
+        names.forEach((name, addresses) -> hosts.put(name, addresses.toArray(InetAddress[]::new)));
+        return hosts;
+    }
+}
@@ -0,0 +1,65 @@
+package Crawler;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.net.spi.InetAddressResolver;
+import java.net.spi.InetAddressResolverProvider;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static java.net.spi.InetAddressResolver.LookupPolicy.IPV4;
+import static java.net.spi.InetAddressResolver.LookupPolicy.IPV4_FIRST;
+import static java.net.spi.InetAddressResolver.LookupPolicy.IPV6;
+import static java.net.spi.InetAddressResolver.LookupPolicy.IPV6_FIRST;
+
+// Routes the JVM's host name lookups through DnsCache. Registered in META-INF/services, so the JDK loads it on the
+// first lookup in the process; with dns_cache_enabled=false every lookup goes straight to the built-in resolver.
+public class DnsResolverProvider extends InetAddressResolverProvider {
+    static final InetAddressResolver.LookupPolicy ANY = InetAddressResolver.LookupPolicy.of(IPV4 | IPV6);
+
+    @Override
+    public InetAddressResolver get(Configuration configuration) {
+        InetAddressResolver builtin = configuration.builtinResolver();
+        DnsCache.useSystemResolver(builtin);
+        return new InetAddressResolver() {
+            @Override
+            public Stream<InetAddress> lookupByName(String host, LookupPolicy lookupPolicy) throws UnknownHostException {
+                if (DnsCache.isBypassed() || !CrawlerConfig.getInstance().isDnsCacheEnabled()) {
+                    return builtin.lookupByName(host, lookupPolicy);
+                }
+                return select(DnsCache.getInstance().resolve(host), host, lookupPolicy);
+            }
+
+            @Override
+            public String lookupByAddress(byte[] address) throws UnknownHostException {
+                return builtin.lookupByAddress(address);
+            }
+        };
+    }
+
+    @Override
+    public String name() {
+        return "crawler-dns-cache";
+    }
+
+    // The cache holds every address of a host; callers may want only one family, or one family first
+    private static Stream<InetAddress> select(InetAddress[] addresses, String host, InetAddressResolver.LookupPolicy lookupPolicy)
+            throws UnknownHostException {
+        int characteristics = lookupPolicy.characteristics();
+        InetAddress[] selected = Arrays.stream(addresses)
+                .filter(address -> address instanceof Inet4Address ? (characteristics & IPV4) != 0 : (characteristics & IPV6) != 0)
+                .toArray(InetAddress[]::new);
+        if (selected.length == 0) {
+            throw new UnknownHostException(host + ": no addresses of the requested family");
+        }
+        if ((characteristics & IPV4_FIRST) != 0) {
+            Arrays.sort(selected, Comparator.comparing(address -> !(address instanceof Inet4Address)));
+        } else if ((characteristics & IPV6_FIRST) != 0) {
+            Arrays.sort(selected, Comparator.comparing(address -> !(address instanceof Inet6Address)));
+        }
+        return Arrays.stream(selected);
+    }
+}
@@ -0,0 +1,34 @@
+package Crawler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Seeds read from a local file, one URL per line. Blank lines and lines starting with # are skipped. The query
+// is ignored, so the same file seeds every keyword.
+public class FileSeedProvider implements SeedProvider {
+    private final Path file;
+
+    public FileSeedProvider(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public List<String> seeds(String query, int maxResults) throws IOException {
+        List<String> seeds = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String url = line.trim();
+            if (url.isEmpty() || url.startsWith("#")) {
+                continue;
+            }
+            seeds.add(url);
+            if (seeds.size() == maxResults) {
+                break;
+            }
+        }
+        return seeds;
+    }
+}
@@ -0,0 +1,225 @@
+package Crawler;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+// Stores 64-bit URL fingerprints in open-addressing tables of primitive longs, split into independently locked
+// segments. The tables live either on the heap or in direct memory, where they add nothing to GC work.
+public class FingerprintVisitedStore implements VisitedStore {
+    private static final int SEGMENT_COUNT = 64;
+    private static final double MAX_LOAD_FACTOR = 0.6;
+    private static final int MIN_SEGMENT_CAPACITY = 1024;
+
+    // 0 marks an empty slot, so a fingerprint of 0 is stored as 1
+    private static final long EMPTY = 0L;
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    private final boolean offHeap;
+
+    public FingerprintVisitedStore(long expectedUrls, boolean offHeap) {
+        this.offHeap = offHeap;
+        long perSegment = (long) (expectedUrls / SEGMENT_COUNT / MAX_LOAD_FACTOR) + 1;
+        int capacity = Integer.highestOneBit((int) Math.min(1 << 26, Math.max(MIN_SEGMENT_CAPACITY, perSegment)) * 2 - 1);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(newTable(capacity));
+        }
+    }
+
+    @Override
+    public boolean add(String url) {
+        return addFingerprint(UrlFingerprint.of(url));
+    }
+
+    @Override
+    public boolean contains(String url) {
+        return containsFingerprint(UrlFingerprint.of(url));
+    }
+
+    public boolean addFingerprint(long fingerprint) {
+        fingerprint = fingerprint == EMPTY ? 1 : fingerprint;
+        return segmentFor(fingerprint).add(fingerprint);
+    }
+
+    public boolean containsFingerprint(long fingerprint) {
+        fingerprint = fingerprint == EMPTY ? 1 : fingerprint;
+        return segmentFor(fingerprint).contains(fingerprint);
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Override
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.capacity() * (long) Long.BYTES;
+        }
+        return bytes;
+    }
+
+    @Override
+    public void save(DataOutputStream out) throws IOException {
+        for (Segment segment : segments) {
+            segment.save(out);
+        }
+    }
+
+    @Override
+    public void load(DataInputStream in) throws IOException {
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            int count = in.readInt();
+            for (int j = 0; j < count; j++) {
+                addFingerprint(in.readLong());
+            }
+        }
+    }
+
+    private Segment segmentFor(long fingerprint) {
+        // High bits pick the segment, low bits pick the slot inside it
+        return segments[(int) (fingerprint >>> 58) & (SEGMENT_COUNT - 1)];
+    }
+
+    private Table newTable(int capacity) {
+        return offHeap ? new DirectTable(capacity) : new HeapTable(capacity);
+    }
+
+    private final class Segment {
+        private Table table;
+        private int size;
+
+        private Segment(Table table) {
+            this.table = table;
+        }
+
+        synchronized boolean add(long fingerprint) {
+            if (!insert(table, fingerprint)) {
+                return false;
+            }
+            if (++size > table.capacity() * MAX_LOAD_FACTOR) {
+                resize();
+            }
+            return true;
+        }
+
+        synchronized boolean contains(long fingerprint) {
+            int mask = table.capacity() - 1;
+            for (int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+                long slot = table.get(i);
+                if (slot == EMPTY) {
+                    return false;
+                }
+                if (slot == fingerprint) {
+                    return true;
+                }
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized int capacity() {
+            return table.capacity();
+        }
+
+        synchronized void save(DataOutputStream out) throws IOException {
+            out.writeInt(size);
+            for (int i = 0; i < table.capacity(); i++) {
+                long slot = table.get(i);
+                if (slot != EMPTY) {
+                    out.writeLong(slot);
+                }
+            }
+        }
+
+        private void resize() {
+            Table larger = newTable(table.capacity() * 2);
+            for (int i = 0; i < table.capacity(); i++) {
+                long slot = table.get(i);
+                if (slot != EMPTY) {
+                    insert(larger, slot);
+                }
+            }
+            table = larger;
+        }
+
+        private static boolean insert(Table table, long fingerprint) {
+            int mask = table.capacity() - 1;
+            for (int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+                long slot = table.get(i);
+                if (slot == EMPTY) {
+                    table.set(i, fingerprint);
+                    return true;
+                }
+                if (slot == fingerprint) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private interface Table {
+        long get(int index);
+
+        void set(int index, long value);
+
+        int capacity();
+    }
+
+    private static final class HeapTable implements Table {
+        private final long[] slots;
+
+        private HeapTable(int capacity) {
+            this.slots = new long[capacity];
+        }
+
+        @Override
+        public long get(int index) {
+            return slots[index];
+        }
+
+        @Override
+        public void set(int index, long value) {
+            slots[index] = value;
+        }
+
+        @Override
+        public int capacity() {
+            return slots.length;
+        }
+    }
+
+    private static final class DirectTable implements Table {
+        private final LongBuffer slots;
+        private final int capacity;
+
+        private DirectTable(int capacity) {
+            this.slots = ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+            this.capacity = capacity;
+        }
+
+        @Override
+        public long get(int index) {
+            return slots.get(index);
+        }
+
+        @Override
+        public void set(int index, long value) {
+            slots.put(index, value);
+        }
+
+        @Override
+        public int capacity() {
+            return capacity;
+        }
+    }
+}
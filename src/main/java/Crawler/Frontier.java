@@ -0,0 +1,34 @@
+package Crawler;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Pending URLs waiting to be crawled. Implementations decide the order in which workers receive them.
+public interface Frontier {
+
+    boolean offer(WorkerThread.UrlDepthPair pair);
+
+    // Offers several URLs at once, such as all the links of one page. Returns how many were accepted.
+    default int offerAll(List<WorkerThread.UrlDepthPair> pairs) {
+        int accepted = 0;
+        for (WorkerThread.UrlDepthPair pair : pairs) {
+            if (offer(pair)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    // Waits up to the timeout for a URL that may be crawled right away, returning null if none became available.
+    WorkerThread.UrlDepthPair poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+    int size();
+
+    // Called by a thread that will not poll again, so URLs the frontier set aside for it go back to the others
+    default void release() {
+    }
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+}
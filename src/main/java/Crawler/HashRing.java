@@ -0,0 +1,66 @@
+package Crawler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Immutable consistent-hash ring of cluster members. Each member is placed at several virtual points so hosts
+// spread evenly, and adding a member only moves the hosts that now fall just before its points.
+public final class HashRing {
+    private final Set<String> members;
+    private final int virtualNodes;
+    private final long[] points;
+    private final String[] owners;
+
+    public HashRing(Set<String> members, int virtualNodes) {
+        this.members = Collections.unmodifiableSet(new TreeSet<>(members));
+        this.virtualNodes = virtualNodes;
+
+        List<Point> placed = new ArrayList<>(members.size() * virtualNodes);
+        for (String member : this.members) {
+            for (int i = 0; i < virtualNodes; i++) {
+                placed.add(new Point(UrlFingerprint.of(member + "#" + i), member));
+            }
+        }
+        // Ties are broken by member name so every node builds the same ring
+        placed.sort(Comparator.comparingLong(Point::hash).thenComparing(Point::member));
+        this.points = new long[placed.size()];
+        this.owners = new String[placed.size()];
+        for (int i = 0; i < placed.size(); i++) {
+            points[i] = placed.get(i).hash();
+            owners[i] = placed.get(i).member();
+        }
+    }
+
+    private record Point(long hash, String member) {
+    }
+
+    public HashRing withMember(String member) {
+        if (members.contains(member)) {
+            return this;
+        }
+        Set<String> updated = new TreeSet<>(members);
+        updated.add(member);
+        return new HashRing(updated, virtualNodes);
+    }
+
+    // The first member point at or after the host's hash, wrapping around the ring
+    public String ownerOf(String host) {
+        if (points.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(points, UrlFingerprint.of(host));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public Set<String> getMembers() {
+        return members;
+    }
+}
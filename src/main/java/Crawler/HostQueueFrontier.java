@@ -0,0 +1,264 @@
+package Crawler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Politeness-aware frontier. URLs are kept in one sub-queue per host, and each host with pending work sits in a
+// delay queue keyed by the time it may next be contacted. Workers only ever receive URLs whose host is ready,
+// so nobody sleeps waiting on a busy host while other hosts have work.
+//
+// With a backlog, new URLs go to the backlog first and only up to maxBuffered of them are pulled into the host
+// queues, which then act as a small in-heap head over a larger (for example disk-backed) frontier. A host can be
+// given at most maxBufferedPerHost of those places; URLs beyond that wait in the host's own deferred queue, up to
+// maxDeferred in total, so one host with many URLs at the front of the backlog cannot crowd out every other host.
+public class HostQueueFrontier implements Frontier {
+    // How often idle hosts are swept out of the host map
+    private static final int PRUNE_INTERVAL = 4096;
+    private static final long EMPTY_RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final Map<String, HostQueue> hosts = new HashMap<>();
+    private final DelayQueue<HostQueue> readyHosts = new DelayQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Frontier backlog;
+    private final int maxBuffered;
+    private final int maxBufferedPerHost;
+    private final int maxDeferred;
+    private int size;
+    private int deferred;
+    private int pollsSincePrune;
+
+    public HostQueueFrontier() {
+        this(null, Integer.MAX_VALUE);
+    }
+
+    public HostQueueFrontier(Frontier backlog, int maxBuffered) {
+        this(backlog, maxBuffered, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    public HostQueueFrontier(Frontier backlog, int maxBuffered, int maxBufferedPerHost, int maxDeferred) {
+        this.backlog = backlog;
+        this.maxBuffered = maxBuffered;
+        this.maxBufferedPerHost = maxBufferedPerHost;
+        this.maxDeferred = maxDeferred;
+    }
+
+    @Override
+    public boolean offer(WorkerThread.UrlDepthPair pair) {
+        if (backlog != null) {
+            boolean accepted = backlog.offer(pair);
+            refill();
+            return accepted;
+        }
+
+        String host = URLManager.getHost(pair.url());
+        if (host == null) {
+            return false;
+        }
+
+        lock.lock();
+        try {
+            enqueue(host, pair);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int offerAll(List<WorkerThread.UrlDepthPair> pairs) {
+        if (backlog == null) {
+            return Frontier.super.offerAll(pairs);
+        }
+        int accepted = backlog.offerAll(pairs);
+        refill();
+        return accepted;
+    }
+
+    @Override
+    public WorkerThread.UrlDepthPair poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        refill();
+
+        // Politeness wait is only the time some host had URLs queued but was not eligible yet. Time with nothing
+        // queued at all is starvation, and is looked at again every EMPTY_RECHECK_NANOS in case a host arrives.
+        long politenessNanos = 0;
+        HostQueue hostQueue;
+        while (true) {
+            long waitStart = System.nanoTime();
+            long remaining = deadline - waitStart;
+            boolean held = readyHosts.peek() != null;
+            hostQueue = readyHosts.poll(held ? remaining : Math.min(remaining, EMPTY_RECHECK_NANOS), TimeUnit.NANOSECONDS);
+            if (held) {
+                politenessNanos += System.nanoTime() - waitStart;
+            }
+            if (hostQueue == null) {
+                if (deadline - System.nanoTime() > 0) {
+                    continue;
+                }
+                return null;
+            }
+            // The host's delay has passed but the rate controller may still hold it back
+            long holdMillis = HostRateController.getInstance().getWaitMillis(hostQueue.host);
+            if (holdMillis == 0) {
+                break;
+            }
+            lock.lock();
+            try {
+                hostQueue.nextEligibleNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(holdMillis);
+                readyHosts.add(hostQueue);
+            } finally {
+                lock.unlock();
+            }
+        }
+        CrawlMetrics.getInstance().recordPolitenessWait(politenessNanos);
+
+        lock.lock();
+        try {
+            WorkerThread.UrlDepthPair pair = hostQueue.urls.poll();
+            size--;
+            if (!hostQueue.deferred.isEmpty()) {
+                hostQueue.urls.add(hostQueue.deferred.poll());
+                deferred--;
+                size++;
+            }
+            hostQueue.nextEligibleNanos = System.nanoTime()
+                    + TimeUnit.MILLISECONDS.toNanos(URLManager.getPolitenessDelay(hostQueue.host));
+            if (hostQueue.urls.isEmpty()) {
+                hostQueue.scheduled = false;
+            } else {
+                readyHosts.add(hostQueue);
+            }
+
+            if (++pollsSincePrune >= PRUNE_INTERVAL) {
+                pruneIdleHosts();
+                pollsSincePrune = 0;
+            }
+            return pair;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return backlog == null ? size : size + deferred + backlog.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns the buffered URLs. The callback runs under the same lock that guards refills,
+    // so state it captures from the backlog is consistent with the returned list.
+    public List<WorkerThread.UrlDepthPair> snapshot(Runnable whileLocked) {
+        lock.lock();
+        try {
+            whileLocked.run();
+            List<WorkerThread.UrlDepthPair> buffered = new ArrayList<>(size + deferred);
+            for (HostQueue hostQueue : hosts.values()) {
+                buffered.addAll(hostQueue.urls);
+                buffered.addAll(hostQueue.deferred);
+            }
+            return buffered;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Moves URLs from the backlog into the host queues until the buffer is full or the backlog is empty. URLs for
+    // hosts that already have their share are deferred, so the scan carries on to the hosts behind them.
+    private void refill() {
+        if (backlog == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (size < maxBuffered && deferred < maxDeferred) {
+                WorkerThread.UrlDepthPair pair = backlog.poll(0, TimeUnit.MILLISECONDS);
+                if (pair == null) {
+                    return;
+                }
+                String host = URLManager.getHost(pair.url());
+                if (host != null) {
+                    enqueue(host, pair);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(String host, WorkerThread.UrlDepthPair pair) {
+        HostQueue hostQueue = hosts.get(host);
+        if (hostQueue == null) {
+            hostQueue = new HostQueue(host);
+            hosts.put(host, hostQueue);
+            URLManager.prefetchHost(pair.url());
+        }
+        if (hostQueue.urls.size() >= maxBufferedPerHost) {
+            hostQueue.deferred.add(pair);
+            deferred++;
+            return;
+        }
+        hostQueue.urls.add(pair);
+        size++;
+        if (!hostQueue.scheduled) {
+            hostQueue.scheduled = true;
+            readyHosts.add(hostQueue);
+        }
+    }
+
+    public int getHostCount() {
+        lock.lock();
+        try {
+            return hosts.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Hosts with nothing pending whose delay has passed behave exactly like unseen hosts, so they can be dropped
+    private void pruneIdleHosts() {
+        long now = System.nanoTime();
+        Iterator<HostQueue> it = hosts.values().iterator();
+        while (it.hasNext()) {
+            HostQueue hostQueue = it.next();
+            if (!hostQueue.scheduled && hostQueue.nextEligibleNanos - now <= 0) {
+                it.remove();
+            }
+        }
+    }
+
+    private static final class HostQueue implements Delayed {
+        private final String host;
+        private final ArrayDeque<WorkerThread.UrlDepthPair> urls = new ArrayDeque<>();
+        private final ArrayDeque<WorkerThread.UrlDepthPair> deferred = new ArrayDeque<>();
+        private long nextEligibleNanos = System.nanoTime();
+        private boolean scheduled;
+
+        private HostQueue(String host) {
+            this.host = host;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(nextEligibleNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(nextEligibleNanos, ((HostQueue) other).nextEligibleNanos);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package Crawler;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+// Per-host AIMD rate control. Every host starts at the configured politeness delay and a concurrency of
+// rate_min_concurrency. Each window of fast, successful responses adds one concurrent request and takes
+// rate_delay_step_ms off the delay. A 429, 503, timeout or slow response halves the concurrency and doubles
+// the delay, at most once per cool-down so a burst of failures from requests already in flight counts once.
+// Retry-After blocks the host until the time the server asked for.
+public final class HostRateController {
+    private static final Logger logger = Logger.getLogger(HostRateController.class.getName());
+    private static volatile HostRateController instance;
+
+    // How often a host at its concurrency limit is looked at again by the frontier
+    private static final long CAPACITY_RECHECK_MILLIS = 50;
+    private static final long MIN_COOLDOWN_MILLIS = 1000;
+    private static final long MAX_RETRY_AFTER_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int PRUNE_THRESHOLD = 65536;
+    private static final long IDLE_PRUNE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final boolean enabled;
+    // Changed while crawling when politeness_delay is reloaded
+    private volatile long politenessDelayMillis;
+    private volatile long initialDelayMillis;
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+    private final long delayStepMillis;
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final long latencyTargetNanos;
+    private final ConcurrentMap<String, HostRate> hosts = new ConcurrentHashMap<>();
+    private final LongAdder backoffs = new LongAdder();
+
+    HostRateController(boolean enabled, long initialDelayMillis, long minDelayMillis, long maxDelayMillis,
+                       long delayStepMillis, int minConcurrency, int maxConcurrency, long latencyTargetMillis) {
+        this.enabled = enabled;
+        this.minDelayMillis = minDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        setPolitenessDelay(initialDelayMillis);
+        this.delayStepMillis = delayStepMillis;
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(latencyTargetMillis);
+
+        CrawlMetrics metrics = CrawlMetrics.getInstance();
+        metrics.registerCounter("crawler_host_backoffs_total", "Times a host's rate was cut after overload signals", backoffs::sum);
+        metrics.registerGauge("crawler_rate_controlled_hosts", "Hosts with adaptive rate state", hosts::size);
+    }
+
+    public static HostRateController getInstance() {
+        HostRateController controller = instance;
+        if (controller == null) {
+            synchronized (HostRateController.class) {
+                controller = instance;
+                if (controller == null) {
+                    CrawlerConfig config = CrawlerConfig.getInstance();
+                    controller = new HostRateController(config.isAdaptiveRateEnabled(), config.getPolitenessDelay(),
+                            config.getRateMinDelayMillis(), config.getRateMaxDelayMillis(), config.getRateDelayStepMillis(),
+                            config.getRateMinConcurrency(), config.getRateMaxConcurrency(), config.getRateLatencyTargetMillis());
+                    instance = controller;
+                }
+            }
+        }
+        return controller;
+    }
+
+    // Hosts seen so far start over from the new delay instead of their adapted one
+    public void setPolitenessDelay(long delayMillis) {
+        politenessDelayMillis = delayMillis;
+        initialDelayMillis = Math.min(Math.max(delayMillis, minDelayMillis), maxDelayMillis);
+        hosts.values().forEach(rate -> rate.resetDelay(initialDelayMillis));
+    }
+
+    // Current minimum time between two requests to the host
+    public long getDelayMillis(String host) {
+        if (!enabled) {
+            return politenessDelayMillis;
+        }
+        HostRate rate = hosts.get(host);
+        return rate == null ? initialDelayMillis : rate.delayMillis();
+    }
+
+    // 0 if a request to the host may start now, otherwise how long the frontier should hold the host back
+    public long getWaitMillis(String host) {
+        if (!enabled) {
+            return 0;
+        }
+        HostRate rate = hosts.get(host);
+        return rate == null ? 0 : rate.waitMillis(System.currentTimeMillis());
+    }
+
+    // Waits until the host is below its concurrency limit and not paused by Retry-After. The frontier already
+    // holds such hosts back, so this only blocks when several threads were handed the same host at once.
+    public void acquire(String host) throws InterruptedException {
+        if (enabled && host != null) {
+            rateOf(host).acquire();
+        }
+    }
+
+    // status is 0 when the request failed without a response; retryAfter is the raw header value or null
+    public void onRequestComplete(String host, int status, long latencyNanos, String retryAfter) {
+        if (!enabled || host == null) {
+            return;
+        }
+        HostRate rate = rateOf(host);
+        long now = System.currentTimeMillis();
+        boolean overloaded = status == 0 || status == 429 || status == 503;
+        long retryAfterMillis = overloaded ? parseRetryAfter(retryAfter, now) : 0;
+        if (rate.completed(now, overloaded || latencyNanos > latencyTargetNanos, retryAfterMillis)) {
+            backoffs.increment();
+            logger.fine("Slowing down " + host + " after HTTP " + status + ": " + rate);
+        }
+    }
+
+    // Gives back the slot taken by acquire for a request that never reached the host
+    public void release(String host) {
+        if (!enabled || host == null) {
+            return;
+        }
+        HostRate rate = hosts.get(host);
+        if (rate != null) {
+            rate.released(System.currentTimeMillis());
+        }
+    }
+
+    private HostRate rateOf(String host) {
+        HostRate rate = hosts.get(host);
+        if (rate == null) {
+            if (hosts.size() > PRUNE_THRESHOLD) {
+                prune();
+            }
+            rate = hosts.computeIfAbsent(host, h -> new HostRate());
+        }
+        return rate;
+    }
+
+    // Hosts that have been idle for a while start over from the defaults, which is what dropping them does
+    private void prune() {
+        long cutoff = System.currentTimeMillis() - IDLE_PRUNE_MILLIS;
+        hosts.values().removeIf(rate -> rate.isIdleSince(cutoff));
+    }
+
+    // Retry-After is either delta-seconds or an HTTP date
+    static long parseRetryAfter(String value, long now) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        String trimmed = value.trim();
+        try {
+            return Math.min(Math.max(0, Long.parseLong(trimmed) * 1000), MAX_RETRY_AFTER_MILLIS);
+        } catch (NumberFormatException e) {
+            try {
+                long until = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+                return Math.min(Math.max(0, until - now), MAX_RETRY_AFTER_MILLIS);
+            } catch (DateTimeParseException ignored) {
+                return 0;
+            }
+        }
+    }
+
+    // A lock rather than a monitor: acquire waits on the fetch path, and a virtual thread waiting in a
+    // synchronized method pins its carrier
+    private final class HostRate {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition slotFreed = lock.newCondition();
+        private long delayMillis = initialDelayMillis;
+        private int concurrency = minConcurrency;
+        private int inFlight;
+        private int successesInWindow;
+        private long blockedUntilMillis;
+        private long lastDecreaseMillis;
+        private long lastActivityMillis = System.currentTimeMillis();
+
+        private long delayMillis() {
+            lock.lock();
+            try {
+                return delayMillis;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void resetDelay(long delayMillis) {
+            lock.lock();
+            try {
+                this.delayMillis = delayMillis;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private long waitMillis(long now) {
+            lock.lock();
+            try {
+                if (blockedUntilMillis > now) {
+                    return blockedUntilMillis - now;
+                }
+                return inFlight >= concurrency ? CAPACITY_RECHECK_MILLIS : 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void acquire() throws InterruptedException {
+            lock.lock();
+            try {
+                long wait;
+                while ((wait = waitMillis(System.currentTimeMillis())) > 0) {
+                    slotFreed.await(wait, TimeUnit.MILLISECONDS);
+                }
+                inFlight++;
+                lastActivityMillis = System.currentTimeMillis();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void released(long now) {
+            lock.lock();
+            try {
+                inFlight = Math.max(0, inFlight - 1);
+                lastActivityMillis = now;
+                slotFreed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Returns true if this completion cut the rate
+        private boolean completed(long now, boolean congested, long retryAfterMillis) {
+            lock.lock();
+            try {
+                inFlight = Math.max(0, inFlight - 1);
+                lastActivityMillis = now;
+                slotFreed.signalAll();
+                if (retryAfterMillis > 0) {
+                    blockedUntilMillis = Math.max(blockedUntilMillis, now + retryAfterMillis);
+                }
+
+                if (!congested) {
+                    if (++successesInWindow >= concurrency) {
+                        successesInWindow = 0;
+                        concurrency = Math.min(maxConcurrency, concurrency + 1);
+                        delayMillis = Math.max(minDelayMillis, delayMillis - delayStepMillis);
+                    }
+                    return false;
+                }
+
+                successesInWindow = 0;
+                if (now - lastDecreaseMillis < Math.max(MIN_COOLDOWN_MILLIS, delayMillis)) {
+                    return false;
+                }
+                lastDecreaseMillis = now;
+                concurrency = Math.max(minConcurrency, concurrency / 2);
+                delayMillis = Math.min(maxDelayMillis, Math.max(minDelayMillis, Math.max(delayStepMillis, delayMillis * 2)));
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public String toString() {
+            lock.lock();
+            try {
+                return "delay " + delayMillis + " ms, concurrency " + concurrency;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean isIdleSince(long cutoff) {
+            lock.lock();
+            try {
+                return inFlight == 0 && blockedUntilMillis < cutoff && lastActivityMillis < cutoff;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package Crawler;
+
+import org.jsoup.internal.StringUtil;
+import org.jsoup.parser.Parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Single forward pass over an HTML stream that pulls out what the crawler needs: the title, the visible text
+// with whitespace collapsed, and the absolute URL of every link, handed out as it is found. No document tree is
+// built, so memory is the extracted text plus a small read buffer, whatever the markup looks like. Entities are
+// decoded with jsoup's tables, and links resolve the way Element.absUrl does, honouring <base href>.
+public final class HtmlExtractor {
+    private static final int READ_BUFFER_CHARS = 8192;
+    // Text kept on each side of a link as its context, and the most anchor text kept
+    private static final int CONTEXT_CHARS = 100;
+    private static final int MAX_ANCHOR_CHARS = 200;
+    private static final Set<String> RAW_TEXT_TAGS = Set.of("script", "style", "noscript", "template", "textarea", "xmp");
+    // Tags that separate words in the extracted text, as they would on screen
+    private static final Set<String> BLOCK_TAGS = Set.of(
+            "address", "article", "aside", "blockquote", "body", "br", "dd", "div", "dl", "dt", "fieldset", "figcaption",
+            "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "head", "header", "hr", "html", "li", "main",
+            "nav", "ol", "option", "p", "pre", "section", "table", "td", "th", "tr", "ul");
+
+    // links is only filled by extractWithAnchors
+    public record Extracted(String title, String text, List<Link> links) {
+    }
+
+    public record Link(String url, String anchorText, String context) {
+    }
+
+    private final Reader in;
+    private final char[] buffer = new char[READ_BUFFER_CHARS];
+    private int position;
+    private int limit;
+
+    private String baseUrl;
+    private boolean baseSet;
+    private String title;
+    private final StringBuilder text = new StringBuilder();
+    private final StringBuilder segment = new StringBuilder();
+    private final StringBuilder scratch = new StringBuilder();
+    // Links with the offsets of their anchor text in text, when anchors are collected
+    private final List<String> anchorUrls;
+    private final List<int[]> anchorSpans;
+    private int[] openAnchor;
+
+    private HtmlExtractor(Reader in, String baseUrl, boolean collectAnchors) {
+        this.in = in;
+        this.baseUrl = baseUrl;
+        this.anchorUrls = collectAnchors ? new ArrayList<>() : null;
+        this.anchorSpans = collectAnchors ? new ArrayList<>() : null;
+    }
+
+    // Links are passed to the consumer in document order; pass null to skip link extraction
+    public static Extracted extract(Reader in, String baseUrl, Consumer<String> links) throws IOException {
+        return new HtmlExtractor(in, baseUrl, false).run(links);
+    }
+
+    // Returns the links along with their anchor text and the text around them, for ranking them before they are
+    // fetched. The context is only complete once the page has been read, so links come back at the end.
+    public static Extracted extractWithAnchors(Reader in, String baseUrl) throws IOException {
+        HtmlExtractor extractor = new HtmlExtractor(in, baseUrl, true);
+        return extractor.run(extractor::addAnchor);
+    }
+
+    private Extracted run(Consumer<String> links) throws IOException {
+        if (peek() == '\uFEFF') {
+            read();
+        }
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '<' && isMarkupStart(peek())) {
+                flushText();
+                markup(links);
+            } else {
+                segment.append((char) c);
+            }
+        }
+        flushText();
+        closeAnchor();
+        int end = text.length();
+        if (end > 0 && text.charAt(end - 1) == ' ') {
+            text.setLength(end - 1);
+        }
+        String extractedText = text.toString();
+        return new Extracted(title == null ? "" : title, extractedText, anchorUrls == null ? List.of() : links(extractedText));
+    }
+
+    private void addAnchor(String url) {
+        closeAnchor();
+        openAnchor = new int[] {text.length(), text.length()};
+        anchorUrls.add(url);
+        anchorSpans.add(openAnchor);
+    }
+
+    private void closeAnchor() {
+        if (openAnchor != null) {
+            openAnchor[1] = text.length();
+            openAnchor = null;
+        }
+    }
+
+    private List<Link> links(String extractedText) {
+        List<Link> links = new ArrayList<>(anchorUrls.size());
+        int length = extractedText.length();
+        for (int i = 0; i < anchorUrls.size(); i++) {
+            int start = Math.min(anchorSpans.get(i)[0], length);
+            int end = Math.min(anchorSpans.get(i)[1], length);
+            String anchor = extractedText.substring(start, Math.min(end, start + MAX_ANCHOR_CHARS)).trim();
+            String context = extractedText.substring(Math.max(0, start - CONTEXT_CHARS), start)
+                    + " " + extractedText.substring(end, Math.min(length, end + CONTEXT_CHARS));
+            links.add(new Link(anchorUrls.get(i), anchor, context));
+        }
+        return links;
+    }
+
+    private static boolean isMarkupStart(int c) {
+        return c == '!' || c == '/' || c == '?' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private void markup(Consumer<String> links) throws IOException {
+        int c = read();
+        if (c == '!') {
+            if (peek() == '-') {
+                read();
+                if (peek() == '-') {
+                    read();
+                    skipPast("-->");
+                    return;
+                }
+            }
+            skipPast(">");
+        } else if (c == '?') {
+            skipPast(">");
+        } else if (c == '/') {
+            String name = readName(read());
+            skipPast(">");
+            if (anchorUrls != null && name.equals("a")) {
+                closeAnchor();
+            }
+            if (BLOCK_TAGS.contains(name)) {
+                space();
+            }
+        } else {
+            startTag(readName(c), links);
+        }
+    }
+
+    private void startTag(String name, Consumer<String> links) throws IOException {
+        boolean wantHref = (links != null && (name.equals("a") || name.equals("area"))) || (name.equals("base") && !baseSet);
+        String href = attributes(wantHref ? "href" : null);
+
+        if (href != null && !href.isBlank()) {
+            if (name.equals("base")) {
+                String resolved = StringUtil.resolve(baseUrl, href.trim());
+                if (!resolved.isEmpty()) {
+                    baseUrl = resolved;
+                }
+                baseSet = true;
+            } else {
+                String resolved = StringUtil.resolve(baseUrl, href.trim());
+                if (!resolved.isEmpty()) {
+                    links.accept(resolved);
+                    // An area has no content to serve as anchor text
+                    if (name.equals("area")) {
+                        closeAnchor();
+                    }
+                }
+            }
+        }
+
+        if (name.equals("title")) {
+            String content = rawText(name);
+            if (title == null) {
+                title = collapse(Parser.unescapeEntities(content, false)).trim();
+            }
+        } else if (RAW_TEXT_TAGS.contains(name)) {
+            rawText(name);
+        } else if (BLOCK_TAGS.contains(name)) {
+            space();
+        }
+    }
+
+    // Reads the attributes up to the end of the tag and returns the value of the wanted one, if any
+    private String attributes(String wanted) throws IOException {
+        String value = null;
+        while (true) {
+            int c = read();
+            while (c != -1 && (Character.isWhitespace(c) || c == '/')) {
+                c = read();
+            }
+            if (c == -1 || c == '>') {
+                return value;
+            }
+            scratch.setLength(0);
+            while (c != -1 && c != '=' && c != '>' && !Character.isWhitespace(c)) {
+                scratch.append(Character.toLowerCase((char) c));
+                c = read();
+            }
+            String attribute = scratch.toString();
+            while (c != -1 && Character.isWhitespace(c)) {
+                c = read();
+            }
+            if (c != '=') {
+                if (c == '>' || c == -1) {
+                    return value;
+                }
+                unread();
+                continue;
+            }
+            c = read();
+            while (c != -1 && Character.isWhitespace(c)) {
+                c = read();
+            }
+            scratch.setLength(0);
+            if (c == '"' || c == '\'') {
+                int quote = c;
+                while ((c = read()) != -1 && c != quote) {
+                    scratch.append((char) c);
+                }
+            } else {
+                while (c != -1 && c != '>' && !Character.isWhitespace(c)) {
+                    scratch.append((char) c);
+                    c = read();
+                }
+                if (c == '>') {
+                    unread();
+                }
+            }
+            if (value == null && attribute.equals(wanted)) {
+                value = Parser.unescapeEntities(scratch.toString(), true);
+            }
+        }
+    }
+
+    // Content of a raw text element up to its end tag, which is consumed
+    private String rawText(String name) throws IOException {
+        scratch.setLength(0);
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '<' && peek() == '/') {
+                int mark = scratch.length();
+                scratch.append('<');
+                scratch.append((char) read());
+                boolean matches = true;
+                for (int i = 0; i < name.length() && matches; i++) {
+                    int next = read();
+                    if (next == -1) {
+                        break;
+                    }
+                    scratch.append((char) next);
+                    matches = Character.toLowerCase(next) == name.charAt(i);
+                }
+                int after = peek();
+                if (matches && scratch.length() == mark + 2 + name.length()
+                        && (after == '>' || after == -1 || Character.isWhitespace(after) || after == '/')) {
+                    scratch.setLength(mark);
+                    skipPast(">");
+                    return scratch.toString();
+                }
+            } else {
+                scratch.append((char) c);
+            }
+        }
+        return scratch.toString();
+    }
+
+    private String readName(int c) throws IOException {
+        scratch.setLength(0);
+        while (c != -1 && (Character.isLetterOrDigit(c) || c == '-' || c == ':')) {
+            scratch.append((char) c);
+            c = read();
+        }
+        if (c != -1) {
+            unread();
+        }
+        return scratch.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private void skipPast(String terminator) throws IOException {
+        int matched = 0;
+        int c;
+        while (matched < terminator.length() && (c = read()) != -1) {
+            if (c == terminator.charAt(matched)) {
+                matched++;
+            } else {
+                matched = c == terminator.charAt(0) ? 1 : 0;
+            }
+        }
+    }
+
+    private void flushText() {
+        if (segment.isEmpty()) {
+            return;
+        }
+        String raw = segment.indexOf("&") >= 0 ? Parser.unescapeEntities(segment.toString(), false) : segment.toString();
+        segment.setLength(0);
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (isSpace(c)) {
+                space();
+            } else {
+                text.append(c);
+            }
+        }
+    }
+
+    private void space() {
+        int end = text.length();
+        if (end > 0 && text.charAt(end - 1) != ' ') {
+            text.append(' ');
+        }
+    }
+
+    private static String collapse(String value) {
+        StringBuilder out = new StringBuilder(value.length());
+        boolean lastSpace = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isSpace(c)) {
+                if (!lastSpace) {
+                    out.append(' ');
+                }
+                lastSpace = true;
+            } else {
+                out.append(c);
+                lastSpace = false;
+            }
+        }
+        return out.toString();
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u00A0';
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    // Only ever called right after a read, so the character is still in the buffer
+    private void unread() {
+        position--;
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
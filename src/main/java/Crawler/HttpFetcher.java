@@ -0,0 +1,143 @@
+package Crawler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Shared fetch layer for all outbound HTTP. One HttpClient means one connection pool, reused TLS sessions and
+// HTTP/2 multiplexing across every worker, instead of a fresh client (and handshake) per request.
+public final class HttpFetcher {
+    private static final Logger logger = Logger.getLogger(HttpFetcher.class.getName());
+    private static final long RETRY_BACKOFF_MILLIS = 250;
+    private static final long MAX_RETRY_AFTER_WAIT_MILLIS = 5000;
+
+    private static volatile HttpFetcher instance;
+
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final Duration readTimeout;
+    private final String userAgent;
+    private final int maxRetries;
+
+    private HttpFetcher(CrawlerConfig config) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(config.getFetchExecutorThreads(), r -> {
+            Thread thread = new Thread(r, "http-fetcher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClient.newBuilder()
+                .version(config.isHttp2Enabled() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMillis()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+        this.readTimeout = Duration.ofMillis(config.getReadTimeoutMillis());
+        this.userAgent = config.getUserAgent();
+        this.maxRetries = config.getMaxRetries();
+    }
+
+    // Created on first use so it picks up whatever configuration was loaded at startup
+    public static HttpFetcher getInstance() {
+        HttpFetcher fetcher = instance;
+        if (fetcher == null) {
+            synchronized (HttpFetcher.class) {
+                fetcher = instance;
+                if (fetcher == null) {
+                    fetcher = new HttpFetcher(CrawlerConfig.getInstance());
+                    instance = fetcher;
+                }
+            }
+        }
+        return fetcher;
+    }
+
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(URI uri, HttpResponse.BodyHandler<T> bodyHandler) {
+        return sendAsync(uri, builder -> { }, bodyHandler);
+    }
+
+    // The customizer can add request headers on top of the defaults (GET, user agent, read timeout)
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(URI uri, Consumer<HttpRequest.Builder> customizer,
+                                                            HttpResponse.BodyHandler<T> bodyHandler) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(readTimeout)
+                .header("User-Agent", userAgent)
+                .GET();
+        customizer.accept(builder);
+        return attempt(builder.build(), bodyHandler, 0);
+    }
+
+    public <T> HttpResponse<T> send(URI uri, HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        return send(uri, builder -> { }, bodyHandler);
+    }
+
+    public <T> HttpResponse<T> send(URI uri, Consumer<HttpRequest.Builder> customizer,
+                                    HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        try {
+            return sendAsync(uri, customizer, bodyHandler).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Request to " + uri + " failed", cause);
+        }
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> attempt(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler, int attempt) {
+        return client.sendAsync(request, bodyHandler)
+                .handle((response, error) -> {
+                    boolean retryable = error != null || isRetryableStatus(response.statusCode());
+                    // A server asking for a long pause gets it from the rate controller instead of a blocked retry
+                    long retryAfter = error == null
+                            ? HostRateController.parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null), System.currentTimeMillis())
+                            : 0;
+                    if (!retryable || attempt >= maxRetries || retryAfter > MAX_RETRY_AFTER_WAIT_MILLIS) {
+                        return error == null
+                                ? CompletableFuture.completedFuture(response)
+                                : CompletableFuture.<HttpResponse<T>>failedFuture(unwrap(error));
+                    }
+                    if (response != null) {
+                        discard(response);
+                    }
+                    logger.fine("Retrying " + request.uri() + " (attempt " + (attempt + 1) + " of " + maxRetries + ")");
+                    long backoff = Math.max(RETRY_BACKOFF_MILLIS << attempt, retryAfter);
+                    return CompletableFuture.supplyAsync(() -> null,
+                                    CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS, executor))
+                            .thenCompose(ignored -> attempt(request, bodyHandler, attempt + 1));
+                })
+                .thenCompose(future -> future);
+    }
+
+    // A streamed body holds its pooled connection until it is read or closed
+    private static void discard(HttpResponse<?> response) {
+        if (response.body() instanceof AutoCloseable body) {
+            try {
+                body.close();
+            } catch (Exception e) {
+                logger.log(Level.FINE, "Failed to close the body of " + response.uri(), e);
+            }
+        }
+    }
+
+    private static boolean isRetryableStatus(int statusCode) {
+        return statusCode == 429 || statusCode >= 500;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,56 @@
+package Crawler;
+
+// Guesses how relevant a page will be before fetching it, from what the linking page says about it. The anchor
+// text and the text around the link are scanned for the keywords, and the linking page's own score is inherited
+// in part, since relevant pages tend to link to each other. Each signal is squashed into [0, 1) as s / (1 + s),
+// the three are averaged by weight and the result decays with depth.
+public class LinkPrioritizer {
+    private final RelevanceScorer scorer;
+    private final double anchorWeight;
+    private final double contextWeight;
+    private final double parentWeight;
+    private final double depthDecay;
+
+    public LinkPrioritizer(RelevanceScorer scorer, double anchorWeight, double contextWeight, double parentWeight, double depthDecay) {
+        this.scorer = scorer;
+        this.anchorWeight = anchorWeight;
+        this.contextWeight = contextWeight;
+        this.parentWeight = parentWeight;
+        this.depthDecay = depthDecay;
+    }
+
+    public static LinkPrioritizer fromConfig(RelevanceScorer scorer) {
+        CrawlerConfig config = CrawlerConfig.getInstance();
+        return new LinkPrioritizer(scorer, config.getLinkAnchorWeight(), config.getLinkContextWeight(),
+                config.getLinkParentWeight(), config.getLinkDepthDecay());
+    }
+
+    // depth is the depth the linked page would be crawled at
+    public double priority(CharSequence anchorText, CharSequence context, double parentScore, int depth) {
+        double totalWeight = anchorWeight + contextWeight + parentWeight;
+        if (totalWeight <= 0) {
+            return 0;
+        }
+        double value = anchorWeight * squash(hits(anchorText))
+                + contextWeight * squash(hits(context))
+                + parentWeight * squash(parentScore);
+        return value / totalWeight * Math.pow(depthDecay, Math.max(0, depth - 1));
+    }
+
+    private int hits(CharSequence text) {
+        if (text.isEmpty()) {
+            return 0;
+        }
+        int[] hits = new int[scorer.keywordCount()];
+        scorer.scan(text, hits);
+        int total = 0;
+        for (int hit : hits) {
+            total += hit;
+        }
+        return total;
+    }
+
+    private static double squash(double value) {
+        return value <= 0 ? 0 : value / (1 + value);
+    }
+}
@@ -0,0 +1,289 @@
+package Crawler;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Append-only result sink. Workers hand records to a bounded queue and a single writer thread
+// appends them as one JSON object per line, committing in groups by count or by time.
+public class NdjsonResultSink implements ResultSink {
+    private static final Logger logger = Logger.getLogger(NdjsonResultSink.class.getName());
+
+    private static final String URL_FIELD = "\"url\":\"";
+
+    public enum FsyncPolicy {
+        NEVER,      // leave durability to the OS
+        ON_COMMIT,  // fsync after every group commit
+        ON_CLOSE    // fsync once when the sink is closed
+    }
+
+    private final Path logFile;
+    private final Path compactFile;
+    private final SinkQueue queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final FsyncPolicy fsyncPolicy;
+    private final Thread writerThread;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private final FileOutputStream out;
+    private final BufferedWriter writer;
+
+    public NdjsonResultSink(String logFile, String compactFile, int queueCapacity, int batchSize,
+                            long flushIntervalMillis, FsyncPolicy fsyncPolicy) throws IOException {
+        this.logFile = Paths.get(logFile);
+        this.compactFile = compactFile == null ? null : Paths.get(compactFile);
+        this.queue = new SinkQueue(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.fsyncPolicy = fsyncPolicy;
+
+        Path parent = this.logFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        migrateLegacyArray();
+
+        this.out = new FileOutputStream(this.logFile.toFile(), true);
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+
+        this.writerThread = new Thread(this::writeLoop, "result-sink-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    // Builds a sink from the current configuration. "output/result.json" is appended to as
+    // "output/result.ndjson" and, if compaction is enabled, rewritten as a JSON array on close.
+    public static NdjsonResultSink fromConfig(String outputFile) throws IOException {
+        CrawlerConfig config = CrawlerConfig.getInstance();
+        return new NdjsonResultSink(
+                toLogFileName(outputFile),
+                config.isSinkCompactOnClose() ? outputFile : null,
+                config.getSinkQueueCapacity(),
+                config.getSinkBatchSize(),
+                config.getSinkFlushIntervalMillis(),
+                config.getSinkFsyncPolicy()
+        );
+    }
+
+    static String toLogFileName(String outputFile) {
+        int dot = outputFile.lastIndexOf('.');
+        int slash = Math.max(outputFile.lastIndexOf('/'), outputFile.lastIndexOf('\\'));
+        String base = dot > slash ? outputFile.substring(0, dot) : outputFile;
+        return base + ".ndjson";
+    }
+
+    @Override
+    public void write(JSONObject result) {
+        if (closed.get()) {
+            throw new IllegalStateException("Result sink is closed");
+        }
+        long writeStart = System.nanoTime();
+        try {
+            queue.put(result);
+            CrawlMetrics.getInstance().recordSinkWrite(System.nanoTime() - writeStart);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning("Interrupted while queueing result for " + result.optString("url"));
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (queue.finish()) {
+                writerThread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning("Interrupted while closing result sink; pending results may be lost");
+            return;
+        }
+        if (queue.hasFailed()) {
+            logger.warning("Result sink writer failed; " + logFile + " may be incomplete and was not compacted");
+            return;
+        }
+        if (compactFile != null) {
+            compact();
+        }
+    }
+
+    private void writeLoop() {
+        List<JSONObject> batch = new ArrayList<>(batchSize);
+        long lastCommit = System.currentTimeMillis();
+        int pending = 0;
+        boolean finished = false;
+
+        try {
+            while (!finished) {
+                JSONObject first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+
+                for (JSONObject result : batch) {
+                    if (result == SinkQueue.END_OF_STREAM) {
+                        finished = true;
+                        break;
+                    }
+                    writer.write(result.toString());
+                    writer.newLine();
+                    pending++;
+                }
+                batch.clear();
+
+                long now = System.currentTimeMillis();
+                if (pending > 0 && (finished || pending >= batchSize || now - lastCommit >= flushIntervalMillis)) {
+                    commit(fsyncPolicy == FsyncPolicy.ON_COMMIT);
+                    pending = 0;
+                    lastCommit = now;
+                }
+            }
+            commit(fsyncPolicy != FsyncPolicy.NEVER);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning("Result sink writer interrupted");
+            queue.failed(e);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.SEVERE, "Failed to write results to " + logFile, e);
+            queue.failed(e);
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close " + logFile, e);
+            }
+        }
+    }
+
+    private void commit(boolean fsync) throws IOException {
+        long commitStart = System.nanoTime();
+        writer.flush();
+        if (fsync) {
+            out.getChannel().force(false);
+        }
+        CrawlMetrics.getInstance().recordSinkCommit(System.nanoTime() - commitStart);
+    }
+
+    // Rewrites the log as a pretty-printed JSON array, matching the historical result.json layout. A page that
+    // was recrawled and changed appears in the log once per crawl; only its latest result is kept. Streams line
+    // by line, so memory is one map entry per distinct URL rather than the results themselves.
+    private void compact() {
+        Map<Long, Integer> latestLine;
+        try {
+            latestLine = latestLinePerUrl();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to compact results into " + compactFile, e);
+            return;
+        }
+
+        Path tmp = compactFile.resolveSibling(compactFile.getFileName() + ".tmp");
+        try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8);
+             BufferedWriter target = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            target.write("[");
+            boolean first = true;
+            String line;
+            int lineNumber = -1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                long key = urlKey(line);
+                if (key != 0 && latestLine.get(key) != lineNumber) {
+                    continue;
+                }
+                target.write(first ? "\n    " : ",\n    ");
+                target.write(new JSONObject(line).toString(4).replace("\n", "\n    "));
+                first = false;
+            }
+            target.write(first ? "]" : "\n]");
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to compact results into " + compactFile, e);
+            return;
+        }
+
+        try {
+            Files.move(tmp, compactFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Compacted results into " + compactFile);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to replace " + compactFile, e);
+        }
+    }
+
+    private Map<Long, Integer> latestLinePerUrl() throws IOException {
+        Map<Long, Integer> latestLine = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = -1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                long key = urlKey(line);
+                if (key != 0) {
+                    latestLine.put(key, lineNumber);
+                }
+            }
+        }
+        return latestLine;
+    }
+
+    // Fingerprint of the raw "url" value on a log line, or 0 if there is none. Every line was serialized the
+    // same way, so the escaped value identifies the URL without parsing the whole record.
+    static long urlKey(String line) {
+        int start = line.indexOf(URL_FIELD);
+        if (start < 0) {
+            return 0;
+        }
+        start += URL_FIELD.length();
+        int end = start;
+        while (end < line.length() && line.charAt(end) != '"') {
+            end += line.charAt(end) == '\\' ? 2 : 1;
+        }
+        long key = UrlFingerprint.of(line, start, Math.min(end, line.length()));
+        return key == 0 ? 1 : key;
+    }
+
+    // Older runs wrote straight into the JSON array file. Seed the log from it once so compaction keeps them.
+    private void migrateLegacyArray() throws IOException {
+        if (compactFile == null || Files.exists(logFile) || !Files.exists(compactFile) || Files.size(compactFile) == 0) {
+            return;
+        }
+        JSONArray existing;
+        try (BufferedReader reader = Files.newBufferedReader(compactFile, StandardCharsets.UTF_8)) {
+            existing = new JSONArray(new JSONTokener(reader));
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Could not read existing results from " + compactFile + "; starting a new log", e);
+            return;
+        }
+        try (BufferedWriter target = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < existing.length(); i++) {
+                target.write(existing.getJSONObject(i).toString());
+                target.newLine();
+            }
+        }
+        logger.info("Migrated " + existing.length() + " existing results from " + compactFile + " to " + logFile);
+    }
+}
@@ -0,0 +1,105 @@
+package Crawler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// SimHash fingerprints of the pages seen so far, indexed for Hamming-distance lookups. The 64 bits are split
+// into maxDistance + 1 blocks and each block keys its own table. Two fingerprints at most maxDistance bits apart
+// differ in at most maxDistance blocks, so they share at least one block exactly, and only that table's bucket
+// needs scanning. Buckets are primitive long arrays, so a million pages with the default distance of 3 cost
+// about 32 MB plus the canonical URLs.
+public class NearDuplicateIndex {
+    // Blocks wider than this are folded into this many bucket bits
+    private static final int MAX_BUCKET_BITS = 16;
+
+    private final int maxDistance;
+    private final int[] blockShift;
+    private final long[] blockMask;
+    private final int bucketMask;
+    private final long[][][] tables;
+    private final int[][] bucketSizes;
+    private final Map<Long, String> canonicalUrls = new HashMap<>();
+    private final LongAdder duplicates = new LongAdder();
+
+    public record Match(String canonicalUrl, int distance) {
+    }
+
+    public NearDuplicateIndex(int maxDistance) {
+        this.maxDistance = maxDistance;
+        int blocks = maxDistance + 1;
+        this.blockShift = new int[blocks];
+        this.blockMask = new long[blocks];
+        int bucketBits = 0;
+        int shift = 0;
+        for (int i = 0; i < blocks; i++) {
+            // The first 64 % blocks blocks take one bit more
+            int bits = 64 / blocks + (i < 64 % blocks ? 1 : 0);
+            blockShift[i] = shift;
+            blockMask[i] = bits == 64 ? -1L : (1L << bits) - 1;
+            shift += bits;
+            bucketBits = Math.max(bucketBits, Math.min(bits, MAX_BUCKET_BITS));
+        }
+        this.bucketMask = (1 << bucketBits) - 1;
+        this.tables = new long[blocks][1 << bucketBits][];
+        this.bucketSizes = new int[blocks][1 << bucketBits];
+    }
+
+    // Metrics are registered here rather than in the constructor, which must not hand out this
+    public static NearDuplicateIndex fromConfig() {
+        NearDuplicateIndex index = new NearDuplicateIndex(CrawlerConfig.getInstance().getNearDuplicateMaxDistance());
+        CrawlMetrics metrics = CrawlMetrics.getInstance();
+        metrics.registerCounter("crawler_near_duplicates_total", "Pages dropped as near-duplicates of an earlier page", index.duplicates::sum);
+        metrics.registerGauge("crawler_near_duplicate_index_size", "Distinct page fingerprints in the near-duplicate index", index::size);
+        return index;
+    }
+
+    // Returns the closest earlier page within maxDistance, or records this one as canonical and returns null.
+    // Lookup and insert happen under one lock so two copies parsed at once cannot both become canonical.
+    public synchronized Match findOrAdd(long fingerprint, String url) {
+        Match best = null;
+        for (int table = 0; table < tables.length; table++) {
+            int bucket = bucketOf(table, fingerprint);
+            long[] entries = tables[table][bucket];
+            for (int i = 0, size = bucketSizes[table][bucket]; i < size; i++) {
+                int distance = SimHash.distance(fingerprint, entries[i]);
+                if (distance <= maxDistance && (best == null || distance < best.distance())) {
+                    best = new Match(canonicalUrls.get(entries[i]), distance);
+                    if (distance == 0) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (best != null) {
+            duplicates.increment();
+            return best;
+        }
+
+        canonicalUrls.put(fingerprint, url);
+        for (int table = 0; table < tables.length; table++) {
+            int bucket = bucketOf(table, fingerprint);
+            long[] entries = tables[table][bucket];
+            int size = bucketSizes[table][bucket];
+            if (entries == null || size == entries.length) {
+                long[] grown = new long[entries == null ? 4 : size * 2];
+                if (entries != null) {
+                    System.arraycopy(entries, 0, grown, 0, size);
+                }
+                tables[table][bucket] = entries = grown;
+            }
+            entries[size] = fingerprint;
+            bucketSizes[table][bucket] = size + 1;
+        }
+        return null;
+    }
+
+    public synchronized int size() {
+        return canonicalUrls.size();
+    }
+
+    private int bucketOf(int table, long fingerprint) {
+        long block = (fingerprint >>> blockShift[table]) & blockMask[table];
+        return (int) (UrlFingerprint.mix(block) & bucketMask);
+    }
+}
@@ -0,0 +1,149 @@
+package Crawler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// A response body read into pooled chunks, at most max_body_bytes of it. The xxHash64 of the body is computed
+// while reading, so change detection needs no second pass. The chunks go back to the pool on release(); a body
+// that is never released is simply garbage collected.
+public final class PageBody {
+    // How much of the body is searched for a <meta charset> when the Content-Type does not name one
+    private static final int CHARSET_SNIFF_BYTES = 1024;
+
+    private final List<byte[]> chunks;
+    private final int length;
+    private final long hash;
+    private final boolean truncated;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    private PageBody(List<byte[]> chunks, int length, long hash, boolean truncated) {
+        this.chunks = chunks;
+        this.length = length;
+        this.hash = hash;
+        this.truncated = truncated;
+    }
+
+    // Reads up to maxBytes and stops there, leaving the rest of the response unread
+    public static PageBody read(InputStream in, int maxBytes) throws IOException {
+        BufferPool pool = BufferPool.getInstance();
+        List<byte[]> chunks = new ArrayList<>();
+        XxHash64.Hasher hasher = new XxHash64.Hasher(0);
+        int length = 0;
+        boolean truncated = false;
+        try {
+            byte[] chunk = null;
+            int filled = BufferPool.CHUNK_BYTES;
+            while (true) {
+                if (length >= maxBytes) {
+                    truncated = in.read() != -1;
+                    break;
+                }
+                if (filled == BufferPool.CHUNK_BYTES) {
+                    chunk = pool.acquire();
+                    chunks.add(chunk);
+                    filled = 0;
+                }
+                int read = in.read(chunk, filled, Math.min(BufferPool.CHUNK_BYTES - filled, maxBytes - length));
+                if (read < 0) {
+                    break;
+                }
+                hasher.update(chunk, filled, read);
+                filled += read;
+                length += read;
+            }
+        } catch (IOException | RuntimeException e) {
+            chunks.forEach(pool::release);
+            throw e;
+        }
+        return new PageBody(chunks, length, hasher.digest(), truncated);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public long hash() {
+        return hash;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public InputStream openStream() {
+        return new ChunkInputStream();
+    }
+
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            BufferPool pool = BufferPool.getInstance();
+            chunks.forEach(pool::release);
+        }
+    }
+
+    // Charset from a <meta charset=...> or <meta http-equiv content="...; charset=..."> near the start, or null
+    public String sniffCharset() {
+        if (chunks.isEmpty()) {
+            return null;
+        }
+        String head = new String(chunks.get(0), 0, Math.min(length, CHARSET_SNIFF_BYTES), StandardCharsets.ISO_8859_1)
+                .toLowerCase(Locale.ROOT);
+        int meta = head.indexOf("<meta");
+        while (meta >= 0) {
+            int end = head.indexOf('>', meta);
+            if (end < 0) {
+                return null;
+            }
+            int charset = head.indexOf("charset=", meta);
+            if (charset >= 0 && charset < end) {
+                int start = charset + "charset=".length();
+                while (start < end && (head.charAt(start) == '"' || head.charAt(start) == '\'')) {
+                    start++;
+                }
+                int stop = start;
+                while (stop < end && "\"'; /".indexOf(head.charAt(stop)) < 0) {
+                    stop++;
+                }
+                return stop > start ? head.substring(start, stop) : null;
+            }
+            meta = head.indexOf("<meta", end);
+        }
+        return null;
+    }
+
+    private final class ChunkInputStream extends InputStream {
+        private int position;
+
+        @Override
+        public int read() {
+            if (position >= length) {
+                return -1;
+            }
+            int value = chunks.get(position / BufferPool.CHUNK_BYTES)[position % BufferPool.CHUNK_BYTES] & 0xFF;
+            position++;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int count) {
+            if (position >= length) {
+                return -1;
+            }
+            int offsetInChunk = position % BufferPool.CHUNK_BYTES;
+            int read = Math.min(count, Math.min(BufferPool.CHUNK_BYTES - offsetInChunk, length - position));
+            System.arraycopy(chunks.get(position / BufferPool.CHUNK_BYTES), offsetInChunk, target, offset, read);
+            position += read;
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return length - position;
+        }
+    }
+}
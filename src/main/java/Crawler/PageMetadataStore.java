@@ -0,0 +1,184 @@
+package Crawler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+// What the previous crawls learned about each page, keyed by URL fingerprint: the validators to send back
+// (ETag, Last-Modified), an xxHash64 of the body and when the page should be looked at again. Revisit
+// intervals follow how often a page actually changes: halved when it did, doubled when it did not, within
+// the configured bounds. The store is loaded at startup and written back when the crawl finishes.
+//
+// Skipping an unchanged page is only right if it would score the same, so the keyword is saved along with the
+// entries and a store written for a different keyword is ignored.
+public class PageMetadataStore {
+    private static final Logger logger = Logger.getLogger(PageMetadataStore.class.getName());
+    private static final int MAGIC = 0x43524d44;
+    // Version 1 wrote strings with writeUTF, which fails on anything over 65,535 bytes; it can still be read
+    private static final int VERSION = 2;
+
+    private final Path file;
+    private final String keyword;
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final ConcurrentMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder unchanged = new LongAdder();
+    private final LongAdder notDue = new LongAdder();
+
+    public record Entry(String url, int depth, String etag, String lastModified, long contentHash,
+                        long lastCrawlMillis, long lastChangeMillis, long revisitIntervalMillis) {
+        public boolean isDue(long now) {
+            return now - lastCrawlMillis >= revisitIntervalMillis;
+        }
+    }
+
+    PageMetadataStore(Path file, String keyword, long minIntervalMillis, long maxIntervalMillis) {
+        this.file = file;
+        this.keyword = keyword;
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+
+        CrawlMetrics metrics = CrawlMetrics.getInstance();
+        metrics.registerCounter("crawler_recrawl_not_modified_total", "Revisits answered with 304 Not Modified", notModified::sum);
+        metrics.registerCounter("crawler_recrawl_unchanged_total", "Revisits whose body hashed the same as last time", unchanged::sum);
+        metrics.registerCounter("crawler_recrawl_not_due_total", "Known pages skipped because their revisit time has not come", notDue::sum);
+        metrics.registerGauge("crawler_page_metadata_entries", "Pages with recrawl metadata", entries::size);
+    }
+
+    // Loads the store from the configured file if one was written for the same keyword
+    public static PageMetadataStore fromConfig(String keyword) throws IOException {
+        CrawlerConfig config = CrawlerConfig.getInstance();
+        PageMetadataStore store = new PageMetadataStore(Path.of(config.getMetadataFile()), keyword,
+                config.getRecrawlMinIntervalMillis(), config.getRecrawlMaxIntervalMillis());
+        store.load();
+        return store;
+    }
+
+    public Entry get(String url) {
+        return entries.get(UrlFingerprint.of(url));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void recordNotDue() {
+        notDue.increment();
+    }
+
+    // The server answered 304, so everything but the crawl time and interval stays as it was
+    public void recordNotModified(Entry previous, long now) {
+        notModified.increment();
+        entries.put(UrlFingerprint.of(previous.url()), revisited(previous, previous.etag(), previous.lastModified(), previous.contentHash(), false, now));
+    }
+
+    // Returns true if the page is new or its body differs from the last crawl
+    public boolean recordFetch(String url, int depth, String etag, String lastModified, long contentHash, long now) {
+        long key = UrlFingerprint.of(url);
+        Entry previous = entries.get(key);
+        if (previous == null) {
+            entries.put(key, new Entry(url, depth, etag, lastModified, contentHash, now, now, minIntervalMillis));
+            return true;
+        }
+        boolean changed = previous.contentHash() != contentHash;
+        if (!changed) {
+            unchanged.increment();
+        }
+        entries.put(key, revisited(previous, etag, lastModified, contentHash, changed, now));
+        return changed;
+    }
+
+    private Entry revisited(Entry previous, String etag, String lastModified, long contentHash, boolean changed, long now) {
+        long interval = changed
+                ? Math.max(minIntervalMillis, previous.revisitIntervalMillis() / 2)
+                : Math.min(maxIntervalMillis, previous.revisitIntervalMillis() * 2);
+        return new Entry(previous.url(), previous.depth(), etag, lastModified, contentHash,
+                now, changed ? now : previous.lastChangeMillis(), interval);
+    }
+
+    // Queues every known page whose revisit time has come. Returns how many were queued.
+    public int offerDue(Frontier queue, int maxDepth) {
+        long now = System.currentTimeMillis();
+        int offered = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.isDue(now) && entry.depth() <= maxDepth && queue.offer(new WorkerThread.UrlDepthPair(entry.url(), entry.depth()))) {
+                offered++;
+            }
+        }
+        return offered;
+    }
+
+    void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unrecognized page metadata file " + file);
+            }
+            boolean legacy = version == 1;
+            String storedKeyword = readString(in, legacy);
+            if (!storedKeyword.equals(keyword)) {
+                logger.info("Page metadata in " + file + " was recorded for \"" + storedKeyword + "\"; every page will be fetched again");
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Entry entry = new Entry(readString(in, legacy), in.readInt(), emptyToNull(readString(in, legacy)),
+                        emptyToNull(readString(in, legacy)), in.readLong(), in.readLong(), in.readLong(), in.readLong());
+                entries.put(UrlFingerprint.of(entry.url()), entry);
+            }
+        }
+        logger.info("Loaded page metadata for " + entries.size() + " URLs from " + file);
+    }
+
+    // Written to a temporary file and moved into place, so a crash mid-write keeps the previous store
+    public void save() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        int count = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            DataStrings.write(out, keyword);
+            // Entries may still be added while saving, so the count is taken from a snapshot
+            Entry[] snapshot = entries.values().toArray(new Entry[0]);
+            out.writeInt(snapshot.length);
+            for (Entry entry : snapshot) {
+                DataStrings.write(out, entry.url());
+                out.writeInt(entry.depth());
+                DataStrings.write(out, entry.etag() == null ? "" : entry.etag());
+                DataStrings.write(out, entry.lastModified() == null ? "" : entry.lastModified());
+                out.writeLong(entry.contentHash());
+                out.writeLong(entry.lastCrawlMillis());
+                out.writeLong(entry.lastChangeMillis());
+                out.writeLong(entry.revisitIntervalMillis());
+            }
+            count = snapshot.length;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Saved page metadata for " + count + " URLs to " + file);
+    }
+
+    private static String readString(DataInputStream in, boolean legacy) throws IOException {
+        return legacy ? in.readUTF() : DataStrings.read(in);
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
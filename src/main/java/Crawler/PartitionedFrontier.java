@@ -0,0 +1,56 @@
+package Crawler;
+
+import java.util.concurrent.TimeUnit;
+
+// Cluster-aware frontier. URLs whose host this node owns go to the local frontier; the rest are forwarded to
+// their owner. When a member joins, URLs already queued here for hosts it now owns are forwarded as they are
+// polled, so the hand-over needs no coordination.
+public class PartitionedFrontier implements Frontier {
+    private final Frontier local;
+    private final ClusterNode node;
+
+    public PartitionedFrontier(Frontier local, ClusterNode node) {
+        this.local = local;
+        this.node = node;
+    }
+
+    @Override
+    public boolean offer(WorkerThread.UrlDepthPair pair) {
+        String host = URLManager.getHost(pair.url());
+        if (host == null) {
+            return false;
+        }
+        if (node.isLocal(host)) {
+            return local.offer(pair);
+        }
+        node.forward(node.ownerOf(host), pair);
+        return true;
+    }
+
+    @Override
+    public WorkerThread.UrlDepthPair poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            WorkerThread.UrlDepthPair pair = local.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (pair == null) {
+                return null;
+            }
+            String host = URLManager.getHost(pair.url());
+            if (host == null || node.isLocal(host)) {
+                return pair;
+            }
+            node.forward(node.ownerOf(host), pair);
+        }
+    }
+
+    @Override
+    public void release() {
+        local.release();
+    }
+
+    // Only the URLs queued on this node
+    @Override
+    public int size() {
+        return local.size();
+    }
+}
@@ -0,0 +1,76 @@
+package Crawler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// A fixed set of threads fed through a bounded handoff queue. Submitting blocks while the queue is full,
+// which pushes back on the stage upstream instead of letting work pile up on the heap.
+public class PipelineStage {
+    private static final Logger logger = Logger.getLogger(PipelineStage.class.getName());
+
+    // Tells a stage thread to exit once everything queued before it has run
+    private static final Runnable STOP = () -> { };
+
+    private final String name;
+    private final BlockingQueue<Runnable> queue;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean closed;
+
+    public PipelineStage(String name, int threadCount, int queueCapacity) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(this::runLoop, name + "-" + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    public void submit(Runnable task) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("Stage " + name + " is closed");
+        }
+        queue.put(task);
+    }
+
+    public int backlog() {
+        return queue.size();
+    }
+
+    // Runs everything already submitted, then stops the stage threads
+    public void close() throws InterruptedException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (int i = 0; i < threads.size(); i++) {
+            queue.put(STOP);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private void runLoop() {
+        try {
+            while (true) {
+                Runnable task = queue.take();
+                if (task == STOP) {
+                    return;
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Task failed in stage " + name, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
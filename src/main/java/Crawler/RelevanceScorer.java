@@ -0,0 +1,235 @@
+package Crawler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Scores page text against any number of keywords and phrases in a single pass. The keywords are compiled
+// once into an Aho-Corasick automaton, so the cost of a scan depends on the text length only, not on how many
+// keywords there are. Matching ignores case and treats any run of whitespace as one space.
+//
+// Instances are immutable and shared by all score threads; scan state lives on the caller's stack.
+public class RelevanceScorer {
+    // ASCII transitions are a dense table, everything else walks the sparse trie edges and failure links
+    private static final int ALPHABET = 128;
+    private static final int ROOT = 0;
+    private static final char SPACE = ' ';
+
+    private final String[] keywords;
+    private final double titleWeight;
+    private final double bodyWeight;
+    private final int lengthNormWords;
+
+    private final int[] asciiNext;
+    private final char[][] wideLabels;
+    private final int[][] wideTargets;
+    private final int[] fail;
+    private final int[][] outputs;
+
+    public record Score(double value, List<String> matchedKeywords) {
+    }
+
+    // keywordInput is a comma-separated list of keywords or phrases, as typed at the keyword prompt.
+    // Title hits count titleWeight each. Body hits count bodyWeight each, scaled down for bodies longer
+    // than lengthNormWords words so that long pages need proportionally more mentions to score the same.
+    public RelevanceScorer(String keywordInput, double titleWeight, double bodyWeight, int lengthNormWords) {
+        this.keywords = parseKeywords(keywordInput);
+        this.titleWeight = titleWeight;
+        this.bodyWeight = bodyWeight;
+        this.lengthNormWords = lengthNormWords;
+
+        // Build the trie with maps, then flatten it
+        List<Map<Character, Integer>> edges = new ArrayList<>();
+        List<List<Integer>> terminals = new ArrayList<>();
+        edges.add(new HashMap<>());
+        terminals.add(new ArrayList<>());
+        for (int k = 0; k < keywords.length; k++) {
+            int state = ROOT;
+            String keyword = keywords[k];
+            for (int i = 0; i < keyword.length(); i++) {
+                Integer next = edges.get(state).get(keyword.charAt(i));
+                if (next == null) {
+                    next = edges.size();
+                    edges.add(new HashMap<>());
+                    terminals.add(new ArrayList<>());
+                    edges.get(state).put(keyword.charAt(i), next);
+                }
+                state = next;
+            }
+            terminals.get(state).add(k);
+        }
+
+        int states = edges.size();
+        this.asciiNext = new int[states * ALPHABET];
+        this.wideLabels = new char[states][];
+        this.wideTargets = new int[states][];
+        this.fail = new int[states];
+        this.outputs = new int[states][];
+
+        for (int s = 0; s < states; s++) {
+            List<Character> wide = new ArrayList<>();
+            for (char c : edges.get(s).keySet()) {
+                if (c >= ALPHABET) {
+                    wide.add(c);
+                }
+            }
+            wide.sort(null);
+            wideLabels[s] = new char[wide.size()];
+            wideTargets[s] = new int[wide.size()];
+            for (int i = 0; i < wide.size(); i++) {
+                wideLabels[s][i] = wide.get(i);
+                wideTargets[s][i] = edges.get(s).get(wide.get(i));
+            }
+        }
+
+        // Breadth-first, so a state's failure target is always complete before the state itself
+        ArrayDeque<Integer> pending = new ArrayDeque<>();
+        outputs[ROOT] = new int[0];
+        for (int c = 0; c < ALPHABET; c++) {
+            Integer child = edges.get(ROOT).get((char) c);
+            asciiNext[c] = child == null ? ROOT : child;
+        }
+        for (int child : edges.get(ROOT).values()) {
+            fail[child] = ROOT;
+            pending.add(child);
+        }
+        while (!pending.isEmpty()) {
+            int state = pending.poll();
+            int failState = fail[state];
+
+            int[] inherited = outputs[failState];
+            List<Integer> own = terminals.get(state);
+            int[] merged = Arrays.copyOf(inherited, inherited.length + own.size());
+            for (int i = 0; i < own.size(); i++) {
+                merged[inherited.length + i] = own.get(i);
+            }
+            outputs[state] = merged;
+
+            for (int c = 0; c < ALPHABET; c++) {
+                Integer child = edges.get(state).get((char) c);
+                asciiNext[state * ALPHABET + c] = child == null ? asciiNext[failState * ALPHABET + c] : child;
+            }
+            for (Map.Entry<Character, Integer> edge : edges.get(state).entrySet()) {
+                int child = edge.getValue();
+                fail[child] = next(failState, edge.getKey());
+                pending.add(child);
+            }
+        }
+    }
+
+    public static RelevanceScorer fromConfig(String keywordInput) {
+        CrawlerConfig config = CrawlerConfig.getInstance();
+        return new RelevanceScorer(keywordInput, config.getRelevanceTitleWeight(), config.getRelevanceBodyWeight(),
+                config.getRelevanceLengthNormWords());
+    }
+
+    public Score score(CharSequence title, CharSequence body) {
+        int[] titleHits = new int[keywords.length];
+        int[] bodyHits = new int[keywords.length];
+        scan(title, titleHits);
+        int bodyWords = scan(body, bodyHits);
+
+        double lengthNorm = bodyWords > lengthNormWords ? (double) lengthNormWords / bodyWords : 1.0;
+        double value = 0;
+        List<String> matched = new ArrayList<>();
+        for (int k = 0; k < keywords.length; k++) {
+            if (titleHits[k] + bodyHits[k] > 0) {
+                value += titleWeight * titleHits[k] + bodyWeight * bodyHits[k] * lengthNorm;
+                matched.add(keywords[k]);
+            }
+        }
+        return new Score(value, matched);
+    }
+
+    // Adds the hits for each keyword in the text to hits and returns the number of words in it
+    int scan(CharSequence text, int[] hits) {
+        int state = ROOT;
+        int words = 0;
+        boolean inWord = false;
+        boolean afterSpace = true;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (isSpace(c)) {
+                inWord = false;
+                if (afterSpace) {
+                    continue;
+                }
+                afterSpace = true;
+                c = SPACE;
+            } else {
+                afterSpace = false;
+                if (Character.isLetterOrDigit(c)) {
+                    if (!inWord) {
+                        words++;
+                        inWord = true;
+                    }
+                } else {
+                    inWord = false;
+                }
+                c = Character.toLowerCase(c);
+            }
+
+            state = next(state, c);
+            for (int keyword : outputs[state]) {
+                hits[keyword]++;
+            }
+        }
+        return words;
+    }
+
+    public List<String> getKeywords() {
+        return List.of(keywords);
+    }
+
+    int keywordCount() {
+        return keywords.length;
+    }
+
+    private int next(int state, char c) {
+        if (c < ALPHABET) {
+            return asciiNext[state * ALPHABET + c];
+        }
+        while (true) {
+            int index = Arrays.binarySearch(wideLabels[state], c);
+            if (index >= 0) {
+                return wideTargets[state][index];
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = fail[state];
+        }
+    }
+
+    private static boolean isSpace(char c) {
+        return Character.isWhitespace(c) || Character.isSpaceChar(c);
+    }
+
+    // Splits on commas, folds case and whitespace the same way scan() does, and drops empty or repeated entries
+    private static String[] parseKeywords(String keywordInput) {
+        Set<String> keywords = new LinkedHashSet<>();
+        for (String part : keywordInput.split(",")) {
+            StringBuilder keyword = new StringBuilder(part.length());
+            for (int i = 0; i < part.length(); i++) {
+                char c = part.charAt(i);
+                if (!isSpace(c)) {
+                    keyword.append(Character.toLowerCase(c));
+                } else if (!keyword.isEmpty() && keyword.charAt(keyword.length() - 1) != SPACE) {
+                    keyword.append(SPACE);
+                }
+            }
+            if (!keyword.isEmpty() && keyword.charAt(keyword.length() - 1) == SPACE) {
+                keyword.setLength(keyword.length() - 1);
+            }
+            if (!keyword.isEmpty()) {
+                keywords.add(keyword.toString());
+            }
+        }
+        return keywords.toArray(new String[0]);
+    }
+}
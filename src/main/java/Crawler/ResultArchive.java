@@ -0,0 +1,407 @@
+package Crawler;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import java.util.zip.Inflater;
+
+// Reader for the compact result archive that ArchiveResultSink and ResultArchiveWriter produce. The file is a
+// header (MAGIC, VERSION), a run of ArchiveBlocks and a footer with the origin dictionary, the offset and record
+// count of every block, and an index from URL fingerprint to the block and position of the latest result for that
+// URL, sorted by fingerprint. The last 12 bytes give the footer's offset and repeat FOOTER_MAGIC.
+//
+// The footer is only written when the archive is closed. An archive left without one, after a crash, is read by
+// walking the blocks from the start and stops at the first block that is cut short or fails its checksum.
+//
+// Also converts to and from the JSON formats:
+//   java -cp ... Crawler.ResultArchive from-json output/result.json output/result.archive
+//   java -cp ... Crawler.ResultArchive to-json output/result.archive result.json
+//   java -cp ... Crawler.ResultArchive get output/result.archive https://example.com/
+public class ResultArchive implements Closeable {
+    private static final Logger logger = Logger.getLogger(ResultArchive.class.getName());
+    static final int MAGIC = 0x43524152;
+    static final int VERSION = 1;
+    static final int FOOTER_MAGIC = 0x43524146;
+    static final int HEADER_BYTES = 8;
+    static final int TRAILER_BYTES = 12;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Inflater inflater = new Inflater();
+    final List<String> hosts = new ArrayList<>();
+    long[] blockOffsets = new long[0];
+    int[] blockRecords = new int[0];
+    int blocks;
+    Index index = new Index(new long[0], new long[0]);
+    // Where the blocks end: the footer's offset, or after the last intact block when there is no footer
+    long dataEnd = HEADER_BYTES;
+
+    private int cachedBlock = -1;
+    private List<JSONObject> cachedRecords;
+
+    // URL fingerprints in ascending order with the location, block << 32 | position, of each one's latest result
+    record Index(long[] fingerprints, long[] locations) {
+    }
+
+    private ResultArchive(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    public static ResultArchive open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        ResultArchive archive = new ResultArchive(file, channel);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException(file + " is not a result archive");
+            }
+            if (!archive.readFooter()) {
+                archive.recover();
+            }
+            return archive;
+        } catch (IOException e) {
+            archive.close();
+            throw e;
+        }
+    }
+
+    // Distinct URLs
+    public int size() {
+        return index.fingerprints().length;
+    }
+
+    // Results stored, counting every crawl of a URL
+    public long records() {
+        long records = 0;
+        for (int i = 0; i < blocks; i++) {
+            records += blockRecords[i];
+        }
+        return records;
+    }
+
+    // The latest result for a URL, or null
+    public synchronized JSONObject get(String url) throws IOException {
+        int slot = Arrays.binarySearch(index.fingerprints(), UrlFingerprint.of(url));
+        if (slot < 0) {
+            return null;
+        }
+        long location = index.locations()[slot];
+        int block = (int) (location >>> 32);
+        if (block != cachedBlock) {
+            cachedRecords = ArchiveBlock.decode(readBlock(blockOffsets[block]), hosts, null, inflater);
+            cachedBlock = block;
+        }
+        JSONObject result = cachedRecords.get((int) location);
+        return url.equals(result.optString("url")) ? result : null;
+    }
+
+    public void scan(Consumer<JSONObject> consumer) throws IOException {
+        scan(null, false, consumer);
+    }
+
+    // Calls consumer for each result in the order they were written, decoding only the given fields (all when
+    // fields is null). With latestOnly, results later replaced by a newer one for the same URL are skipped; url
+    // is then always decoded.
+    public synchronized void scan(Set<String> fields, boolean latestOnly, Consumer<JSONObject> consumer) throws IOException {
+        Set<String> decoded = fields;
+        if (latestOnly && fields != null && !fields.contains("url")) {
+            decoded = new HashSet<>(fields);
+            decoded.add("url");
+        }
+        List<String> known = new ArrayList<>(hosts);
+        for (int block = 0; block < blocks; block++) {
+            List<JSONObject> records = ArchiveBlock.decode(readBlock(blockOffsets[block]), known, decoded, inflater);
+            for (int position = 0; position < records.size(); position++) {
+                JSONObject result = records.get(position);
+                if (latestOnly && !isLatest(result, (long) block << 32 | position)) {
+                    continue;
+                }
+                consumer.accept(result);
+            }
+        }
+    }
+
+    private boolean isLatest(JSONObject result, long location) {
+        if (!result.has("url")) {
+            return true;
+        }
+        int slot = Arrays.binarySearch(index.fingerprints(), UrlFingerprint.of(result.getString("url")));
+        return slot < 0 || index.locations()[slot] == location;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+
+    // Writes the latest result per URL as a pretty-printed JSON array, the layout of result.json. Returns the
+    // number of results written.
+    public static long toJson(Path archive, Path json) throws IOException {
+        Path tmp = json.resolveSibling(json.getFileName() + ".tmp");
+        long[] written = {0};
+        try (ResultArchive reader = open(archive);
+             BufferedWriter target = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            target.write("[");
+            reader.scan(null, true, result -> {
+                try {
+                    target.write(written[0] == 0 ? "\n    " : ",\n    ");
+                    target.write(result.toString(4).replace("\n", "\n    "));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                written[0]++;
+            });
+            target.write(written[0] == 0 ? "]" : "\n]");
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(tmp, json, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return written[0];
+    }
+
+    // Appends the results in a JSON array (result.json) or a file of one JSON object per line (result.ndjson) to
+    // an archive, creating it if needed. Returns the number of results read.
+    public static long fromJson(Path json, Path archive, int blockRecords, int compressionLevel) throws IOException {
+        long read = 0;
+        try (BufferedReader reader = Files.newBufferedReader(json, StandardCharsets.UTF_8);
+             ResultArchiveWriter writer = new ResultArchiveWriter(archive, blockRecords, compressionLevel)) {
+            reader.mark(1);
+            int first = reader.read();
+            while (first != -1 && Character.isWhitespace(first)) {
+                reader.mark(1);
+                first = reader.read();
+            }
+            if (first == -1) {
+                return 0;
+            }
+            reader.reset();
+            if (first == '[') {
+                // Streamed element by element so the array never has to fit in memory
+                JSONTokener tokener = new JSONTokener(reader);
+                tokener.nextClean();
+                char next = tokener.nextClean();
+                while (next != ']') {
+                    tokener.back();
+                    writer.append((JSONObject) tokener.nextValue());
+                    read++;
+                    next = tokener.nextClean();
+                    if (next == ',') {
+                        next = tokener.nextClean();
+                    } else if (next != ']') {
+                        throw new IOException("Malformed JSON array in " + json + ": " + tokener);
+                    }
+                }
+            } else {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        writer.append(new JSONObject(line));
+                        read++;
+                    }
+                }
+            }
+        } catch (ClassCastException | JSONException e) {
+            throw new IOException("Malformed result in " + json, e);
+        }
+        return read;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 3 || !Set.of("to-json", "from-json", "get").contains(args[0])) {
+            System.err.println("Usage: ResultArchive to-json <archive> <json> | from-json <json> <archive> | get <archive> <url>");
+            System.exit(2);
+        }
+        // Block size and compression level come from the same configuration file the crawler reads
+        CrawlerConfig config = CrawlerConfig.getInstance();
+        String configFile = System.getenv().getOrDefault("CRAWLER_CONFIG", "crawler.properties");
+        if (Files.exists(Path.of(configFile))) {
+            config.loadFromFile(configFile);
+        }
+        try {
+            switch (args[0]) {
+                case "to-json" -> System.out.println("Wrote " + toJson(Path.of(args[1]), Path.of(args[2])) + " results to " + args[2]);
+                case "from-json" -> System.out.println("Archived " + fromJson(Path.of(args[1]), Path.of(args[2]),
+                        config.getArchiveBlockRecords(), config.getArchiveCompressionLevel()) + " results into " + args[2]);
+                default -> {
+                    try (ResultArchive archive = open(Path.of(args[1]))) {
+                        JSONObject result = archive.get(args[2]);
+                        System.out.println(result == null ? "Not found: " + args[2] : result.toString(4));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // Keeps the last location given for each fingerprint
+    static Index buildIndex(long[] fingerprints, long[] locations, int count) {
+        int[] order = IntStream.range(0, count).boxed()
+                .sorted((a, b) -> Long.compare(fingerprints[a], fingerprints[b]))
+                .mapToInt(Integer::intValue).toArray();
+        long[] sortedFingerprints = new long[count];
+        long[] sortedLocations = new long[count];
+        int distinct = 0;
+        for (int i : order) {
+            if (distinct > 0 && sortedFingerprints[distinct - 1] == fingerprints[i]) {
+                sortedLocations[distinct - 1] = Math.max(sortedLocations[distinct - 1], locations[i]);
+                continue;
+            }
+            sortedFingerprints[distinct] = fingerprints[i];
+            sortedLocations[distinct] = locations[i];
+            distinct++;
+        }
+        return new Index(Arrays.copyOf(sortedFingerprints, distinct), Arrays.copyOf(sortedLocations, distinct));
+    }
+
+    private boolean readFooter() throws IOException {
+        long size = channel.size();
+        if (size < HEADER_BYTES + TRAILER_BYTES) {
+            return false;
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+        readFully(channel, trailer, size - TRAILER_BYTES);
+        long footerOffset = trailer.getLong(0);
+        if (trailer.getInt(8) != FOOTER_MAGIC || footerOffset < HEADER_BYTES || footerOffset > size - TRAILER_BYTES) {
+            return false;
+        }
+
+        ByteBuffer footer = ByteBuffer.allocate((int) (size - TRAILER_BYTES - footerOffset));
+        readFully(channel, footer, footerOffset);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(footer.array()))) {
+            if (in.readInt() != FOOTER_MAGIC) {
+                return false;
+            }
+            int hostCount = in.readInt();
+            for (int i = 0; i < hostCount; i++) {
+                hosts.add(in.readUTF());
+            }
+            blocks = in.readInt();
+            blockOffsets = new long[blocks];
+            blockRecords = new int[blocks];
+            for (int i = 0; i < blocks; i++) {
+                blockOffsets[i] = in.readLong();
+                blockRecords[i] = in.readInt();
+            }
+            int entries = in.readInt();
+            long[] fingerprints = new long[entries];
+            long[] locations = new long[entries];
+            for (int i = 0; i < entries; i++) {
+                fingerprints[i] = in.readLong();
+                locations[i] = in.readLong();
+            }
+            index = new Index(fingerprints, locations);
+        }
+        dataEnd = footerOffset;
+        return true;
+    }
+
+    // Rebuilds what the footer would have said from the blocks themselves
+    private void recover() throws IOException {
+        long size = channel.size();
+        long offset = HEADER_BYTES;
+        List<Long> offsets = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        long[] fingerprints = new long[1024];
+        long[] locations = new long[1024];
+        int entries = 0;
+        Set<String> urlOnly = Set.of("url");
+        while (offset < size) {
+            byte[] block = readBlockIfIntact(offset, size);
+            if (block == null) {
+                break;
+            }
+            int number = offsets.size();
+            List<JSONObject> records = ArchiveBlock.decode(block, hosts, urlOnly, inflater);
+            for (int position = 0; position < records.size(); position++) {
+                String url = records.get(position).optString("url", null);
+                if (url == null) {
+                    continue;
+                }
+                if (entries == fingerprints.length) {
+                    fingerprints = Arrays.copyOf(fingerprints, entries * 2);
+                    locations = Arrays.copyOf(locations, entries * 2);
+                }
+                fingerprints[entries] = UrlFingerprint.of(url);
+                locations[entries] = (long) number << 32 | position;
+                entries++;
+            }
+            offsets.add(offset);
+            counts.add(records.size());
+            offset += block.length;
+        }
+        if (offset < size) {
+            logger.warning(file + " has no footer; ignoring " + (size - offset) + " bytes after its last intact block");
+        } else {
+            logger.warning(file + " has no footer; rebuilt its index from " + offsets.size() + " blocks");
+        }
+        blocks = offsets.size();
+        blockOffsets = offsets.stream().mapToLong(Long::longValue).toArray();
+        blockRecords = counts.stream().mapToInt(Integer::intValue).toArray();
+        index = buildIndex(fingerprints, locations, entries);
+        dataEnd = offset;
+    }
+
+    private byte[] readBlockIfIntact(long offset, long size) throws IOException {
+        if (size - offset < 8) {
+            return null;
+        }
+        ByteBuffer start = ByteBuffer.allocate(8);
+        readFully(channel, start, offset);
+        int length = ArchiveBlock.blockLength(start);
+        if (length < 0 || length > size - offset) {
+            return null;
+        }
+        ByteBuffer block = ByteBuffer.allocate(length);
+        readFully(channel, block, offset);
+        return ArchiveBlock.isIntact(block.array()) ? block.array() : null;
+    }
+
+    private byte[] readBlock(long offset) throws IOException {
+        ByteBuffer start = ByteBuffer.allocate(8);
+        readFully(channel, start, offset);
+        int length = ArchiveBlock.blockLength(start);
+        if (length < 0) {
+            throw new IOException("No block at offset " + offset + " of " + file);
+        }
+        ByteBuffer block = ByteBuffer.allocate(length);
+        readFully(channel, block, offset);
+        return block.array();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of result archive");
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package Crawler;
+
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+// Appends results to a result archive (see ResultArchive for the layout). Results are collected into a block that
+// is compressed and written once it holds blockRecords results or flush is called; the footer is written on close.
+// An existing archive is continued: its footer is read, or rebuilt when it is missing, and then overwritten by the
+// new blocks. Not thread-safe.
+public class ResultArchiveWriter implements Closeable {
+    private final FileChannel channel;
+    private final Deflater deflater;
+    private final int blockRecords;
+    private final Map<String, Integer> hostIds = new HashMap<>();
+    private final List<String> hosts;
+
+    private long[] blockOffsets;
+    private int[] blockCounts;
+    private int blocks;
+    private long[] fingerprints;
+    private long[] locations;
+    private int entries;
+    private long end;
+    private ArchiveBlock block = new ArchiveBlock();
+    private boolean closed;
+
+    public ResultArchiveWriter(Path file, int blockRecords, int compressionLevel) throws IOException {
+        this.blockRecords = blockRecords;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        if (Files.exists(file) && Files.size(file) > 0) {
+            try (ResultArchive existing = ResultArchive.open(file)) {
+                hosts = existing.hosts;
+                blockOffsets = Arrays.copyOf(existing.blockOffsets, Math.max(16, existing.blocks));
+                blockCounts = Arrays.copyOf(existing.blockRecords, blockOffsets.length);
+                blocks = existing.blocks;
+                fingerprints = Arrays.copyOf(existing.index.fingerprints(), Math.max(1024, existing.size()));
+                locations = Arrays.copyOf(existing.index.locations(), fingerprints.length);
+                entries = existing.size();
+                end = existing.dataEnd;
+            }
+            channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            // The old footer, or whatever a crash left after the last intact block, is overwritten
+            channel.truncate(end);
+        } else {
+            hosts = new ArrayList<>();
+            blockOffsets = new long[16];
+            blockCounts = new int[16];
+            fingerprints = new long[1024];
+            locations = new long[1024];
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            ByteBuffer header = ByteBuffer.allocate(ResultArchive.HEADER_BYTES);
+            header.putInt(ResultArchive.MAGIC).putInt(ResultArchive.VERSION).flip();
+            writeFully(header, 0);
+            end = ResultArchive.HEADER_BYTES;
+        }
+        for (int i = 0; i < hosts.size(); i++) {
+            hostIds.put(hosts.get(i), i);
+        }
+        this.deflater = new Deflater(compressionLevel);
+    }
+
+    public void append(JSONObject result) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Result archive is closed");
+        }
+        String url = result.optString("url", null);
+        if (url != null) {
+            if (entries == fingerprints.length) {
+                fingerprints = Arrays.copyOf(fingerprints, entries * 2);
+                locations = Arrays.copyOf(locations, entries * 2);
+            }
+            fingerprints[entries] = UrlFingerprint.of(url);
+            locations[entries] = (long) blocks << 32 | block.records();
+            entries++;
+        }
+        block.add(result, hostIds, hosts);
+        if (block.records() >= blockRecords) {
+            flush();
+        }
+    }
+
+    // Results waiting in the current block
+    public int pending() {
+        return block.records();
+    }
+
+    // Compresses and writes the current block, if it has any results
+    public void flush() throws IOException {
+        if (block.records() == 0) {
+            return;
+        }
+        byte[] encoded = block.encode(deflater);
+        writeFully(ByteBuffer.wrap(encoded), end);
+        if (blocks == blockOffsets.length) {
+            blockOffsets = Arrays.copyOf(blockOffsets, blocks * 2);
+            blockCounts = Arrays.copyOf(blockCounts, blocks * 2);
+        }
+        blockOffsets[blocks] = end;
+        blockCounts[blocks] = block.records();
+        blocks++;
+        end += encoded.length;
+        block = new ArchiveBlock();
+    }
+
+    public void sync() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        close(false);
+    }
+
+    // Writes the last block and the footer, syncing the file to disk first if asked
+    public void close(boolean fsync) throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+            writeFooter();
+            if (fsync) {
+                sync();
+            }
+        } finally {
+            deflater.end();
+            channel.close();
+        }
+    }
+
+    private void writeFooter() throws IOException {
+        ResultArchive.Index index = ResultArchive.buildIndex(fingerprints, locations, entries);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(ResultArchive.FOOTER_MAGIC);
+            out.writeInt(hosts.size());
+            for (String host : hosts) {
+                out.writeUTF(host);
+            }
+            out.writeInt(blocks);
+            for (int i = 0; i < blocks; i++) {
+                out.writeLong(blockOffsets[i]);
+                out.writeInt(blockCounts[i]);
+            }
+            out.writeInt(index.fingerprints().length);
+            for (int i = 0; i < index.fingerprints().length; i++) {
+                out.writeLong(index.fingerprints()[i]);
+                out.writeLong(index.locations()[i]);
+            }
+            out.writeLong(end);
+            out.writeInt(ResultArchive.FOOTER_MAGIC);
+        }
+        writeFully(ByteBuffer.wrap(bytes.toByteArray()), end);
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package Crawler;
+
+import org.json.JSONObject;
+
+// Destination for matched crawl results. Implementations must be safe to call from many workers at once.
+public interface ResultSink extends AutoCloseable {
+
+    void write(JSONObject result);
+
+    // Flushes buffered results and releases resources. Calling close more than once has no effect.
+    @Override
+    void close();
+
+    // Writes every result to both sinks
+    static ResultSink tee(ResultSink first, ResultSink second) {
+        return new ResultSink() {
+            @Override
+            public void write(JSONObject result) {
+                first.write(result);
+                second.write(result);
+            }
+
+            @Override
+            public void close() {
+                first.close();
+                second.close();
+            }
+        };
+    }
+}
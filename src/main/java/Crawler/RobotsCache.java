@@ -0,0 +1,144 @@
+package Crawler;
+
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+// Bounded cache of compiled robots.txt rules per site (scheme, host and port). Entries expire after a TTL
+// and the least recently used site is evicted when the cache is full. Concurrent lookups for the same site
+// share one in-flight fetch, and hosts can be prefetched as soon as they enter the frontier so that the check
+// on the crawl path is normally a cache hit.
+public final class RobotsCache {
+    private static final Logger logger = Logger.getLogger(RobotsCache.class.getName());
+    // Failed fetches are retried sooner than successful ones are refreshed
+    private static final long ERROR_TTL_MILLIS = 5 * 60 * 1000;
+
+    private static volatile RobotsCache instance;
+
+    private final Map<String, Entry> entries;
+    private final Map<String, Long> crawlDelays = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final String userAgent;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private record Entry(CompletableFuture<RobotsRules> rules, long expiresAt) {
+    }
+
+    private RobotsCache(int maxEntries, long ttlMillis, String userAgent) {
+        this.ttlMillis = ttlMillis;
+        this.userAgent = userAgent;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        CrawlMetrics metrics = CrawlMetrics.getInstance();
+        metrics.registerCounter("crawler_robots_cache_hits_total", "robots.txt lookups answered from the cache", hits::sum);
+        metrics.registerCounter("crawler_robots_cache_misses_total", "robots.txt lookups that had to fetch the file", misses::sum);
+        metrics.registerGauge("crawler_robots_cache_hit_ratio", "Share of robots.txt lookups answered from the cache", () -> {
+            long lookups = hits.sum() + misses.sum();
+            return lookups == 0 ? 0 : (double) hits.sum() / lookups;
+        });
+    }
+
+    public static RobotsCache getInstance() {
+        RobotsCache cache = instance;
+        if (cache == null) {
+            synchronized (RobotsCache.class) {
+                cache = instance;
+                if (cache == null) {
+                    CrawlerConfig config = CrawlerConfig.getInstance();
+                    cache = new RobotsCache(config.getRobotsCacheSize(), config.getRobotsTtlMillis(), config.getUserAgent());
+                    instance = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    public boolean isAllowed(String scheme, String authority, String host, CharSequence path, int start, int end) {
+        try {
+            return rulesFor(scheme, authority, host).get().isAllowed(path, start, end);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        } catch (ExecutionException e) {
+            return true;
+        }
+    }
+
+    // Starts fetching robots.txt for the site in the background if it is not cached yet
+    public void prefetch(String scheme, String authority, String host) {
+        rulesFor(scheme, authority, host);
+    }
+
+    public long getCrawlDelayMillis(String host) {
+        return crawlDelays.getOrDefault(host, 0L);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private CompletableFuture<RobotsRules> rulesFor(String scheme, String authority, String host) {
+        String site = scheme + "://" + authority;
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(site);
+            if (entry != null && entry.expiresAt() > now) {
+                hits.increment();
+                return entry.rules();
+            }
+            misses.increment();
+            // Placeholder first so that concurrent callers wait on this fetch instead of starting their own
+            CompletableFuture<RobotsRules> rules = new CompletableFuture<>();
+            entries.put(site, new Entry(rules, now + ttlMillis));
+            fetch(site, host, rules);
+            return rules;
+        }
+    }
+
+    private void fetch(String site, String host, CompletableFuture<RobotsRules> result) {
+        HttpFetcher.getInstance()
+                .sendAsync(URI.create(site + "/robots.txt"), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    RobotsRules rules;
+                    if (error == null && response.statusCode() == 200) {
+                        rules = RobotsRules.parse(response.body(), userAgent);
+                    } else {
+                        // A missing or unreadable robots.txt places no restrictions
+                        rules = RobotsRules.ALLOW_ALL;
+                        if (error != null || response.statusCode() >= 500) {
+                            logger.fine("Could not fetch robots.txt for " + site + "; allowing all paths for now");
+                            expireSooner(site, result);
+                        }
+                    }
+                    if (rules.getCrawlDelayMillis() > 0) {
+                        crawlDelays.merge(host, rules.getCrawlDelayMillis(), Math::max);
+                    }
+                    result.complete(rules);
+                });
+    }
+
+    private void expireSooner(String site, CompletableFuture<RobotsRules> rules) {
+        synchronized (entries) {
+            Entry entry = entries.get(site);
+            if (entry != null && entry.rules() == rules) {
+                entries.put(site, new Entry(rules, System.currentTimeMillis() + Math.min(ttlMillis, ERROR_TTL_MILLIS)));
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package Crawler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// robots.txt rules for one site, compiled into a character trie. Matching walks the path once, tracking the few
+// trie nodes that are live at each position (more than one only when patterns contain '*'), so a check costs
+// O(path length) instead of a scan over every rule. Follows RFC 9309: the longest matching pattern wins and
+// Allow wins a tie. '*' matches any run of characters and a trailing '$' anchors the pattern at the end of the path.
+// Patterns and paths are percent-encoding normalized the same way before they meet, so /p%7Eq and /p~q are one path.
+public final class RobotsRules {
+    public static final RobotsRules ALLOW_ALL = new RobotsRules(new Node(), 0);
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final Node root;
+    private final long crawlDelayMillis;
+
+    private RobotsRules(Node root, long crawlDelayMillis) {
+        this.root = root;
+        this.crawlDelayMillis = crawlDelayMillis;
+    }
+
+    public long getCrawlDelayMillis() {
+        return crawlDelayMillis;
+    }
+
+    public boolean isAllowed(CharSequence path) {
+        return isAllowed(path, 0, path.length());
+    }
+
+    // Checks the path (plus query) between start and end, copying it only if it needs normalizing
+    public boolean isAllowed(CharSequence path, int start, int end) {
+        if (root.children.isEmpty() && root.star == null) {
+            return true;
+        }
+        if (needsNormalizing(path, start, end)) {
+            String normalized = normalize(path, start, end);
+            return matches(normalized, 0, normalized.length());
+        }
+        return matches(path, start, end);
+    }
+
+    private boolean matches(CharSequence path, int start, int end) {
+
+        Match best = new Match();
+        List<Node> active = new ArrayList<>(4);
+        List<Node> next = new ArrayList<>(4);
+        addWithStar(active, root);
+        for (Node node : active) {
+            best.consider(node.prefixLength, node.prefixAllow);
+        }
+
+        for (int i = start; i < end && !active.isEmpty(); i++) {
+            char c = path.charAt(i);
+            next.clear();
+            for (Node node : active) {
+                if (node.isStar) {
+                    addWithStar(next, node);
+                }
+                Node child = node.children.get(c);
+                if (child != null) {
+                    addWithStar(next, child);
+                }
+            }
+            for (Node node : next) {
+                best.consider(node.prefixLength, node.prefixAllow);
+            }
+            List<Node> swap = active;
+            active = next;
+            next = swap;
+        }
+
+        for (Node node : active) {
+            best.consider(node.endLength, node.endAllow);
+        }
+        return best.allow;
+    }
+
+    // Parses robots.txt, keeping the group for the most specific user-agent token contained in our user agent,
+    // or the '*' group if none matches
+    public static RobotsRules parse(String content, String userAgent) {
+        String agent = userAgent.toLowerCase(Locale.ROOT);
+        List<String[]> bestRules = null;
+        double bestDelay = 0;
+        int bestAgentLength = -1;
+
+        List<String> groupAgents = new ArrayList<>();
+        List<String[]> groupRules = new ArrayList<>();
+        double groupDelay = 0;
+        boolean inRules = false;
+
+        for (String rawLine : content.split("\r\n|\r|\n")) {
+            int comment = rawLine.indexOf('#');
+            String line = (comment >= 0 ? rawLine.substring(0, comment) : rawLine).trim();
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String field = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+
+            if (field.equals("user-agent")) {
+                if (inRules) {
+                    int matched = matchLength(groupAgents, agent);
+                    if (matched > bestAgentLength) {
+                        bestAgentLength = matched;
+                        bestRules = groupRules;
+                        bestDelay = groupDelay;
+                    }
+                    groupAgents = new ArrayList<>();
+                    groupRules = new ArrayList<>();
+                    groupDelay = 0;
+                    inRules = false;
+                }
+                groupAgents.add(value.toLowerCase(Locale.ROOT));
+            } else if (field.equals("allow") || field.equals("disallow")) {
+                inRules = true;
+                if (!value.isEmpty()) {
+                    groupRules.add(new String[]{field, value});
+                }
+            } else if (field.equals("crawl-delay")) {
+                inRules = true;
+                try {
+                    groupDelay = Double.parseDouble(value);
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        int matched = matchLength(groupAgents, agent);
+        if (matched > bestAgentLength) {
+            bestRules = groupRules;
+            bestDelay = groupDelay;
+        }
+
+        if (bestRules == null) {
+            return ALLOW_ALL;
+        }
+        Node root = new Node();
+        for (String[] rule : bestRules) {
+            insert(root, normalize(rule[1], 0, rule[1].length()), rule[0].equals("allow"));
+        }
+        return new RobotsRules(root, (long) (bestDelay * 1000));
+    }
+
+    // Length of the user-agent token that applies to us: 0 for '*', -1 if the group is not for us
+    private static int matchLength(List<String> groupAgents, String agent) {
+        int best = -1;
+        for (String groupAgent : groupAgents) {
+            if (groupAgent.equals("*")) {
+                best = Math.max(best, 0);
+            } else if (!groupAgent.isEmpty() && agent.contains(groupAgent)) {
+                best = Math.max(best, groupAgent.length());
+            }
+        }
+        return best;
+    }
+
+    private static void insert(Node root, String pattern, boolean allow) {
+        boolean anchored = pattern.endsWith("$");
+        int end = anchored ? pattern.length() - 1 : pattern.length();
+        Node node = root;
+        for (int i = 0; i < end; i++) {
+            char c = pattern.charAt(i);
+            if (c == '*') {
+                if (node.star == null) {
+                    node.star = new Node();
+                    node.star.isStar = true;
+                }
+                node = node.star;
+            } else {
+                node = node.children.computeIfAbsent(c, k -> new Node());
+            }
+        }
+        if (anchored) {
+            if (pattern.length() > node.endLength || (pattern.length() == node.endLength && allow)) {
+                node.endLength = pattern.length();
+                node.endAllow = allow;
+            }
+        } else if (pattern.length() > node.prefixLength || (pattern.length() == node.prefixLength && allow)) {
+            node.prefixLength = pattern.length();
+            node.prefixAllow = allow;
+        }
+    }
+
+    private static boolean needsNormalizing(CharSequence s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '%' || c >= 0x80) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // RFC 9309 section 2.2.2: an escaped unreserved character (letter, digit, '-', '.', '_', '~') stands for the
+    // character itself and is decoded, other escapes are upper-cased, and non-ASCII characters are escaped as UTF-8
+    static String normalize(CharSequence s, int start, int end) {
+        if (!needsNormalizing(s, start, end)) {
+            return s.subSequence(start, end).toString();
+        }
+        StringBuilder out = new StringBuilder(end - start + 8);
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            int high = c == '%' && i + 2 < end ? hexValue(s.charAt(i + 1)) : -1;
+            int low = high >= 0 ? hexValue(s.charAt(i + 2)) : -1;
+            if (low >= 0) {
+                int value = high << 4 | low;
+                if (isUnreserved(value)) {
+                    out.append((char) value);
+                } else {
+                    appendEscaped(out, value);
+                }
+                i += 2;
+            } else if (c >= 0x80) {
+                int codePoint = Character.codePointAt(s, i);
+                for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8)) {
+                    appendEscaped(out, b & 0xff);
+                }
+                i += Character.charCount(codePoint) - 1;
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    // Value of an ASCII hex digit, or -1
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static boolean isUnreserved(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static void appendEscaped(StringBuilder out, int value) {
+        out.append('%').append(HEX[value >> 4]).append(HEX[value & 0xf]);
+    }
+
+    // A '*' can match nothing, so reaching a node also reaches its star child
+    private static void addWithStar(List<Node> nodes, Node node) {
+        while (node != null) {
+            if (!nodes.contains(node)) {
+                nodes.add(node);
+            }
+            node = node.star;
+        }
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private Node star;
+        private boolean isStar;
+        // Pattern length of a rule ending here (-1 if none), matched as a prefix or only at the end of the path
+        private int prefixLength = -1;
+        private boolean prefixAllow;
+        private int endLength = -1;
+        private boolean endAllow;
+    }
+
+    private static final class Match {
+        private int length = -1;
+        private boolean allow = true;
+
+        void consider(int ruleLength, boolean ruleAllow) {
+            if (ruleLength > length || (ruleLength == length && ruleAllow && ruleLength >= 0)) {
+                length = ruleLength;
+                allow = ruleAllow;
+            }
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package Crawler;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Seeds from the Google Custom Search JSON API, or from any server that answers in its format at
+// seed_search_url. The API returns at most 10 results a call and 100 a query, so larger requests page through
+// with start=. The first page says how many results there are; the pages after it are then requested all at
+// once. Every response is cached on disk per query and page, so crawls of the same keyword within
+// seed_cache_ttl_ms cost no API calls.
+//
+// Calls are counted against seed_daily_quota (the free tier allows 100 a day), and the count is kept in the
+// cache directory so it carries over between runs. When the API answers with a rate limit the provider backs
+// off, and when it reports the daily quota used up no more calls are made until the next UTC day. Either way
+// a stale cached answer is used if there is one.
+public class SearchApiSeedProvider implements SeedProvider {
+    private static final Logger logger = Logger.getLogger(SearchApiSeedProvider.class.getName());
+    private static final int RESULTS_PER_PAGE = 10;
+    private static final int MAX_RESULTS_PER_QUERY = 100;
+    private static final long DEFAULT_RATE_LIMIT_BACKOFF_MILLIS = 60_000;
+    private static final String QUOTA_FILE = "quota";
+    private static final String EXHAUSTED = "exhausted";
+
+    private final String endpoint;
+    private final String apiKey;
+    private final String searchEngineId;
+    private final SearchResponseCache cache;
+    private final Path quotaFile;
+    private final int dailyQuota;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+
+    private LocalDate quotaDay;
+    private int quotaUsed;
+    // Set when the API itself reports the quota used up, which also holds when seed_daily_quota is 0 (no limit)
+    private boolean quotaExhausted;
+    private long backoffUntilMillis;
+
+    public SearchApiSeedProvider(String endpoint, String apiKey, String searchEngineId, Path cacheDir, long cacheTtlMillis, int dailyQuota) {
+        this.endpoint = endpoint;
+        this.apiKey = apiKey;
+        this.searchEngineId = searchEngineId;
+        this.cache = new SearchResponseCache(cacheDir, cacheTtlMillis);
+        this.quotaFile = cacheDir.resolve(QUOTA_FILE);
+        this.dailyQuota = dailyQuota;
+        loadQuota();
+
+        CrawlMetrics metrics = CrawlMetrics.getInstance();
+        metrics.registerCounter("crawler_seed_requests_total", "Search API calls made for seed URLs", requests::sum);
+        metrics.registerCounter("crawler_seed_cache_hits_total", "Search result pages served from the seed cache", cacheHits::sum);
+    }
+
+    public static SearchApiSeedProvider fromConfig(CrawlerConfig config) {
+        Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
+        return new SearchApiSeedProvider(config.getSeedSearchUrl(), dotenv.get("GOOGLE_API_KEY"), dotenv.get("GOOGLE_SEARCH_ENGINE_ID"),
+                Path.of(config.getSeedCacheDir()), config.getSeedCacheTtlMillis(), config.getSeedDailyQuota());
+    }
+
+    @Override
+    public List<String> seeds(String query, int maxResults) throws IOException, InterruptedException {
+        int pages = (Math.min(maxResults, MAX_RESULTS_PER_QUERY) + RESULTS_PER_PAGE - 1) / RESULTS_PER_PAGE;
+        Set<String> seeds = new LinkedHashSet<>();
+
+        JSONObject first = await(page(query, 1));
+        if (first == null) {
+            return List.of();
+        }
+        addLinks(first, seeds);
+        pages = Math.min(pages, availablePages(first));
+
+        List<CompletableFuture<JSONObject>> rest = new ArrayList<>();
+        for (int page = 1; page < pages; page++) {
+            rest.add(page(query, 1 + page * RESULTS_PER_PAGE));
+        }
+        for (CompletableFuture<JSONObject> future : rest) {
+            JSONObject results = await(future);
+            if (results != null) {
+                addLinks(results, seeds);
+            }
+        }
+        return seeds.stream().limit(maxResults).toList();
+    }
+
+    // One page of results, from the cache when fresh, else from the API, else from the cache however old
+    private CompletableFuture<JSONObject> page(String query, int start) {
+        byte[] cached = cache.get(query, start, false);
+        if (cached != null) {
+            cacheHits.increment();
+            return CompletableFuture.completedFuture(parse(cached, query, start));
+        }
+        if (!tryAcquireQuota()) {
+            logger.warning("Skipping search call for \"" + query + "\" (start=" + start + "): daily quota used up or backing off");
+            return CompletableFuture.completedFuture(stale(query, start));
+        }
+
+        requests.increment();
+        URI uri = URI.create(String.format("%s?q=%s&start=%d&num=%d&key=%s&cx=%s", endpoint,
+                URLEncoder.encode(query, StandardCharsets.UTF_8), start, RESULTS_PER_PAGE,
+                URLEncoder.encode(String.valueOf(apiKey), StandardCharsets.UTF_8),
+                URLEncoder.encode(String.valueOf(searchEngineId), StandardCharsets.UTF_8)));
+        return HttpFetcher.getInstance().sendAsync(uri, HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        logger.log(Level.WARNING, "Error fetching search results for \"" + query + "\" (start=" + start + ")", error);
+                        return stale(query, start);
+                    }
+                    if (response.statusCode() == 200) {
+                        cache.put(query, start, response.body());
+                        return parse(response.body(), query, start);
+                    }
+                    onError(response);
+                    return stale(query, start);
+                });
+    }
+
+    private JSONObject stale(String query, int start) {
+        byte[] cached = cache.get(query, start, true);
+        if (cached == null) {
+            return null;
+        }
+        logger.info("Using cached search results for \"" + query + "\" (start=" + start + ") past their TTL");
+        cacheHits.increment();
+        return parse(cached, query, start);
+    }
+
+    private static JSONObject parse(byte[] body, String query, int start) {
+        try {
+            return new JSONObject(new String(body, StandardCharsets.UTF_8));
+        } catch (JSONException e) {
+            logger.warning("Malformed search response for \"" + query + "\" (start=" + start + "): " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Rate limits come back as 429, or as 403 with a reason; only the daily quota outlasts a backoff
+    private void onError(HttpResponse<byte[]> response) {
+        String reason = "";
+        try {
+            JSONObject error = new JSONObject(new String(response.body(), StandardCharsets.UTF_8)).optJSONObject("error");
+            JSONArray errors = error == null ? null : error.optJSONArray("errors");
+            if (errors != null && !errors.isEmpty()) {
+                reason = errors.getJSONObject(0).optString("reason");
+            }
+        } catch (JSONException ignored) {
+            // Not a JSON error body; the status alone decides
+        }
+
+        if (reason.equals("dailyLimitExceeded") || reason.equals("quotaExceeded")) {
+            logger.warning("Search API quota exhausted for today (" + reason + ")");
+            exhaustQuota();
+        } else if (response.statusCode() == 429 || reason.toLowerCase().endsWith("ratelimitexceeded")) {
+            long retryAfter = HostRateController.parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null), System.currentTimeMillis());
+            long backoff = retryAfter > 0 ? retryAfter : DEFAULT_RATE_LIMIT_BACKOFF_MILLIS;
+            logger.warning("Search API rate limited; pausing calls for " + backoff + " ms");
+            synchronized (this) {
+                backoffUntilMillis = Math.max(backoffUntilMillis, System.currentTimeMillis() + backoff);
+            }
+        } else {
+            logger.warning("Failed to fetch search results: HTTP " + response.statusCode() + (reason.isEmpty() ? "" : " (" + reason + ")"));
+        }
+    }
+
+    // Pages worth asking for, going by the first page's result count and whether it links a next page
+    private static int availablePages(JSONObject first) {
+        JSONObject queries = first.optJSONObject("queries");
+        if (queries == null || !queries.has("nextPage")) {
+            return 1;
+        }
+        JSONObject information = first.optJSONObject("searchInformation");
+        long total = information == null ? MAX_RESULTS_PER_QUERY : information.optLong("totalResults", MAX_RESULTS_PER_QUERY);
+        return (int) Math.max(1, (Math.min(total, MAX_RESULTS_PER_QUERY) + RESULTS_PER_PAGE - 1) / RESULTS_PER_PAGE);
+    }
+
+    private static void addLinks(JSONObject results, Set<String> seeds) {
+        JSONArray items = results.optJSONArray("items");
+        if (items == null) {
+            return;
+        }
+        for (int i = 0; i < items.length(); i++) {
+            String link = items.getJSONObject(i).optString("link", null);
+            if (link != null && !link.isBlank()) {
+                seeds.add(link);
+            }
+        }
+    }
+
+    private static JSONObject await(CompletableFuture<JSONObject> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Search request failed", e.getCause());
+        }
+    }
+
+    private synchronized boolean tryAcquireQuota() {
+        long now = System.currentTimeMillis();
+        if (now < backoffUntilMillis) {
+            return false;
+        }
+        rollQuotaDay();
+        if (quotaExhausted || (dailyQuota > 0 && quotaUsed >= dailyQuota)) {
+            return false;
+        }
+        quotaUsed++;
+        saveQuota();
+        if (dailyQuota > 0 && quotaUsed == dailyQuota) {
+            logger.warning("Search API daily quota of " + dailyQuota + " calls reached");
+        }
+        return true;
+    }
+
+    private synchronized void exhaustQuota() {
+        rollQuotaDay();
+        quotaExhausted = true;
+        saveQuota();
+    }
+
+    // The API's own quota resets at midnight Pacific time; a UTC day is close enough for a local count
+    private void rollQuotaDay() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        if (!today.equals(quotaDay)) {
+            quotaDay = today;
+            quotaUsed = 0;
+            quotaExhausted = false;
+        }
+    }
+
+    private synchronized void loadQuota() {
+        rollQuotaDay();
+        try {
+            if (Files.exists(quotaFile)) {
+                String[] fields = Files.readString(quotaFile).trim().split(" ");
+                if (fields.length >= 2 && LocalDate.parse(fields[0]).equals(quotaDay)) {
+                    quotaUsed = Integer.parseInt(fields[1]);
+                    // Older files marked an exhausted quota by setting the count to its maximum
+                    quotaExhausted = (fields.length == 3 && fields[2].equals(EXHAUSTED)) || quotaUsed == Integer.MAX_VALUE;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Could not read search quota from " + quotaFile + "; starting the count at 0", e);
+        }
+    }
+
+    private void saveQuota() {
+        try {
+            Files.createDirectories(quotaFile.getParent());
+            Files.writeString(quotaFile, quotaDay + " " + quotaUsed + (quotaExhausted ? " " + EXHAUSTED : "") + "\n");
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not save search quota to " + quotaFile, e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package Crawler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Search API responses on disk, one file per query and result page. A file starts with the query and page it
+// answers, so a hash collision reads as a miss rather than another query's results. Entries older than the
+// TTL are misses too, but are kept: when the API cannot be reached a stale answer beats none.
+public class SearchResponseCache {
+    private static final Logger logger = Logger.getLogger(SearchResponseCache.class.getName());
+
+    private final Path dir;
+    private final long ttlMillis;
+
+    public SearchResponseCache(Path dir, long ttlMillis) {
+        this.dir = dir;
+        this.ttlMillis = ttlMillis;
+    }
+
+    // The cached response body, or null when there is none or it has expired and allowStale is false
+    public byte[] get(String query, int start, boolean allowStale) {
+        Path file = fileFor(query, start);
+        try {
+            if (!Files.exists(file)
+                    || (!allowStale && System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() > ttlMillis)) {
+                return null;
+            }
+            byte[] content = Files.readAllBytes(file);
+            byte[] header = headerFor(query, start);
+            if (content.length < header.length || !Arrays.equals(content, 0, header.length, header, 0, header.length)) {
+                return null;
+            }
+            return Arrays.copyOfRange(content, header.length, content.length);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Could not read cached search response " + file, e);
+            return null;
+        }
+    }
+
+    public void put(String query, int start, byte[] body) {
+        Path file = fileFor(query, start);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(dir);
+            byte[] header = headerFor(query, start);
+            byte[] content = Arrays.copyOf(header, header.length + body.length);
+            System.arraycopy(body, 0, content, header.length, body.length);
+            Files.write(tmp, content);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not cache search response in " + file, e);
+        }
+    }
+
+    private Path fileFor(String query, int start) {
+        byte[] header = headerFor(query, start);
+        return dir.resolve(String.format("%016x.json", XxHash64.hash(header)));
+    }
+
+    private static byte[] headerFor(String query, int start) {
+        return (query.replace('\n', ' ') + "\t" + start + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
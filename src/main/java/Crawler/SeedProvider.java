@@ -0,0 +1,25 @@
+package Crawler;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+// Source of the URLs a crawl starts from when none are given.
+public interface SeedProvider {
+
+    // Up to maxResults URLs for the query, best first. An empty list means nothing was found or the source is
+    // unavailable; IOException is for failures the caller should report.
+    List<String> seeds(String query, int maxResults) throws IOException, InterruptedException;
+
+    static SeedProvider fromConfig(CrawlerConfig config) {
+        return switch (config.getSeedProvider()) {
+            case GOOGLE -> SearchApiSeedProvider.fromConfig(config);
+            case FILE -> new FileSeedProvider(Path.of(config.getSeedFile()));
+        };
+    }
+
+    enum Type {
+        GOOGLE,     // Google Custom Search JSON API, or any server answering in its format at seed_search_url
+        FILE        // one URL per line from seed_file, for offline runs
+    }
+}
@@ -0,0 +1,63 @@
+package Crawler;
+
+// 64-bit SimHash of a page's text. Every run of three consecutive words is hashed, and each bit of the result
+// is set if more shingles have it set than not. Pages that share most of their shingles end up a few bits
+// apart, so mirrors, syndicated copies and pages differing only in boilerplate sit within a small Hamming
+// distance of each other. Words are letters and digits, compared case-insensitively.
+public final class SimHash {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private SimHash() {
+    }
+
+    // Returns the fingerprint; words[0] is set to the number of words seen
+    public static long of(CharSequence text, int[] words) {
+        int[] weights = new int[64];
+        long previous2 = 0;
+        long previous1 = 0;
+        long hash = FNV_OFFSET_BASIS;
+        boolean inWord = false;
+        int count = 0;
+
+        for (int i = 0, length = text.length(); i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                hash = (hash ^ Character.toLowerCase(c)) * FNV_PRIME;
+                inWord = true;
+            } else if (inWord) {
+                long word = UrlFingerprint.mix(hash);
+                if (++count >= 3) {
+                    add(weights, UrlFingerprint.mix(previous2 ^ Long.rotateLeft(previous1, 21) ^ Long.rotateLeft(word, 42)));
+                }
+                previous2 = previous1;
+                previous1 = word;
+                hash = FNV_OFFSET_BASIS;
+                inWord = false;
+            }
+        }
+        // Too short for a full shingle: the words themselves are the only feature
+        if (count > 0 && count < 3) {
+            add(weights, UrlFingerprint.mix(previous2 ^ Long.rotateLeft(previous1, 21)));
+        }
+
+        words[0] = count;
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    private static void add(int[] weights, long feature) {
+        for (int bit = 0; bit < 64; bit++) {
+            weights[bit] += (int) ((feature >>> bit) & 1) * 2 - 1;
+        }
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
@@ -0,0 +1,60 @@
+package Crawler;
+
+import org.json.JSONObject;
+
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Bounded hand-off between the crawl threads and a result sink's single writer thread. Producers wait in short
+// steps rather than blocking on put, so that once the writer has died they fail instead of waiting for space
+// that will never be freed.
+final class SinkQueue {
+    // Marks the end of the stream for the writer thread
+    static final JSONObject END_OF_STREAM = new JSONObject();
+    private static final long RECHECK_MILLIS = 100;
+
+    private final BlockingQueue<JSONObject> queue;
+    private volatile Throwable failure;
+
+    SinkQueue(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    void put(JSONObject result) throws InterruptedException {
+        do {
+            if (failure != null) {
+                throw new IllegalStateException("Result sink writer failed", failure);
+            }
+        } while (!queue.offer(result, RECHECK_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    // Queues the end of the stream; false if the writer failed and will never read it
+    boolean finish() throws InterruptedException {
+        while (failure == null) {
+            if (queue.offer(END_OF_STREAM, RECHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Called by the writer thread when it stops before reaching the end of the stream
+    void failed(Throwable cause) {
+        failure = cause;
+        queue.clear();
+    }
+
+    boolean hasFailed() {
+        return failure != null;
+    }
+
+    JSONObject poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    int drainTo(Collection<JSONObject> batch, int maxElements) {
+        return queue.drainTo(batch, maxElements);
+    }
+}
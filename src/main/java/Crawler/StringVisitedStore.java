@@ -0,0 +1,64 @@
+package Crawler;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps every full URL string. Exact, but costs well over a hundred bytes per URL.
+public class StringVisitedStore implements VisitedStore {
+    // Rough per-entry overhead of a ConcurrentHashMap node plus String and array headers
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+
+    private final Set<String> urls = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final LongAdder urlBytes = new LongAdder();
+
+    @Override
+    public boolean add(String url) {
+        if (urls.add(url)) {
+            urlBytes.add(ENTRY_OVERHEAD_BYTES + url.length());
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(String url) {
+        return urls.contains(url);
+    }
+
+    @Override
+    public long size() {
+        return urls.size();
+    }
+
+    @Override
+    public long memoryBytes() {
+        return urlBytes.sum();
+    }
+
+    @Override
+    public void save(DataOutputStream out) throws IOException {
+        // Length-prefixed UTF-8 entries ended by a length of -1. Entries added during the walk may or may not be
+        // included, so no count is written up front.
+        for (String url : urls) {
+            byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.writeInt(-1);
+    }
+
+    @Override
+    public void load(DataInputStream in) throws IOException {
+        for (int length = in.readInt(); length >= 0; length = in.readInt()) {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            add(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+}
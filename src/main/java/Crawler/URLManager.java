@@ -1,159 +1,112 @@
 package Crawler;
 
-import java.io.IOException;
-import java.net.URL;
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Pattern;
-
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-
 public class URLManager {
     // Thread-safe set to track visited URLs
-    private static final Set<String> visitedUrls = Collections.newSetFromMap(new ConcurrentHashMap<>());
-
-    // Track the last access time for each domain for politeness
-    private static final Map<String, Long> lastAccessTimes = new ConcurrentHashMap<>();
-
-    // Track robots.txt rules
-    private static final Map<String, Set<String>> robotsDisallowRules = new ConcurrentHashMap<>();
+    private static volatile VisitedStore visitedUrls = new StringVisitedStore();
 
-    // Politeness delay (milliseconds)
-    private static final long POLITENESS_DELAY = 1000;
-
-    // Common binary file extensions to avoid
-    private static final Pattern BINARY_EXTENSIONS = Pattern.compile(
-            ".*\\.(jpg|jpeg|png|gif|bmp|webp|mp3|mp4|wav|avi|mov|wmv|flv|pdf|doc|docx|xls|xlsx|ppt|pptx|zip|rar|tar|gz|exe|dmg|iso|bin)$",
-            Pattern.CASE_INSENSITIVE
-    );
+    // Swaps the visited-URL storage. Call before crawling starts; URLs in the previous store are not carried over.
+    public static void useVisitedStore(VisitedStore store) {
+        visitedUrls = store;
+    }
 
     public static boolean visit(String url) {
         return visitedUrls.add(url);
     }
 
+    // Canonical form of an http(s) URL, or null if the URL cannot be crawled
+    public static String canonicalize(String url) {
+        UrlCanonicalizer canonicalizer = UrlCanonicalizer.get();
+        return canonicalizer.parse(url) ? canonicalizer.canonical() : null;
+    }
+
     public static boolean shouldProcess(String url) {
         // Skip empty URLs
         if (url == null || url.isEmpty()) {
             return false;
         }
 
-        try {
-            URL parsedUrl = new URL(url);
-            String protocol = parsedUrl.getProtocol();
-
-            if (!protocol.equals("http") && !protocol.equals("https")) {
-                return false;
-            }
-
-            if (url.contains("#")) {
-                String baseUrl = url.substring(0, url.indexOf('#'));
-                if (visitedUrls.contains(baseUrl)) {
-                    return false;
-                }
-            }
-
-            if (BINARY_EXTENSIONS.matcher(url).matches()) {
-                return false;
-            }
+        UrlCanonicalizer canonicalizer = UrlCanonicalizer.get();
+        return canonicalizer.parse(url) && shouldProcess(canonicalizer);
+    }
 
-            if (!isAllowedByRobotsTxt(url)) {
-                return false;
-            }
+    // Canonicalizes, filters and marks the URL visited, parsing it only once. Returns the canonical URL
+    // if the caller should crawl it, or null if it is filtered out or was already claimed.
+    public static String claim(String url) {
+        UrlCanonicalizer canonicalizer = UrlCanonicalizer.get();
+        if (!canonicalizer.parse(url)) {
+            return null;
+        }
+        // The offsets now point into the canonical string, so the checks below see the normalized path
+        String canonical = canonicalizer.canonicalize();
+        if (!shouldProcess(canonicalizer) || !visit(canonical)) {
+            return null;
+        }
+        return canonical;
+    }
 
-            return true;
+    private static boolean shouldProcess(UrlCanonicalizer canonicalizer) {
+        if (canonicalizer.hasBinaryExtension()) {
+            return false;
+        }
 
-        } catch (Exception e) {
+        if (!isAllowedByRobotsTxt(canonicalizer)) {
             return false;
         }
+
+        return true;
     }
 
-    public static void applyPolitenessDelay(String url) {
-        try {
-            URL parsedUrl = new URL(url);
-            String domain = parsedUrl.getHost();
-
-            Long lastAccess = lastAccessTimes.get(domain);
-            if (lastAccess != null) {
-                long timeSinceLastAccess = System.currentTimeMillis() - lastAccess;
-                if (timeSinceLastAccess < POLITENESS_DELAY) {
-                    try {
-                        Thread.sleep(POLITENESS_DELAY - timeSinceLastAccess);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                }
-            }
-
-            lastAccessTimes.put(domain, System.currentTimeMillis());
-
-        } catch (Exception e) {
-        }
+    public static String getHost(String url) {
+        UrlCanonicalizer canonicalizer = UrlCanonicalizer.get();
+        return canonicalizer.parse(url) ? canonicalizer.host() : null;
     }
 
-    private static boolean isAllowedByRobotsTxt(String url) {
-        try {
-            URL parsedUrl = new URL(url);
-            String domain = parsedUrl.getHost();
-            String path = parsedUrl.getPath();
-
-            if (!robotsDisallowRules.containsKey(domain)) {
-                fetchRobotsTxtRules(parsedUrl);
-            }
-
-            Set<String> disallowRules = robotsDisallowRules.get(domain);
-            if (disallowRules != null) {
-                for (String rule : disallowRules) {
-                    if (path.startsWith(rule)) {
-                        return false;
-                    }
-                }
-            }
+    // Minimum time between two requests to the same host: the adaptive per-host delay, or robots Crawl-delay if longer
+    public static long getPolitenessDelay(String host) {
+        return Math.max(HostRateController.getInstance().getDelayMillis(host), RobotsCache.getInstance().getCrawlDelayMillis(host));
+    }
 
-            return true;
-        } catch (Exception e) {
-            return true;
+    // Warms the DNS and robots.txt caches for the URL's host without waiting for either. Called when a host first
+    // enters the frontier.
+    public static void prefetchHost(String url) {
+        UrlCanonicalizer canonicalizer = UrlCanonicalizer.get();
+        if (!canonicalizer.parse(url)) {
+            return;
+        }
+        CrawlerConfig config = CrawlerConfig.getInstance();
+        if (config.isDnsCacheEnabled()) {
+            DnsCache.getInstance().prefetch(canonicalizer.host());
+        }
+        if (config.isRespectRobotsTxt()) {
+            RobotsCache.getInstance().prefetch(canonicalizer.scheme(), canonicalizer.authority(), canonicalizer.host());
         }
     }
 
-    // Fetch and parse robots.txt for a domain
-    private static void fetchRobotsTxtRules(URL url) {
-        try {
-            String domain = url.getHost();
-            String robotsUrl = url.getProtocol() + "://" + domain + "/robots.txt";
-
-            Document robotsTxt = Jsoup.connect(robotsUrl).timeout(3000).get();
-            String content = robotsTxt.text();
-
-            Set<String> disallowRules = new HashSet<>();
-            Scanner scanner = new Scanner(content);
-            boolean relevantUserAgent = false;
-
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine().trim();
-
-                if (line.toLowerCase().startsWith("user-agent:")) {
-                    String agent = line.substring(11).trim();
-                    relevantUserAgent = agent.equals("*") || agent.contains("bot");
-                }
-                else if (relevantUserAgent && line.toLowerCase().startsWith("disallow:")) {
-                    String path = line.substring(9).trim();
-                    if (!path.isEmpty()) {
-                        disallowRules.add(path);
-                    }
-                }
-            }
-            scanner.close();
-
-            robotsDisallowRules.put(domain, disallowRules);
-
-        } catch (IOException e) {
-            robotsDisallowRules.put(url.getHost(), new HashSet<>());
+    private static boolean isAllowedByRobotsTxt(UrlCanonicalizer canonicalizer) {
+        if (!CrawlerConfig.getInstance().isRespectRobotsTxt()) {
+            return true;
         }
+        RobotsCache robots = RobotsCache.getInstance();
+        String scheme = canonicalizer.scheme();
+        String authority = canonicalizer.authority();
+        String host = canonicalizer.host();
+        if (canonicalizer.hasEmptyPath()) {
+            return robots.isAllowed(scheme, authority, host, "/", 0, 1);
+        }
+        return robots.isAllowed(scheme, authority, host, canonicalizer.source(), canonicalizer.pathStart(), canonicalizer.queryEnd());
     }
 
     public static int getVisitedCount() {
-        return visitedUrls.size();
+        return (int) Math.min(Integer.MAX_VALUE, visitedUrls.size());
+    }
+
+    public static double getVisitedBytesPerUrl() {
+        long count = visitedUrls.size();
+        return count == 0 ? 0 : (double) visitedUrls.memoryBytes() / count;
+    }
+
+    public static long getVisitedMemoryBytes() {
+        return visitedUrls.memoryBytes();
     }
 
     public static boolean isVisited(String url) {
@@ -0,0 +1,254 @@
+package Crawler;
+
+// Single-pass URL parser and canonicalizer. parse() records the offsets of each component in the source string
+// without copying it; the instance is meant to be reused (one per thread), so checks that only need the host,
+// the path or the extension cost no allocation. canonical() builds the normalized form: lower-case scheme and
+// host, no default port, no fragment, dot-segments removed and an empty path written as "/".
+public final class UrlCanonicalizer {
+    private static final String[] BINARY_EXTENSIONS = {
+            "jpg", "jpeg", "png", "gif", "bmp", "webp", "mp3", "mp4", "wav", "avi", "mov", "wmv", "flv", "pdf",
+            "doc", "docx", "xls", "xlsx", "ppt", "pptx", "zip", "rar", "tar", "gz", "exe", "dmg", "iso", "bin"
+    };
+
+    private final StringBuilder buffer = new StringBuilder(256);
+    private String url;
+    private boolean https;
+    private int authorityStart;
+    private int hostStart;
+    private int hostEnd;
+    private int port;
+    private int pathStart;
+    private int pathEnd;
+    private int queryEnd;
+    // Where canonical() put the host and the path in the string it built
+    private int canonicalHostStart;
+    private int canonicalPathStart;
+    private int canonicalPathEnd;
+
+    private static final ThreadLocal<UrlCanonicalizer> PER_THREAD = ThreadLocal.withInitial(UrlCanonicalizer::new);
+
+    public static UrlCanonicalizer get() {
+        return PER_THREAD.get();
+    }
+
+    // Returns false for anything that is not an absolute http(s) URL with a host
+    public boolean parse(String url) {
+        this.url = url;
+        if (url == null) {
+            return false;
+        }
+        int length = url.length();
+        int schemeEnd;
+        if (url.regionMatches(true, 0, "http://", 0, 7)) {
+            https = false;
+            schemeEnd = 4;
+        } else if (url.regionMatches(true, 0, "https://", 0, 8)) {
+            https = true;
+            schemeEnd = 5;
+        } else {
+            return false;
+        }
+
+        authorityStart = schemeEnd + 3;
+        int authorityEnd = authorityStart;
+        while (authorityEnd < length) {
+            char c = url.charAt(authorityEnd);
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            }
+            authorityEnd++;
+        }
+
+        hostStart = authorityStart;
+        for (int i = authorityEnd - 1; i >= authorityStart; i--) {
+            if (url.charAt(i) == '@') {
+                hostStart = i + 1;
+                break;
+            }
+        }
+
+        // The port starts at the last ':' that is not inside an IPv6 literal
+        hostEnd = authorityEnd;
+        port = -1;
+        int searchFrom = hostStart;
+        if (hostStart < authorityEnd && url.charAt(hostStart) == '[') {
+            int bracket = url.indexOf(']', hostStart);
+            if (bracket < 0 || bracket >= authorityEnd) {
+                return false;
+            }
+            searchFrom = bracket;
+        }
+        for (int i = authorityEnd - 1; i >= searchFrom; i--) {
+            if (url.charAt(i) == ':') {
+                hostEnd = i;
+                if (i + 1 < authorityEnd) {
+                    port = 0;
+                    for (int j = i + 1; j < authorityEnd; j++) {
+                        char c = url.charAt(j);
+                        port = port * 10 + (c - '0');
+                        if (c < '0' || c > '9' || port > 65535) {
+                            return false;
+                        }
+                    }
+                }
+                break;
+            }
+        }
+        if (hostEnd == hostStart) {
+            return false;
+        }
+
+        pathStart = authorityEnd;
+        pathEnd = pathStart;
+        while (pathEnd < length && url.charAt(pathEnd) != '?' && url.charAt(pathEnd) != '#') {
+            pathEnd++;
+        }
+        queryEnd = pathEnd;
+        if (queryEnd < length && url.charAt(queryEnd) == '?') {
+            while (queryEnd < length && url.charAt(queryEnd) != '#') {
+                queryEnd++;
+            }
+        }
+        return true;
+    }
+
+    public String scheme() {
+        return https ? "https" : "http";
+    }
+
+    public String host() {
+        return toLowerCase(hostStart, hostEnd);
+    }
+
+    // host[:port] with the default port left out
+    public String authority() {
+        buffer.setLength(0);
+        appendAuthority();
+        return buffer.toString();
+    }
+
+    // The string the offsets refer to
+    public String source() {
+        return url;
+    }
+
+    public int pathStart() {
+        return pathStart;
+    }
+
+    // End of the query, or of the path if there is no query
+    public int queryEnd() {
+        return queryEnd;
+    }
+
+    public boolean hasEmptyPath() {
+        return pathStart == pathEnd;
+    }
+
+    // Suffix check on the last path segment, in place of a regex over the whole URL
+    public boolean hasBinaryExtension() {
+        int dot = -1;
+        for (int i = pathEnd - 1; i >= pathStart; i--) {
+            char c = url.charAt(i);
+            if (c == '.') {
+                dot = i;
+                break;
+            }
+            if (c == '/') {
+                return false;
+            }
+        }
+        if (dot < 0) {
+            return false;
+        }
+        int extensionLength = pathEnd - dot - 1;
+        for (String extension : BINARY_EXTENSIONS) {
+            if (extension.length() == extensionLength && url.regionMatches(true, dot + 1, extension, 0, extensionLength)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String canonical() {
+        buffer.setLength(0);
+        buffer.append(scheme()).append("://");
+        if (hostStart > authorityStart) {
+            buffer.append(url, authorityStart, hostStart);
+        }
+        canonicalHostStart = buffer.length();
+        appendAuthority();
+        canonicalPathStart = buffer.length();
+        appendNormalizedPath();
+        canonicalPathEnd = buffer.length();
+        if (queryEnd > pathEnd + 1) {
+            buffer.append(url, pathEnd, queryEnd);
+        }
+        return buffer.toString();
+    }
+
+    // canonical(), after which the offsets refer to the canonical string: the checks that follow see the normalized
+    // path without parsing the URL a second time
+    public String canonicalize() {
+        String canonical = canonical();
+        int hostLength = hostEnd - hostStart;
+        url = canonical;
+        authorityStart = scheme().length() + 3;
+        hostStart = canonicalHostStart;
+        hostEnd = hostStart + hostLength;
+        pathStart = canonicalPathStart;
+        pathEnd = canonicalPathEnd;
+        queryEnd = canonical.length();
+        return canonical;
+    }
+
+    private void appendAuthority() {
+        for (int i = hostStart; i < hostEnd; i++) {
+            buffer.append(Character.toLowerCase(url.charAt(i)));
+        }
+        if (port >= 0 && port != (https ? 443 : 80)) {
+            buffer.append(':').append(port);
+        }
+    }
+
+    // RFC 3986 remove_dot_segments, written straight into the buffer
+    private void appendNormalizedPath() {
+        int base = buffer.length();
+        int i = pathStart;
+        while (i < pathEnd) {
+            int segmentStart = url.charAt(i) == '/' ? i + 1 : i;
+            int segmentEnd = segmentStart;
+            while (segmentEnd < pathEnd && url.charAt(segmentEnd) != '/') {
+                segmentEnd++;
+            }
+            int segmentLength = segmentEnd - segmentStart;
+            boolean last = segmentEnd >= pathEnd;
+
+            if (segmentLength == 1 && url.charAt(segmentStart) == '.') {
+                if (last) {
+                    buffer.append('/');
+                }
+            } else if (segmentLength == 2 && url.charAt(segmentStart) == '.' && url.charAt(segmentStart + 1) == '.') {
+                int slash = buffer.lastIndexOf("/");
+                buffer.setLength(Math.max(base, slash));
+                if (last) {
+                    buffer.append('/');
+                }
+            } else {
+                buffer.append('/').append(url, segmentStart, segmentEnd);
+            }
+            i = segmentEnd;
+        }
+        if (buffer.length() == base) {
+            buffer.append('/');
+        }
+    }
+
+    private String toLowerCase(int start, int end) {
+        buffer.setLength(0);
+        for (int i = start; i < end; i++) {
+            buffer.append(Character.toLowerCase(url.charAt(i)));
+        }
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package Crawler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Virtual-thread execution mode. A single dispatcher drains the frontier and starts one virtual thread per
+// in-flight fetch. Concurrency is bounded by a global and a per-host semaphore rather than by a pool size.
+public class VirtualThreadDispatcher implements Runnable {
+    private static final Logger logger = Logger.getLogger(VirtualThreadDispatcher.class.getName());
+
+    private final Frontier queue;
+    private final WorkerThread worker;
+    private final long startTime;
+    private final long timeoutMillis;
+    private final int maxInFlight;
+    private final int maxInFlightPerHost;
+    private final Semaphore inFlight;
+    // Only hosts with a fetch running or waiting have an entry, so the map does not grow with the crawl
+    private final Map<String, HostPermits> hostPermits = new ConcurrentHashMap<>();
+
+    public VirtualThreadDispatcher(Frontier queue, WorkerThread worker, long startTime,
+                                   long timeoutMillis, int maxInFlight, int maxInFlightPerHost) {
+        this.queue = queue;
+        this.worker = worker;
+        this.startTime = startTime;
+        this.timeoutMillis = timeoutMillis;
+        this.maxInFlight = maxInFlight;
+        this.maxInFlightPerHost = maxInFlightPerHost;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public void run() {
+        // close() waits for every in-flight fetch to finish
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (WorkerThread.isRunning() && System.currentTimeMillis() - startTime < timeoutMillis) {
+                if (!inFlight.tryAcquire(500, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+
+                WorkerThread.UrlDepthPair pair = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (pair == null || !WorkerThread.isRunning()) {
+                    inFlight.release();
+                    continue;
+                }
+
+                executor.execute(() -> fetch(pair));
+            }
+            logger.info("Stopping crawling, waiting for " + (maxInFlight - inFlight.availablePermits()) + " in-flight fetches...");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.WARNING, "Dispatcher interrupted", e);
+        }
+    }
+
+    private void fetch(WorkerThread.UrlDepthPair pair) {
+        String host = URLManager.getHost(pair.url());
+        HostPermits permits = host == null ? null : enter(host);
+        boolean acquired = false;
+        try {
+            if (permits != null) {
+                permits.semaphore.acquire();
+                acquired = true;
+            }
+            worker.process(pair);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (permits != null) {
+                if (acquired) {
+                    permits.semaphore.release();
+                }
+                leave(host);
+            }
+            inFlight.release();
+        }
+    }
+
+    // users is only changed inside compute, which the map runs atomically per host, so an entry is removed only
+    // when nobody holds or waits for one of its permits
+    private HostPermits enter(String host) {
+        return hostPermits.compute(host, (h, permits) -> {
+            HostPermits entry = permits == null ? new HostPermits(maxInFlightPerHost) : permits;
+            entry.users++;
+            return entry;
+        });
+    }
+
+    private void leave(String host) {
+        hostPermits.computeIfPresent(host, (h, permits) -> --permits.users == 0 ? null : permits);
+    }
+
+    private static final class HostPermits {
+        private final Semaphore semaphore;
+        private int users;
+
+        private HostPermits(int permits) {
+            this.semaphore = new Semaphore(permits);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package Crawler;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// Set of URLs that have already been claimed for crawling.
+public interface VisitedStore {
+
+    // Returns true if the URL was not seen before
+    boolean add(String url);
+
+    boolean contains(String url);
+
+    long size();
+
+    // Approximate memory held by the store, used to report bytes per URL
+    long memoryBytes();
+
+    // Writes the contents for a checkpoint. Safe to call while other threads keep adding URLs.
+    void save(DataOutputStream out) throws IOException;
+
+    // Adds the contents of a checkpoint written by save() on a store of the same type and size
+    void load(DataInputStream in) throws IOException;
+
+    static VisitedStore fromConfig(CrawlerConfig config) {
+        return switch (config.getVisitedStore()) {
+            case STRING -> new StringVisitedStore();
+            case FINGERPRINT -> new FingerprintVisitedStore(config.getVisitedExpectedUrls(), false);
+            case OFF_HEAP -> new FingerprintVisitedStore(config.getVisitedExpectedUrls(), true);
+            case BLOOM -> new BloomVisitedStore(config.getVisitedExpectedUrls(), config.getVisitedFalsePositiveRate());
+        };
+    }
+
+    enum Type {
+        STRING,         // exact, full URL strings on the heap
+        FINGERPRINT,    // exact up to 64-bit hash collisions, 8 bytes per slot on the heap
+        OFF_HEAP,       // same as FINGERPRINT with the tables in direct memory
+        BLOOM           // fixed memory, configurable false-positive rate
+    }
+}
@@ -1,51 +1,413 @@
 package Crawler;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Scanner;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.*;
 
 public class WebCrawler {
     private static final Logger logger = Logger.getLogger(WebCrawler.class.getName());
-    private static final int MONITORING_INTERVAL_MS = 30000;
     private static final int TERMINATION_WAIT_MS = 5000;
+    private static final String CONFIG_FILE = "crawler.properties";
+    private static final String ENV_PREFIX = "CRAWLER_";
+    // Command-line options that set a configuration key
+    private static final Map<String, String> OPTION_KEYS = Map.of(
+            "--keyword", "keyword",
+            "--seeds", "seed_urls",
+            "--max-time", "timeout_minutes",
+            "--max-depth", "max_depth",
+            "--relevance", "min_relevance_score",
+            "--threads", "max_threads",
+            "--output", "output_file");
 
+    // Settings come from crawler.properties (or --config), then CRAWLER_* environment variables, then the command
+    // line, each overriding the one before. With a keyword from any of them the crawl runs headless; without
+    // one, the keyword, seeds, time and depth are prompted for.
     public static void main(String[] args) {
-        Scanner scanner = new Scanner(System.in);
+        boolean resume = false;
+        String configFile = System.getenv().getOrDefault(ENV_PREFIX + "CONFIG", CONFIG_FILE);
+        boolean configRequired = System.getenv().containsKey(ENV_PREFIX + "CONFIG");
+        Properties commandLine = new Properties();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                String value = null;
+                int equals = option.indexOf('=');
+                if (option.startsWith("--") && equals > 0) {
+                    value = option.substring(equals + 1);
+                    option = option.substring(0, equals);
+                }
+                switch (option) {
+                    case "--resume" -> resume = true;
+                    case "--help", "-h" -> {
+                        printUsage();
+                        return;
+                    }
+                    case "--config" -> {
+                        configFile = value != null ? value : optionValue(args, ++i, option);
+                        configRequired = true;
+                    }
+                    case "--set" -> {
+                        String setting = value != null ? value : optionValue(args, ++i, option);
+                        int separator = setting.indexOf('=');
+                        if (separator <= 0) {
+                            throw new IllegalArgumentException("--set expects key=value, got: " + setting);
+                        }
+                        commandLine.setProperty(setting.substring(0, separator).trim(), setting.substring(separator + 1).trim());
+                    }
+                    default -> {
+                        String key = OPTION_KEYS.get(option);
+                        if (key == null) {
+                            throw new IllegalArgumentException("Unknown option: " + option);
+                        }
+                        commandLine.setProperty(key, value != null ? value : optionValue(args, ++i, option));
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(2);
+        }
 
-        logger.info("Enter keyword to search for: ");
-        String keyword = scanner.nextLine().trim();
+        CrawlerConfig config = CrawlerConfig.getInstance();
+        Properties props = new Properties();
+        if (Files.exists(Paths.get(configFile))) {
+            try (InputStream in = Files.newInputStream(Paths.get(configFile))) {
+                props.load(in);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Could not read " + configFile, e);
+                System.exit(2);
+            }
+        } else if (configRequired) {
+            logger.severe("Configuration file not found: " + configFile);
+            System.exit(2);
+        }
+        // Everything laid over the file; kept so that a reloaded file cannot undo it
+        Properties overrides = new Properties();
+        System.getenv().forEach((name, value) -> {
+            if (name.startsWith(ENV_PREFIX) && !name.equals(ENV_PREFIX + "CONFIG")) {
+                overrides.setProperty(name.substring(ENV_PREFIX.length()).toLowerCase(Locale.ROOT), value);
+            }
+        });
+        overrides.putAll(commandLine);
+        props.putAll(overrides);
+        try {
+            config.load(props, configFile + ", environment and command line");
+        } catch (IllegalArgumentException e) {
+            logger.severe("Invalid configuration: " + e.getMessage());
+            System.exit(2);
+        }
+        if (config.isDnsCacheEnabled()) {
+            DnsCache.disableJvmCache();
+        }
+        VisitedStore visitedStore = VisitedStore.fromConfig(config);
+        URLManager.useVisitedStore(visitedStore);
 
-        logger.info("Enter seed URLs (comma-separated) or press Enter to use Google Search:");
-        String seedUrlsInput = scanner.nextLine().trim();
+        String keyword = config.getKeyword().trim();
+        List<String> seedUrls = config.getSeedUrls();
+        long crawlTimeMillis = config.getTimeoutMillis();
+        int maxDepth = config.getMaxDepth();
+        Scanner scanner = null;
+        if (keyword.isEmpty()) {
+            scanner = new Scanner(System.in);
+            keyword = promptForKeyword(scanner);
+            System.out.print("Enter seed URLs (comma-separated) or press Enter to use "
+                    + (seedUrls.isEmpty() ? "the " + config.getSeedProvider().name().toLowerCase() + " seed provider" : "the configured seeds") + ": ");
+            String seedUrlsInput = scanner.hasNextLine() ? scanner.nextLine().trim() : "";
+            if (!seedUrlsInput.isEmpty()) {
+                seedUrls = Arrays.asList(seedUrlsInput.split(","));
+            }
+            crawlTimeMillis = promptForTimeout(scanner, config);
+            maxDepth = promptForMaxDepth(scanner, config);
 
-        logger.info("Enter maximum crawl time in minutes [default: 10]: ");
-        String crawlTimeInput = scanner.nextLine().trim();
-        long crawlTimeMillis = (crawlTimeInput.isEmpty() ? 10 : Integer.parseInt(crawlTimeInput)) * 60 * 1000;
+            // Answers count as command-line settings
+            overrides.setProperty("keyword", keyword);
+            overrides.setProperty("seed_urls", String.join(",", seedUrls));
+            overrides.setProperty("timeout_minutes", String.valueOf(crawlTimeMillis / 60000));
+            overrides.setProperty("max_depth", String.valueOf(maxDepth));
+            props.putAll(overrides);
+            config.load(props, configFile + ", environment, command line and prompts");
+        }
+        double minRelevanceScore = config.getMinRelevanceScore();
 
-        logger.info("Enter maximum crawl depth [default: 3]: ");
-        String maxDepthInput = scanner.nextLine().trim();
-        int maxDepth = maxDepthInput.isEmpty() ? 3 : Integer.parseInt(maxDepthInput);
+        Frontier queue;
+        HostQueueFrontier persistentQueue = null;
+        DiskFrontier diskFrontier = null;
+        if (config.isFrontierPersistent()) {
+            Path frontierDir = Paths.get(config.getFrontierDir());
+            CrawlCheckpoint checkpoint = null;
+            try {
+                if (resume && CrawlCheckpoint.exists(frontierDir)) {
+                    checkpoint = CrawlCheckpoint.read(frontierDir, visitedStore);
+                    diskFrontier = DiskFrontier.resume(frontierDir, config.getFrontierSegmentBytes(), checkpoint.position());
+                } else {
+                    if (resume) {
+                        logger.warning("No checkpoint found in " + frontierDir + "; starting a fresh crawl");
+                    }
+                    diskFrontier = DiskFrontier.create(frontierDir, config.getFrontierSegmentBytes());
+                }
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Could not open the frontier in " + frontierDir, e);
+                return;
+            }
+            if (config.getFrontierType() != CrawlerConfig.FrontierType.HOST_QUEUE) {
+                logger.warning("frontier_type=" + config.getFrontierType().name().toLowerCase()
+                        + " cannot be checkpointed; using the host queue frontier");
+            }
+            persistentQueue = new HostQueueFrontier(diskFrontier, config.getFrontierHeadCapacity());
+            if (checkpoint != null) {
+                checkpoint.buffered().forEach(persistentQueue::offer);
+            }
+            queue = persistentQueue;
+        } else {
+            if (resume) {
+                logger.warning("--resume needs frontier_persistent=true; starting a fresh crawl");
+            }
+            queue = switch (config.getFrontierType()) {
+                case WORK_STEALING -> new WorkStealingFrontier(config.getFrontierLocalCapacity());
+                // Host queues keep politeness over a small head of the best URLs
+                case BEST_FIRST -> new HostQueueFrontier(new BestFirstFrontier(config.getBestFirstCapacity()),
+                        config.getBestFirstHeadCapacity(), config.getBestFirstHeadHostCapacity(),
+                        config.getBestFirstCapacity());
+                case HOST_QUEUE -> new HostQueueFrontier();
+            };
+        }
 
-        double minRelevanceScore = 1.0;
+        ClusterNode clusterNode = null;
+        if (!config.getClusterSelf().isBlank()) {
+            clusterNode = ClusterNode.fromConfig(queue);
+            try {
+                clusterNode.start();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Could not start cluster node " + config.getClusterSelf(), e);
+                return;
+            }
+            queue = new PartitionedFrontier(queue, clusterNode);
+        }
 
-        BlockingQueue<WorkerThread.UrlDepthPair> queue = new LinkedBlockingQueue<>();
+        ResultSink resultSink;
+        try {
+            resultSink = switch (config.getResultFormat()) {
+                case JSON -> NdjsonResultSink.fromConfig(config.getOutputFile());
+                case ARCHIVE -> ArchiveResultSink.fromConfig();
+                case BOTH -> ResultSink.tee(NdjsonResultSink.fromConfig(config.getOutputFile()), ArchiveResultSink.fromConfig());
+            };
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not open result output", e);
+            return;
+        }
+        PageMetadataStore metadataStore = null;
+        if (config.isRecrawlEnabled()) {
+            try {
+                metadataStore = PageMetadataStore.fromConfig(keyword);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not load page metadata from " + config.getMetadataFile() + "; fetching every page", e);
+            }
+        }
+        CrawlPipeline pipeline = CrawlPipeline.fromConfig(queue, keyword, maxDepth, minRelevanceScore, resultSink);
+        MetricsHttpServer metricsServer = startMetrics(queue, pipeline, config.getMetricsPort());
+        ScheduledExecutorService checkpointer = diskFrontier == null ? null
+                : startCheckpointThread(persistentQueue, diskFrontier, visitedStore, config.getCheckpointIntervalMillis());
+        WorkerPool workerPool = config.getExecutionMode() == CrawlerConfig.ExecutionMode.VIRTUAL ? null
+                : new WorkerPool(config.getMaxThreads(), namedThreads("crawl-worker"));
+        ExecutorService crawlers = workerPool == null
+                ? Executors.newSingleThreadExecutor(namedThreads("crawl-dispatcher"))
+                : workerPool.executor();
+        HostQueueFrontier checkpointedQueue = persistentQueue;
+        ClusterNode startedNode = clusterNode;
+        DiskFrontier checkpointedFrontier = diskFrontier;
+        PageMetadataStore savedMetadata = metadataStore;
+        AtomicBoolean finished = new AtomicBoolean(false);
+        // Whoever calls this second waits until the first is done, so the JVM cannot exit halfway through
+        Runnable finish = () -> {
+            synchronized (finished) {
+                if (finished.getAndSet(true)) {
+                    return;
+                }
+                pipeline.close();
+                if (startedNode != null) {
+                    startedNode.close();
+                }
+                resultSink.close();
+                if (savedMetadata != null) {
+                    try {
+                        savedMetadata.save();
+                    } catch (IOException e) {
+                        logger.log(Level.WARNING, "Failed to save page metadata", e);
+                    }
+                }
+                if (checkpointer != null) {
+                    checkpointer.shutdownNow();
+                    writeCheckpoint(checkpointedQueue, checkpointedFrontier, visitedStore);
+                }
+                if (!config.getMetricsFile().isBlank()) {
+                    writeMetricsFile(config.getMetricsFile());
+                }
+                if (metricsServer != null) {
+                    metricsServer.close();
+                }
+            }
+        };
+        // On SIGTERM or Ctrl-C the workers stop taking URLs and get shutdown_drain_ms to finish their fetches.
+        // Pages already fetched are still parsed and scored, and results, metadata and the checkpoint are written.
+        long drainMillis = config.getShutdownDrainMillis();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            WorkerThread.stop();
+            crawlers.shutdown();
+            awaitTermination(crawlers, drainMillis);
+            finish.run();
+        }, "shutdown"));
 
-        if (seedUrlsInput.isEmpty()) {
-            logger.info("No seed URLs entered. Using Google Custom Search to find seed URLs...");
-            WorkerThread worker = new WorkerThread(queue, keyword, System.currentTimeMillis(), crawlTimeMillis, maxDepth, minRelevanceScore, "output/result.json");
+        if (!queue.isEmpty()) {
+            logger.info("Resuming crawl with " + queue.size() + " pending URLs");
+        } else if (seedUrls.isEmpty()) {
+            logger.info("No seed URLs given. Fetching seed URLs from the " + config.getSeedProvider().name().toLowerCase() + " seed provider...");
+            WorkerThread worker = new WorkerThread(queue, System.currentTimeMillis(), crawlTimeMillis, maxDepth, pipeline);
             worker.fetchAndAddSeedUrls(keyword);
         } else {
-            String[] seedUrls = seedUrlsInput.split(",");
-            for (String url : seedUrls) {
-                queue.add(new WorkerThread.UrlDepthPair(url.trim(), 1));
+            initializeQueueWithSeedUrls(queue, seedUrls);
+        }
+        if (metadataStore != null && metadataStore.size() > 0) {
+            logger.info("Revisiting " + metadataStore.offerDue(queue, maxDepth) + " of " + metadataStore.size() + " known pages");
+        }
+
+        logCrawlerConfiguration(keyword, crawlTimeMillis, maxDepth, config);
+        if (scanner != null) {
+            WorkerThread.startKeyListenerThread(scanner);
+        }
+        long startTime = System.currentTimeMillis();
+        ScheduledExecutorService monitor = startMonitoringThread(pipeline, startTime, config.getStatsIntervalMillis());
+        WorkerThread dispatchWorker = null;
+        if (workerPool == null) {
+            logger.info("Using virtual threads, up to " + config.getMaxInFlight() + " fetches in flight");
+            dispatchWorker = new WorkerThread(queue, startTime, crawlTimeMillis, maxDepth, pipeline, metadataStore);
+            crawlers.execute(new VirtualThreadDispatcher(queue, dispatchWorker, startTime, crawlTimeMillis,
+                    config.getMaxInFlight(), config.getMaxInFlightPerHost()));
+        } else {
+            startWorkerThreads(workerPool, queue, startTime, crawlTimeMillis, pipeline, metadataStore);
+        }
+        WorkerThread virtualWorker = dispatchWorker;
+        config.addListener((previous, current) -> applyReload(previous, current, pipeline, workerPool, virtualWorker));
+        ConfigWatcher configWatcher = startConfigWatcher(configFile, overrides, config);
+
+        try {
+            if (workerPool != null) {
+                workerPool.awaitCompletion();
+            } else {
+                crawlers.shutdown();
+            }
+            awaitTermination(crawlers, Long.MAX_VALUE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (configWatcher != null) {
+                configWatcher.close();
             }
+            monitor.shutdownNow();
+            finish.run();
+            logCrawlerCompletion(!WorkerThread.isRunning(), startTime, pipeline);
         }
+    }
 
-        WorkerThread worker = new WorkerThread(queue, keyword, System.currentTimeMillis(), crawlTimeMillis, maxDepth, minRelevanceScore, "output/result.json");
-        new Thread(worker).start();
+    private static String optionValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args[index];
+    }
+
+    private static void printUsage() {
+        System.err.println("""
+                Usage: java -jar web-crawler.jar [options]
+                  --keyword <text>      keyword(s) to score pages against; runs without prompts
+                  --seeds <urls>        comma-separated seed URLs (default: the seed provider)
+                  --max-time <minutes>  crawl time limit
+                  --max-depth <n>       maximum link depth
+                  --relevance <score>   minimum relevance score for a result
+                  --threads <n>         worker threads
+                  --output <file>       result file
+                  --config <file>       properties file (default: crawler.properties)
+                  --set <key>=<value>   any other configuration key
+                  --resume              continue from the last checkpoint
+                Any configuration key can also be set as an environment variable, e.g. CRAWLER_MAX_THREADS=8.""");
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> new Thread(r, prefix + "-" + count.incrementAndGet());
+    }
+
+    private static void awaitTermination(ExecutorService executor, long timeoutMillis) {
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                logger.warning("Workers still busy after " + timeoutMillis + " ms; finishing without them");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Registers crawl gauges and the JMX bean, and serves /metrics when a port is configured
+    private static MetricsHttpServer startMetrics(Frontier queue, CrawlPipeline pipeline, int port) {
+        CrawlMetrics metrics = CrawlMetrics.getInstance();
+        metrics.registerGauge("crawler_frontier_size", "URLs waiting in the frontier", queue::size);
+        metrics.registerGauge("crawler_pipeline_backlog", "Pages waiting to be parsed or scored", pipeline::getBacklog);
+        metrics.registerGauge("crawler_visited_urls", "URLs claimed for crawling", URLManager::getVisitedCount);
+        metrics.registerCounter("crawler_results_total", "Pages that met the minimum relevance score", pipeline::getMatchedCount);
+        metrics.registerMBean();
+
+        if (port == 0) {
+            return null;
+        }
+        try {
+            return new MetricsHttpServer(port);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not serve metrics on port " + port, e);
+            return null;
+        }
+    }
+
+    // The final values of everything /metrics serves, for batch runs that exit before anyone could scrape them
+    private static void writeMetricsFile(String file) {
+        try {
+            Path path = Paths.get(file).toAbsolutePath();
+            Files.createDirectories(path.getParent());
+            Files.writeString(path, CrawlMetrics.getInstance().toPrometheusText());
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to write metrics to " + file, e);
+        }
+    }
+
+    private static ScheduledExecutorService startCheckpointThread(HostQueueFrontier queue, DiskFrontier diskFrontier,
+                                                                  VisitedStore visitedStore, long intervalMillis) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> writeCheckpoint(queue, diskFrontier, visitedStore),
+                intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        return scheduler;
+    }
+
+    private static void writeCheckpoint(HostQueueFrontier queue, DiskFrontier diskFrontier, VisitedStore visitedStore) {
+        try {
+            CrawlCheckpoint.write(Paths.get(CrawlerConfig.getInstance().getFrontierDir()), queue, diskFrontier, visitedStore);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to write checkpoint", e);
+        }
     }
 
 
@@ -94,11 +456,11 @@ public class WebCrawler {
         }
     }
 
-    private static int initializeQueueWithSeedUrls(BlockingQueue<WorkerThread.UrlDepthPair> queue, CrawlerConfig config) throws InterruptedException {
+    private static int initializeQueueWithSeedUrls(Frontier queue, List<String> seedUrls) {
         int seedCount = 0;
-        for (String url : config.getSeedUrls()) {
-            if (URLManager.shouldProcess(url)) {
-                queue.put(new WorkerThread.UrlDepthPair(url, 0));
+        for (String url : seedUrls) {
+            String seed = url.trim();
+            if (!seed.isEmpty() && queue.offer(new WorkerThread.UrlDepthPair(seed, 1))) {
                 seedCount++;
             }
         }
@@ -109,54 +471,105 @@ public class WebCrawler {
         Files.createDirectories(Paths.get(outputFile).getParent());
     }
 
-    private static void logCrawlerConfiguration(String keyword, CrawlerConfig config) {
+    private static void logCrawlerConfiguration(String keyword, long timeoutMillis, int maxDepth, CrawlerConfig config) {
         logger.info("Starting crawler with keyword: " + keyword);
         logger.info("Max threads: " + config.getMaxThreads());
-        logger.info("Max depth: " + config.getMaxDepth());
-        logger.info("Timeout: " + (config.getTimeoutMillis() / 60000) + " minutes");
-        logger.info("Output file: " + config.getOutputFile());
-    }
-
-    private static void startWorkerThreads(ExecutorService executor, BlockingQueue<WorkerThread.UrlDepthPair> queue, String keyword, long startTime, long timeoutMillis, int maxDepth, double minRelevanceScore, String outputFile) {
-        for (int i = 0; i < CrawlerConfig.getInstance().getMaxThreads(); i++) {
-            executor.execute(new WorkerThread(
-                    queue,
-                    keyword,
-                    startTime,
-                    timeoutMillis,
-                    maxDepth,
-                    minRelevanceScore,
-                    outputFile
-            ));
+        logger.info("Max depth: " + maxDepth);
+        logger.info("Timeout: " + (timeoutMillis / 60000) + " minutes");
+        if (config.getResultFormat() != CrawlerConfig.ResultFormat.ARCHIVE) {
+            logger.info("Output file: " + config.getOutputFile());
+        }
+        if (config.getResultFormat() != CrawlerConfig.ResultFormat.JSON) {
+            logger.info("Archive file: " + config.getArchiveFile());
         }
     }
 
-    private static void startMonitoringThread(ExecutorService executor, long startTime, long timeoutMillis) {
-        new Thread(() -> {
-            try {
-                while (!executor.isTerminated() &&
-                        System.currentTimeMillis() - startTime < timeoutMillis) {
-                    Thread.sleep(MONITORING_INTERVAL_MS);
+    // Workers added when max_threads is raised later take the max_depth of that moment
+    private static void startWorkerThreads(WorkerPool workerPool, Frontier queue, long startTime, long timeoutMillis,
+                                           CrawlPipeline pipeline, PageMetadataStore metadataStore) {
+        workerPool.start(CrawlerConfig.getInstance().getMaxThreads(), () -> new WorkerThread(
+                queue,
+                startTime,
+                timeoutMillis,
+                CrawlerConfig.getInstance().getMaxDepth(),
+                pipeline,
+                metadataStore
+        ));
+    }
 
-                    long elapsedSeconds = (System.currentTimeMillis() - startTime) / 1000;
-                    int visitedCount = URLManager.getVisitedCount();
+    private static ConfigWatcher startConfigWatcher(String configFile, Properties overrides, CrawlerConfig config) {
+        if (!config.isConfigReloadEnabled() || !Files.exists(Paths.get(configFile))) {
+            return null;
+        }
+        try {
+            return new ConfigWatcher(Paths.get(configFile), overrides, config);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not watch " + configFile + " for changes", e);
+            return null;
+        }
+    }
 
-                    System.out.printf("Status: %d URLs processed in %d seconds (%.2f URLs/sec)%n",
-                            visitedCount, elapsedSeconds,
-                            elapsedSeconds > 0 ? (double) visitedCount / elapsedSeconds : 0);
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.warning("Monitoring thread interrupted.");
+    // max_threads, politeness_delay, max_depth and min_relevance_score change the running crawl. Everything else
+    // is read when the part of the crawler that uses it starts, which for most settings means the next run.
+    private static void applyReload(CrawlerConfig.Snapshot previous, CrawlerConfig.Snapshot current, CrawlPipeline pipeline,
+                                    WorkerPool workerPool, WorkerThread dispatchWorker) {
+        if (current.maxThreads() != previous.maxThreads()) {
+            if (workerPool != null) {
+                workerPool.resize(current.maxThreads());
+            } else {
+                logger.info("max_threads has no effect with virtual threads; max_in_flight applies on the next run");
             }
-        }).start();
+        }
+        if (current.politenessDelay() != previous.politenessDelay()) {
+            logger.info("Politeness delay: " + previous.politenessDelay() + " ms -> " + current.politenessDelay() + " ms");
+            HostRateController.getInstance().setPolitenessDelay(current.politenessDelay());
+        }
+        if (current.maxDepth() != previous.maxDepth()) {
+            logger.info("Max depth: " + previous.maxDepth() + " -> " + current.maxDepth());
+            pipeline.setMaxDepth(current.maxDepth());
+            if (workerPool != null) {
+                workerPool.setMaxDepth(current.maxDepth());
+            } else {
+                dispatchWorker.setMaxDepth(current.maxDepth());
+            }
+        }
+        if (current.minRelevanceScore() != previous.minRelevanceScore()) {
+            logger.info("Minimum relevance score: " + previous.minRelevanceScore() + " -> " + current.minRelevanceScore());
+            pipeline.setMinRelevanceScore(current.minRelevanceScore());
+        }
+    }
+
+    // Logs throughput for each fixed window since the start, so batch runs can be compared window by window
+    private static ScheduledExecutorService startMonitoringThread(CrawlPipeline pipeline, long startTime, long intervalMillis) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "crawl-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long[] previous = new long[2];
+        scheduler.scheduleAtFixedRate(() -> {
+            long pages = CrawlMetrics.getInstance().getPagesFetched();
+            long results = pipeline.getMatchedCount();
+            long elapsedSeconds = (System.currentTimeMillis() - startTime) / 1000;
+            logger.info(String.format("Window: %d pages (%.2f pages/sec), %d results; total %d pages in %d seconds, visited set %.1f bytes/URL",
+                    pages - previous[0], (pages - previous[0]) * 1000.0 / intervalMillis, results - previous[1],
+                    pages, elapsedSeconds, URLManager.getVisitedBytesPerUrl()));
+            previous[0] = pages;
+            previous[1] = results;
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        return scheduler;
     }
 
-    private static void logCrawlerCompletion(boolean completed, long startTime) {
+    private static void logCrawlerCompletion(boolean stopped, long startTime, CrawlPipeline pipeline) {
         long duration = System.currentTimeMillis() - startTime;
-        logger.info("Crawling " + (completed ? "completed" : "timed out") + " after " +
+        long pages = CrawlMetrics.getInstance().getPagesFetched();
+        logger.info("Crawling " + (stopped ? "stopped" : "timed out") + " after " +
                 (duration / 1000) + " seconds.");
+        logger.info(String.format("Pages fetched: %d (%.2f pages/sec), results: %d",
+                pages, duration > 0 ? pages * 1000.0 / duration : 0, pipeline.getMatchedCount()));
         logger.info("URLs visited: " + URLManager.getVisitedCount());
+        logger.info(String.format("Visited set memory: %d bytes (%.1f bytes/URL)",
+                URLManager.getVisitedMemoryBytes(), URLManager.getVisitedBytesPerUrl()));
     }
 
     private static void setupLogging() {
@@ -0,0 +1,270 @@
+package Crawler;
+
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Frontier without a global lock. Every thread that offers or polls gets its own shard: it pushes and pops its
+// own URLs LIFO, and threads that run dry steal the oldest URLs from other shards. Shards that grow past their
+// capacity spill into a shared overflow queue. Within a shard, shallower URLs always come out first.
+//
+// Politeness is enforced per host with a lock-free clock. A URL whose host is not eligible yet is parked on
+// the polling thread until it is, and the thread moves on to other work in the meantime.
+public class WorkStealingFrontier implements Frontier {
+    private static final int DEPTH_BUCKETS = 16;
+    // A thread holding this many parked URLs stops taking new work until some of them become due
+    private static final int MAX_PARKED = 1024;
+    private static final long MIN_IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int PRUNE_THRESHOLD = 65536;
+
+    private final int localCapacity;
+    private final List<Shard> shards = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Shard> localShard = ThreadLocal.withInitial(this::newShard);
+    private final Queue<Entry> overflow = new ConcurrentLinkedQueue<>();
+    private final ConcurrentMap<String, AtomicLong> hostClocks = new ConcurrentHashMap<>();
+    private final LongAdder size = new LongAdder();
+
+    public WorkStealingFrontier(int localCapacity) {
+        this.localCapacity = localCapacity;
+    }
+
+    @Override
+    public boolean offer(WorkerThread.UrlDepthPair pair) {
+        String host = URLManager.getHost(pair.url());
+        if (host == null) {
+            return false;
+        }
+        if (!hostClocks.containsKey(host) && hostClocks.putIfAbsent(host, new AtomicLong(System.nanoTime())) == null) {
+            URLManager.prefetchHost(pair.url());
+            if (hostClocks.size() > PRUNE_THRESHOLD) {
+                pruneIdleHosts();
+            }
+        }
+
+        Entry entry = new Entry(pair, host);
+        Shard shard = localShard.get();
+        if (shard.count.get() >= localCapacity) {
+            overflow.offer(entry);
+        } else {
+            shard.push(entry);
+        }
+        size.increment();
+        return true;
+    }
+
+    @Override
+    public WorkerThread.UrlDepthPair poll(long timeout, TimeUnit unit) {
+        Shard shard = localShard.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long idleNanos = MIN_IDLE_NANOS;
+        // Only time spent with parked entries, waiting for their hosts, is politeness wait
+        long politenessNanos = 0;
+
+        while (true) {
+            WorkerThread.UrlDepthPair pair = shard.takeDueParked(this);
+            if (pair != null) {
+                return taken(pair, politenessNanos);
+            }
+
+            while (shard.parked.size() < MAX_PARKED) {
+                Entry entry = shard.pop();
+                if (entry == null) {
+                    entry = overflow.poll();
+                }
+                if (entry == null) {
+                    entry = steal(shard);
+                }
+                if (entry == null) {
+                    break;
+                }
+                long due = tryAcquire(entry.host());
+                if (due == 0) {
+                    return taken(entry.pair(), politenessNanos);
+                }
+                shard.parked.add(new Parked(entry, due));
+            }
+
+            long now = System.nanoTime();
+            if (now - deadline >= 0) {
+                return null;
+            }
+            long wait = Math.min(idleNanos, deadline - now);
+            Parked next = shard.parked.peek();
+            if (next != null) {
+                wait = Math.min(wait, Math.max(0, next.dueNanos - now));
+            }
+            LockSupport.parkNanos(wait);
+            if (next != null) {
+                politenessNanos += System.nanoTime() - now;
+            }
+            idleNanos = Math.min(idleNanos * 2, MAX_IDLE_NANOS);
+        }
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, size.sum());
+    }
+
+    // A retired worker's parked URLs would otherwise leave with its thread. They and the rest of its shard move to
+    // the overflow queue, where any thread picks them up, and they stay counted in size.
+    @Override
+    public void release() {
+        Shard shard = localShard.get();
+        localShard.remove();
+        shards.remove(shard);
+        Entry entry;
+        while ((entry = shard.steal()) != null) {
+            overflow.offer(entry);
+        }
+        Parked parked;
+        while ((parked = shard.parked.poll()) != null) {
+            overflow.offer(parked.entry());
+        }
+    }
+
+    private WorkerThread.UrlDepthPair taken(WorkerThread.UrlDepthPair pair, long politenessNanos) {
+        size.decrement();
+        CrawlMetrics.getInstance().recordPolitenessWait(politenessNanos);
+        return pair;
+    }
+
+    // Claims the next request slot for the host. Returns 0 on success, or the time the host becomes eligible or
+    // the rate controller lets it through again.
+    private long tryAcquire(String host) {
+        AtomicLong clock = hostClocks.computeIfAbsent(host, h -> new AtomicLong(System.nanoTime()));
+        long delay = TimeUnit.MILLISECONDS.toNanos(URLManager.getPolitenessDelay(host));
+        while (true) {
+            long eligible = clock.get();
+            long now = System.nanoTime();
+            if (now - eligible < 0) {
+                return eligible;
+            }
+            long holdMillis = HostRateController.getInstance().getWaitMillis(host);
+            if (holdMillis > 0) {
+                return now + TimeUnit.MILLISECONDS.toNanos(holdMillis);
+            }
+            if (clock.compareAndSet(eligible, now + delay)) {
+                return 0;
+            }
+        }
+    }
+
+    // Starts at a random shard so thieves spread out instead of all hitting the first one
+    private Entry steal(Shard thief) {
+        int count = shards.size();
+        if (count == 0) {
+            return null;
+        }
+        int start = ThreadLocalRandom.current().nextInt(count);
+        for (int i = 0; i < count; i++) {
+            Shard victim = shards.get((start + i) % count);
+            if (victim != thief && victim.count.get() > 0) {
+                Entry entry = victim.steal();
+                if (entry != null) {
+                    return entry;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Hosts whose delay has passed behave exactly like unseen hosts, so their clocks can be dropped
+    private void pruneIdleHosts() {
+        long now = System.nanoTime();
+        hostClocks.values().removeIf(clock -> now - clock.get() >= 0);
+    }
+
+    private Shard newShard() {
+        Shard shard = new Shard();
+        shards.add(shard);
+        return shard;
+    }
+
+    // The host is parsed once on offer and carried along for the politeness check
+    private record Entry(WorkerThread.UrlDepthPair pair, String host) {
+    }
+
+    private record Parked(Entry entry, long dueNanos) implements Comparable<Parked> {
+        @Override
+        public int compareTo(Parked other) {
+            return Long.compare(dueNanos, other.dueNanos);
+        }
+    }
+
+    private static final class Shard {
+        private final ConcurrentLinkedDeque<Entry>[] buckets;
+        private final AtomicInteger count = new AtomicInteger();
+        // Only ever touched by the owning thread
+        private final PriorityQueue<Parked> parked = new PriorityQueue<>();
+
+        @SuppressWarnings("unchecked")
+        private Shard() {
+            buckets = (ConcurrentLinkedDeque<Entry>[]) new ConcurrentLinkedDeque<?>[DEPTH_BUCKETS];
+            for (int i = 0; i < DEPTH_BUCKETS; i++) {
+                buckets[i] = new ConcurrentLinkedDeque<>();
+            }
+        }
+
+        private void push(Entry entry) {
+            buckets[bucketOf(entry.pair().depth())].offerLast(entry);
+            count.incrementAndGet();
+        }
+
+        // Owner side: newest URL of the shallowest depth
+        private Entry pop() {
+            if (count.get() == 0) {
+                return null;
+            }
+            for (ConcurrentLinkedDeque<Entry> bucket : buckets) {
+                Entry entry = bucket.pollLast();
+                if (entry != null) {
+                    count.decrementAndGet();
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        // Thief side: oldest URL of the shallowest depth, from the opposite end to the owner
+        private Entry steal() {
+            for (ConcurrentLinkedDeque<Entry> bucket : buckets) {
+                Entry entry = bucket.pollFirst();
+                if (entry != null) {
+                    count.decrementAndGet();
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        private WorkerThread.UrlDepthPair takeDueParked(WorkStealingFrontier frontier) {
+            long now = System.nanoTime();
+            while (!parked.isEmpty() && now - parked.peek().dueNanos >= 0) {
+                Parked next = parked.poll();
+                long due = frontier.tryAcquire(next.entry().host());
+                if (due == 0) {
+                    return next.entry().pair();
+                }
+                parked.add(new Parked(next.entry(), due));
+            }
+            return null;
+        }
+
+        private static int bucketOf(int depth) {
+            return Math.min(Math.max(depth, 0), DEPTH_BUCKETS - 1);
+        }
+    }
+}
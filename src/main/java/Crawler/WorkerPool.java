@@ -0,0 +1,102 @@
+package Crawler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+// The platform-thread workers of a crawl. Every worker is one long-running WorkerThread on its own pool thread,
+// so resizing the pool means starting more workers or retiring some. A retired worker finishes the URL in hand
+// before its thread goes away.
+public class WorkerPool {
+    private static final Logger logger = Logger.getLogger(WorkerPool.class.getName());
+
+    private final ThreadPoolExecutor executor;
+    // Workers that have not been retired or returned, oldest first
+    private final List<WorkerThread> workers = new ArrayList<>();
+    private Supplier<WorkerThread> workerFactory;
+
+    public WorkerPool(int size, ThreadFactory threadFactory) {
+        this.executor = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+    }
+
+    public ExecutorService executor() {
+        return executor;
+    }
+
+    public synchronized int size() {
+        return workers.size();
+    }
+
+    // The factory makes every worker, including those added by a later resize
+    public synchronized void start(int size, Supplier<WorkerThread> workerFactory) {
+        this.workerFactory = workerFactory;
+        resize(size);
+    }
+
+    // Starts or retires workers until size are running. Does nothing once the crawl is stopping.
+    public synchronized void resize(int size) {
+        if (workerFactory == null || executor.isShutdown() || !WorkerThread.isRunning()) {
+            return;
+        }
+        int current = workers.size();
+        if (size > current) {
+            // The maximum has to grow first and shrink last, it may never be below the core size
+            executor.setMaximumPoolSize(Math.max(size, executor.getMaximumPoolSize()));
+            executor.setCorePoolSize(size);
+            for (int i = current; i < size; i++) {
+                launch(workerFactory.get());
+            }
+        } else if (size < current) {
+            for (int i = current - 1; i >= size; i--) {
+                workers.remove(i).retire();
+            }
+            executor.setCorePoolSize(size);
+            executor.setMaximumPoolSize(size);
+        }
+        if (current > 0 && size != current) {
+            logger.info("Worker threads: " + current + " -> " + size);
+        }
+    }
+
+    public synchronized void setMaxDepth(int maxDepth) {
+        workers.forEach(worker -> worker.setMaxDepth(maxDepth));
+    }
+
+    // Waits until every worker has returned, then shuts the pool down
+    public void awaitCompletion() throws InterruptedException {
+        synchronized (this) {
+            while (!workers.isEmpty()) {
+                wait();
+            }
+        }
+        executor.shutdown();
+    }
+
+    private void launch(WorkerThread worker) {
+        workers.add(worker);
+        try {
+            executor.execute(() -> {
+                try {
+                    worker.run();
+                } finally {
+                    finished(worker);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The crawl is shutting down
+            workers.remove(worker);
+        }
+    }
+
+    private synchronized void finished(WorkerThread worker) {
+        workers.remove(worker);
+        notifyAll();
+    }
+}
@@ -1,20 +1,12 @@
 package Crawler;
 
-import io.github.cdimascio.dotenv.Dotenv;
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
-import java.net.URLEncoder;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Scanner;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
@@ -22,227 +14,275 @@ import java.util.logging.Logger;
 
 public class WorkerThread implements Runnable {
     private static final Logger logger = Logger.getLogger(WorkerThread.class.getName());
-    private static final Dotenv dotenv = Dotenv.load();
-
-    private static final String API_KEY = dotenv.get("GOOGLE_API_KEY");
-    private static final String SEARCH_ENGINE_ID = dotenv.get("GOOGLE_SEARCH_ENGINE_ID");
-    private static final String GOOGLE_SEARCH_URL = "https://www.googleapis.com/customsearch/v1";
 
-    private final BlockingQueue<UrlDepthPair> queue;
-    private final String keyword;
+    private final Frontier queue;
     private final long startTime;
     private final long timeoutMillis;
-    private final int maxDepth;
-    private final double minRelevanceScore;
-    private final String outputFile;
+    private volatile int maxDepth;
+    private final CrawlPipeline pipeline;
+    private final PageMetadataStore metadataStore;
+    private final int maxBodyBytes;
+    private volatile boolean retired;
     private static final AtomicInteger processedUrlCount = new AtomicInteger(0);
-    private static final AtomicInteger matchedUrlCount = new AtomicInteger(0);
     private static volatile boolean running = true;
+    private static SeedProvider seedProvider;
+
+    public WorkerThread(Frontier queue, long startTime, long timeoutMillis, int maxDepth, CrawlPipeline pipeline) {
+        this(queue, startTime, timeoutMillis, maxDepth, pipeline, null);
+    }
 
-    public WorkerThread(BlockingQueue<UrlDepthPair> queue, String keyword, long startTime,
-                        long timeoutMillis, int maxDepth, double minRelevanceScore, String outputFile) {
+    // With a metadata store, known pages are only fetched when due and then conditionally
+    public WorkerThread(Frontier queue, long startTime, long timeoutMillis, int maxDepth,
+                        CrawlPipeline pipeline, PageMetadataStore metadataStore) {
         this.queue = queue;
-        this.keyword = keyword.toLowerCase();
         this.startTime = startTime;
         this.timeoutMillis = timeoutMillis;
         this.maxDepth = maxDepth;
-        this.minRelevanceScore = minRelevanceScore;
-        this.outputFile = outputFile;
+        this.pipeline = pipeline;
+        this.metadataStore = metadataStore;
+        this.maxBodyBytes = CrawlerConfig.getInstance().getMaxBodyBytes();
     }
 
     @Override
     public void run() {
-        startKeyListenerThread();
-
         try {
-            if (queue.isEmpty()) {
-                logger.info("Queue is empty, performing Google Custom Search to seed the URLs...");
-                fetchAndAddSeedUrls(keyword);
-            }
-
-            while (running && (System.currentTimeMillis() - startTime < timeoutMillis)) {
+            while (running && !retired && (System.currentTimeMillis() - startTime < timeoutMillis)) {
                 UrlDepthPair pair = queue.poll(500, TimeUnit.MILLISECONDS);
                 if (!running) break;
 
                 if (pair == null) continue;
 
-                String url = pair.url();
-                int depth = pair.depth();
-
-                if (depth > maxDepth) {
-                    continue;
-                }
-
-                if (URLManager.shouldProcess(url) && URLManager.visit(url)) {
-                    crawl(url, depth);
-                }
-
-                int processed = processedUrlCount.get();
-                if (processed % 100 == 0) {
-                    logger.info(String.format("Progress: %d URLs processed, %d matches found",
-                            processed, matchedUrlCount.get()));
-                }
+                process(pair);
             }
             logger.info("Stopping crawling...");
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             logger.log(Level.WARNING, "Worker thread interrupted", e);
+        } finally {
+            queue.release();
+        }
+    }
+
+    // Crawls a single dequeued URL. Safe to call from several threads on the same instance.
+    void process(UrlDepthPair pair) {
+        String url = pair.url();
+        int depth = pair.depth();
+
+        if (depth > maxDepth) {
+            return;
+        }
+
+        String canonicalUrl = URLManager.claim(url);
+        if (canonicalUrl != null) {
+            crawl(canonicalUrl, depth);
+        }
+
+        int processed = processedUrlCount.get();
+        if (processed % 100 == 0) {
+            logger.info(String.format("Progress: %d URLs processed, %d matches found, visited set %.1f bytes/URL",
+                    processed, pipeline.getMatchedCount(), URLManager.getVisitedBytesPerUrl()));
         }
     }
 
-    private void startKeyListenerThread() {
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    // This worker finishes the URL in hand, if any, and returns; the others carry on
+    void retire() {
+        retired = true;
+    }
+
+    static boolean isRunning() {
+        return running;
+    }
+
+    // Workers finish the page in hand and return; nothing new is taken from the frontier
+    static void stop() {
+        running = false;
+    }
+
+    // Started once per process. The scanner must be the one that read the prompts, or input it buffered is lost.
+    // When stdin is closed or not a terminal there is no key to wait for, so the crawl runs until it times out.
+    static void startKeyListenerThread(Scanner scanner) {
         Thread keyListenerThread = new Thread(() -> {
-            System.out.println("Press any key to stop crawling...");
-            try (Scanner scanner = new Scanner(System.in)) {
+            System.out.println("Press Enter to stop crawling...");
+            if (scanner.hasNextLine()) {
                 scanner.nextLine();
-                running = false;
+                stop();
                 System.out.println("Stopping crawler...");
             }
-        });
+        }, "key-listener");
         keyListenerThread.setDaemon(true);
         keyListenerThread.start();
     }
 
+    // Fetch stage: download the page and hand it to the parse stage
     private void crawl(String url, int depth) {
         try {
             logger.info("Crawling: " + url + " (depth: " + depth + ")");
             processedUrlCount.incrementAndGet();
 
-
-            JSONObject searchResults = fetchGoogleSearchResults(keyword);
-            if (searchResults == null) {
+            PageMetadataStore.Entry previous = metadataStore == null ? null : metadataStore.get(url);
+            if (previous != null && !previous.isDue(System.currentTimeMillis())) {
+                metadataStore.recordNotDue();
+                logger.fine("Skipping " + url + ": not due for a revisit");
                 return;
             }
 
-            JSONArray items = searchResults.optJSONArray("items");
-            if (items == null) {
+            // A URL that cannot be requested fails here, before it takes a slot on its host
+            URI uri = URI.create(url);
+            String host = URLManager.getHost(url);
+            HostRateController rateController = HostRateController.getInstance();
+            rateController.acquire(host);
+            long fetchStart = System.nanoTime();
+            HttpResponse<InputStream> response = null;
+            PageBody body = null;
+            int status = 0;
+            boolean ioFailure = false;
+            try {
+                response = HttpFetcher.getInstance().send(uri, builder -> addValidators(builder, previous),
+                        HttpResponse.BodyHandlers.ofInputStream());
+                status = response.statusCode();
+                // Only HTML is read, and only up to the size limit; closing the stream early abandons the rest
+                try (InputStream in = response.body()) {
+                    if (status == 200 && isHtml(contentTypeOf(response))) {
+                        body = PageBody.read(in, maxBodyBytes);
+                    } else if (status == 200) {
+                        CrawlMetrics.getInstance().recordSkippedBody();
+                    }
+                }
+            } catch (IOException e) {
+                ioFailure = true;
+                throw e;
+            } finally {
+                long fetchNanos = System.nanoTime() - fetchStart;
+                if (response != null || ioFailure) {
+                    rateController.onRequestComplete(host, status, fetchNanos,
+                            response == null ? null : response.headers().firstValue("Retry-After").orElse(null));
+                    CrawlMetrics.getInstance().recordFetch(host, status, fetchNanos, body == null ? 0 : body.length());
+                } else {
+                    // Interrupted, or failed before the request went out: the host says nothing about its load
+                    rateController.release(host);
+                }
+            }
+            if (status == 304 && previous != null) {
+                metadataStore.recordNotModified(previous, System.currentTimeMillis());
                 return;
             }
-
-            for (int i = 0; i < items.length(); i++) {
-                JSONObject item = items.getJSONObject(i);
-                String resultUrl = item.getString("link");
-                String title = item.optString("title", "No Title");
-                String snippet = item.optString("snippet", "No Snippet");
-
-
-                double relevanceScore = calculateRelevanceScore(snippet);
-
-                if (relevanceScore >= minRelevanceScore) {
-                    JSONObject result = new JSONObject();
-                    result.put("url", resultUrl);
-                    result.put("title", title);
-                    result.put("content", snippet);
-                    result.put("relevance_score", relevanceScore);
-                    result.put("crawl_depth", depth);
-                    result.put("crawl_time", System.currentTimeMillis());
-
-                    saveData(result);
-                    matchedUrlCount.incrementAndGet();
-                }
+            if (status != 200) {
+                logger.fine("Skipping " + url + ": HTTP " + status);
+                return;
+            }
+            if (body != null && body.isTruncated()) {
+                CrawlMetrics.getInstance().recordTruncatedBody();
+                logger.fine("Truncated " + url + " at " + maxBodyBytes + " bytes");
             }
-        } catch (Exception e) {
-            logger.log(Level.WARNING, "Failed to crawl: " + url, e);
-        }
-    }
 
-    void fetchAndAddSeedUrls(String keyword) {
-        try {
-            JSONObject searchResults = fetchGoogleSearchResults(keyword);
-            if (searchResults == null) {
+            // Nothing on an unchanged page needs parsing or scoring again. Pages that are not HTML are remembered
+            // with a hash of 0 so their validators still save the next fetch.
+            long contentHash = body == null ? 0 : body.hash();
+            if (metadataStore != null && !metadataStore.recordFetch(url, depth, response.headers().firstValue("ETag").orElse(null),
+                    response.headers().firstValue("Last-Modified").orElse(null), contentHash, System.currentTimeMillis())) {
+                logger.fine("Skipping " + url + ": unchanged since the last crawl");
+                release(body);
+                return;
+            }
+            if (body == null) {
                 return;
             }
 
-            JSONArray items = searchResults.optJSONArray("items");
-            if (items != null) {
-                for (int i = 0; i < items.length(); i++) {
-                    JSONObject item = items.getJSONObject(i);
-                    String resultUrl = item.getString("link");
-
-
-                    queue.put(new UrlDepthPair(resultUrl, 1));
-                }
+            // Redirects may land somewhere else; links on the page resolve against the final location
+            String finalUrl = URLManager.canonicalize(response.uri().toString());
+            if (finalUrl == null) {
+                body.release();
+                return;
+            }
+            if (!finalUrl.equals(url)) {
+                URLManager.visit(finalUrl);
             }
+
+            String charset = charsetOf(contentTypeOf(response));
+            pipeline.submit(new CrawlPipeline.FetchedPage(finalUrl, depth, body, charset == null ? body.sniffCharset() : charset));
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            logger.log(Level.WARNING, "Error while adding seed URLs to the queue", e);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to crawl: " + url, e);
         }
     }
 
-    private JSONObject fetchGoogleSearchResults(String query) {
-        try {
-
-            String encodedQuery = URLEncoder.encode(query, StandardCharsets.UTF_8.toString());
-            String requestUrl = String.format("%s?q=%s&key=%s&cx=%s", GOOGLE_SEARCH_URL, encodedQuery, API_KEY, SEARCH_ENGINE_ID);
+    private static void addValidators(HttpRequest.Builder builder, PageMetadataStore.Entry previous) {
+        if (previous == null) {
+            return;
+        }
+        if (previous.etag() != null) {
+            builder.header("If-None-Match", previous.etag());
+        }
+        if (previous.lastModified() != null) {
+            builder.header("If-Modified-Since", previous.lastModified());
+        }
+    }
 
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(requestUrl))
-                    .GET()
-                    .build();
+    private static String contentTypeOf(HttpResponse<?> response) {
+        return response.headers().firstValue("Content-Type").orElse("");
+    }
 
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    // A missing Content-Type is given the benefit of the doubt
+    private static boolean isHtml(String contentType) {
+        return contentType.isEmpty() || contentType.toLowerCase().contains("html");
+    }
 
-            if (response.statusCode() == 200) {
-                return new JSONObject(response.body());
-            } else {
-                logger.warning("Failed to fetch search results: " + response.body());
-                return null;
-            }
-        } catch (IOException | InterruptedException e) {
-            logger.log(Level.WARNING, "Error fetching Google search results", e);
-            return null;
+    private static void release(PageBody body) {
+        if (body != null) {
+            body.release();
         }
     }
 
-    private double calculateRelevanceScore(String text) {
-        int keywordCount = 0;
-        int index = text.toLowerCase().indexOf(keyword);
-
-        while (index != -1) {
-            keywordCount++;
-            index = text.toLowerCase().indexOf(keyword, index + 1);
+    private static String charsetOf(String contentType) {
+        int index = contentType.toLowerCase().indexOf("charset=");
+        if (index < 0) {
+            return null;
         }
-
-        return keywordCount * 1.0;
+        String charset = contentType.substring(index + 8).trim();
+        int end = charset.indexOf(';');
+        return (end >= 0 ? charset.substring(0, end) : charset).replace("\"", "").trim();
     }
 
-    private synchronized void saveData(JSONObject result) {
-
-        File outputFile = new File("output/result.json");
-
+    void fetchAndAddSeedUrls(String keyword) {
+        List<String> seeds;
         try {
-
-            outputFile.getParentFile().mkdirs();
-
-            JSONArray resultsArray;
-
-
-            if (outputFile.exists() && outputFile.length() > 0) {
-                try (Scanner scanner = new Scanner(outputFile)) {
-                    StringBuilder jsonContent = new StringBuilder();
-                    while (scanner.hasNextLine()) {
-                        jsonContent.append(scanner.nextLine());
-                    }
-                    resultsArray = new JSONArray(jsonContent.toString());
-                }
-            } else {
-                resultsArray = new JSONArray();
-            }
-
-
-            resultsArray.put(result);
-
-
-            try (FileWriter writer = new FileWriter(outputFile, false)) {
-                writer.write(resultsArray.toString(4));
-            }
+            seeds = seedProvider().seeds(keyword, CrawlerConfig.getInstance().getSeedMaxResults());
         } catch (IOException e) {
-            logger.log(Level.WARNING, "Failed to save data to file", e);
+            logger.log(Level.WARNING, "Error fetching seed URLs", e);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.WARNING, "Interrupted while fetching seed URLs", e);
+            return;
+        }
+        if (seeds.isEmpty()) {
+            logger.warning("No seed URLs found for: " + keyword);
+        }
+        for (String seed : seeds) {
+            if (!queue.offer(new UrlDepthPair(seed, 1))) {
+                logger.warning("Could not add seed URL to the queue: " + seed);
+            }
         }
     }
 
+    // Shared so the quota count and metrics cover every seeding call in the process
+    private static synchronized SeedProvider seedProvider() {
+        if (seedProvider == null) {
+            seedProvider = SeedProvider.fromConfig(CrawlerConfig.getInstance());
+        }
+        return seedProvider;
+    }
 
-    public record UrlDepthPair(String url, int depth) {
+    // Priority orders URLs in the best-first frontier, from 0 to 1; other frontiers ignore it. URLs that were
+    // not scored, such as seeds, get the top priority.
+    public record UrlDepthPair(String url, int depth, double priority) {
+        public UrlDepthPair(String url, int depth) {
+            this(url, depth, 1.0);
+        }
     }
 }
@@ -0,0 +1,140 @@
+package Crawler;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+// XXH64 over byte arrays, used to tell whether a page body changed between crawls. Reads eight bytes at a time
+// through a little-endian view, so hashing a page costs well under a millisecond. The Hasher produces the same
+// value for a body read in chunks.
+public final class XxHash64 {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private XxHash64() {
+    }
+
+    public static long hash(byte[] data) {
+        return hash(data, 0, data.length, 0);
+    }
+
+    public static long hash(byte[] data, int offset, int length, long seed) {
+        int end = offset + length;
+        int position = offset;
+        long hash;
+
+        if (length >= 32) {
+            long[] lanes = {seed + PRIME1 + PRIME2, seed + PRIME2, seed, seed - PRIME1};
+            int limit = end - 32;
+            do {
+                stripe(lanes, data, position);
+                position += 32;
+            } while (position <= limit);
+            hash = merge(lanes);
+        } else {
+            hash = seed + PRIME5;
+        }
+        return finish(hash + length, data, position, end);
+    }
+
+    // Incremental form for bodies that arrive in chunks; gives the same result as hashing them concatenated
+    public static final class Hasher {
+        private final long seed;
+        private final long[] lanes;
+        private final byte[] pending = new byte[32];
+        private int pendingLength;
+        private long totalLength;
+
+        public Hasher(long seed) {
+            this.seed = seed;
+            this.lanes = new long[]{seed + PRIME1 + PRIME2, seed + PRIME2, seed, seed - PRIME1};
+        }
+
+        public void update(byte[] data, int offset, int length) {
+            totalLength += length;
+            if (pendingLength + length < 32) {
+                System.arraycopy(data, offset, pending, pendingLength, length);
+                pendingLength += length;
+                return;
+            }
+            if (pendingLength > 0) {
+                int fill = 32 - pendingLength;
+                System.arraycopy(data, offset, pending, pendingLength, fill);
+                stripe(lanes, pending, 0);
+                offset += fill;
+                length -= fill;
+                pendingLength = 0;
+            }
+            while (length >= 32) {
+                stripe(lanes, data, offset);
+                offset += 32;
+                length -= 32;
+            }
+            System.arraycopy(data, offset, pending, 0, length);
+            pendingLength = length;
+        }
+
+        public long digest() {
+            long hash = totalLength >= 32 ? merge(lanes) : seed + PRIME5;
+            return finish(hash + totalLength, pending, 0, pendingLength);
+        }
+    }
+
+    private static void stripe(long[] lanes, byte[] data, int position) {
+        lanes[0] = round(lanes[0], (long) LONG_LE.get(data, position));
+        lanes[1] = round(lanes[1], (long) LONG_LE.get(data, position + 8));
+        lanes[2] = round(lanes[2], (long) LONG_LE.get(data, position + 16));
+        lanes[3] = round(lanes[3], (long) LONG_LE.get(data, position + 24));
+    }
+
+    private static long merge(long[] lanes) {
+        long hash = Long.rotateLeft(lanes[0], 1) + Long.rotateLeft(lanes[1], 7) + Long.rotateLeft(lanes[2], 12) + Long.rotateLeft(lanes[3], 18);
+        for (long lane : lanes) {
+            hash = mergeRound(hash, lane);
+        }
+        return hash;
+    }
+
+    // Consumes the last, less than 32 bytes and mixes the result
+    private static long finish(long hash, byte[] data, int position, int end) {
+        while (position + 8 <= end) {
+            hash ^= round(0, (long) LONG_LE.get(data, position));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+            position += 8;
+        }
+        if (position + 4 <= end) {
+            hash ^= ((int) INT_LE.get(data, position) & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            position += 4;
+        }
+        while (position < end) {
+            hash ^= (data[position] & 0xFF) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+            position++;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long round(long accumulator, long lane) {
+        accumulator += lane * PRIME2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME1;
+    }
+
+    private static long mergeRound(long hash, long value) {
+        hash ^= round(0, value);
+        return hash * PRIME1 + PRIME4;
+    }
+}
@@ -0,0 +1,135 @@
+package Crawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterNodeTest {
+    private static final int VIRTUAL_NODES = 64;
+
+    @Test
+    void everyNodeBuildsTheSameRing() {
+        HashRing first = new HashRing(new LinkedHashSet<>(List.of("a:1", "b:2", "c:3")), VIRTUAL_NODES);
+        HashRing second = new HashRing(new LinkedHashSet<>(List.of("c:3", "a:1", "b:2")), VIRTUAL_NODES);
+        for (int i = 0; i < 10_000; i++) {
+            String host = "host" + i + ".test";
+            assertEquals(first.ownerOf(host), second.ownerOf(host), host);
+        }
+    }
+
+    @Test
+    void aJoiningMemberOnlyTakesHostsForItself() {
+        HashRing before = new HashRing(Set.of("a:1", "b:2", "c:3"), VIRTUAL_NODES);
+        HashRing after = before.withMember("d:4");
+        int moved = 0;
+        int hosts = 10_000;
+        for (int i = 0; i < hosts; i++) {
+            String host = "host" + i + ".test";
+            if (!before.ownerOf(host).equals(after.ownerOf(host))) {
+                assertEquals("d:4", after.ownerOf(host), host);
+                moved++;
+            }
+        }
+        // About a quarter of the hosts should move to the fourth member
+        assertTrue(moved > hosts / 8 && moved < hosts / 2, "moved " + moved);
+        assertSame(before, before.withMember("a:1"));
+    }
+
+    @Test
+    void linksForAnotherNodesHostsAreForwardedToIt() throws Exception {
+        String addressA = "127.0.0.1:" + freePort();
+        String addressB = "127.0.0.1:" + freePort();
+        QueueFrontier localA = new QueueFrontier();
+        QueueFrontier localB = new QueueFrontier();
+        try (ClusterNode nodeA = new ClusterNode(addressA, List.of(addressB), localA, VIRTUAL_NODES, 10, 50, 1000);
+             ClusterNode nodeB = new ClusterNode(addressB, List.of(addressA), localB, VIRTUAL_NODES, 10, 50, 1000)) {
+            nodeA.start();
+            nodeB.start();
+            PartitionedFrontier frontierA = new PartitionedFrontier(localA, nodeA);
+
+            String remoteHost = hostOwnedBy(nodeA, addressB);
+            String localHost = hostOwnedBy(nodeA, addressA);
+            assertEquals(addressB, nodeB.ownerOf(remoteHost));
+            assertTrue(frontierA.offer(new WorkerThread.UrlDepthPair("http://" + remoteHost + "/page", 3, 0.25)));
+            assertTrue(frontierA.offer(new WorkerThread.UrlDepthPair("http://" + localHost + "/page", 1, 0.5)));
+
+            WorkerThread.UrlDepthPair received = localB.poll(10, TimeUnit.SECONDS);
+            assertNotNull(received, "nothing arrived at the owning node");
+            assertEquals("http://" + remoteHost + "/page", received.url());
+            assertEquals(3, received.depth());
+            assertEquals(0.25, received.priority());
+
+            WorkerThread.UrlDepthPair kept = localA.poll(0, TimeUnit.SECONDS);
+            assertNotNull(kept);
+            assertEquals("http://" + localHost + "/page", kept.url());
+            assertNull(localA.poll(0, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void urlsLongerThanWriteUtfAllowsAreForwarded() throws Exception {
+        String addressA = "127.0.0.1:" + freePort();
+        String addressB = "127.0.0.1:" + freePort();
+        QueueFrontier localA = new QueueFrontier();
+        QueueFrontier localB = new QueueFrontier();
+        try (ClusterNode nodeA = new ClusterNode(addressA, List.of(addressB), localA, VIRTUAL_NODES, 10, 50, 1000);
+             ClusterNode nodeB = new ClusterNode(addressB, List.of(addressA), localB, VIRTUAL_NODES, 10, 50, 1000)) {
+            nodeA.start();
+            nodeB.start();
+            PartitionedFrontier frontierA = new PartitionedFrontier(localA, nodeA);
+
+            String url = "http://" + hostOwnedBy(nodeA, addressB) + "/" + "\u00e9".repeat(40_000);
+            assertTrue(frontierA.offer(new WorkerThread.UrlDepthPair(url, 2, 0.5)));
+
+            WorkerThread.UrlDepthPair received = localB.poll(10, TimeUnit.SECONDS);
+            assertNotNull(received, "nothing arrived at the owning node");
+            assertEquals(url, received.url());
+        }
+    }
+
+    private static String hostOwnedBy(ClusterNode node, String owner) {
+        for (int i = 0; ; i++) {
+            String host = "host" + i + ".test";
+            if (owner.equals(node.ownerOf(host))) {
+                return host;
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static final class QueueFrontier implements Frontier {
+        private final LinkedBlockingQueue<WorkerThread.UrlDepthPair> queue = new LinkedBlockingQueue<>();
+
+        @Override
+        public boolean offer(WorkerThread.UrlDepthPair pair) {
+            return queue.offer(pair);
+        }
+
+        @Override
+        public WorkerThread.UrlDepthPair poll(long timeout, TimeUnit unit) throws InterruptedException {
+            return queue.poll(timeout, unit);
+        }
+
+        @Override
+        public int size() {
+            return queue.size();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package Crawler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CrawlCheckpointTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void bufferedUrlsLongerThanWriteUtfAllowsAreCheckpointed() throws Exception {
+        DiskFrontier backlog = DiskFrontier.create(dir.resolve("frontier"), 1 << 20);
+        HostQueueFrontier frontier = new HostQueueFrontier(backlog, 10);
+        String url = "http://long.test/" + "\u00e9".repeat(40_000);
+        frontier.offer(new WorkerThread.UrlDepthPair(url, 3));
+        StringVisitedStore visited = new StringVisitedStore();
+        visited.add("http://long.test/");
+
+        CrawlCheckpoint.write(dir, frontier, backlog, visited);
+        StringVisitedStore restored = new StringVisitedStore();
+        List<WorkerThread.UrlDepthPair> buffered = CrawlCheckpoint.read(dir, restored).buffered();
+
+        assertEquals(1, buffered.size());
+        assertEquals(url, buffered.get(0).url());
+        assertEquals(3, buffered.get(0).depth());
+        assertEquals(1, restored.size());
+    }
+}
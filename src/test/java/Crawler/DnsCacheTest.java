@@ -0,0 +1,85 @@
+package Crawler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DnsCacheTest {
+    private static final long NEGATIVE_TTL_MILLIS = 200;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void repeatedLookupsAreAnsweredFromTheCache() throws IOException {
+        DnsCache cache = newCache();
+
+        InetAddress[] first = cache.resolve("site-a.test");
+        InetAddress[] second = cache.resolve("SITE-A.test");
+
+        assertArrayEquals(new byte[]{127, 0, 0, 1}, first[0].getAddress());
+        assertArrayEquals(first, second);
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void failuresAreRememberedForTheNegativeTtl() throws Exception {
+        DnsCache cache = newCache();
+
+        assertThrows(UnknownHostException.class, () -> cache.resolve("missing.test"));
+        assertThrows(UnknownHostException.class, () -> cache.resolve("missing.test"));
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+
+        Thread.sleep(NEGATIVE_TTL_MILLIS * 2);
+        assertThrows(UnknownHostException.class, () -> cache.resolve("missing.test"));
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    void prefetchedHostsAreCachedBeforeTheirFirstFetch() throws Exception {
+        DnsCache cache = newCache();
+
+        cache.prefetch("site-b.test");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.prefetches() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, cache.prefetches());
+
+        InetAddress[] addresses = cache.resolve("site-b.test");
+        assertArrayEquals(new byte[]{127, 0, 0, 2}, addresses[0].getAddress());
+        assertEquals(0, cache.misses());
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    void addressLiteralsAreNotPrefetched() throws IOException {
+        DnsCache cache = newCache();
+
+        cache.prefetch("127.0.0.1");
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.prefetches());
+    }
+
+    private DnsCache newCache() throws IOException {
+        Path hosts = dir.resolve("hosts");
+        Files.writeString(hosts, """
+                # stub resolver for tests
+                127.0.0.1 site-a.test
+                127.0.0.2 site-b.test site-c.test
+                """);
+        return new DnsCache(100, 60_000, NEGATIVE_TTL_MILLIS, 2, DnsCache.loadHostsFile(hosts));
+    }
+}
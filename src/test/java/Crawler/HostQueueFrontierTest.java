@@ -0,0 +1,48 @@
+package Crawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class HostQueueFrontierTest {
+    private static final int OTHER_HOSTS = 5;
+
+    @Test
+    void oneHostWithManyTopUrlsDoesNotCrowdOutTheOthers() throws InterruptedException {
+        HostQueueFrontier frontier = new HostQueueFrontier(new BestFirstFrontier(10_000), 16, 2, 10_000);
+        for (int i = 0; i < 1000; i++) {
+            frontier.offer(new WorkerThread.UrlDepthPair("http://busy.test/page" + i, 1, 0.9));
+        }
+        for (int i = 0; i < OTHER_HOSTS; i++) {
+            frontier.offer(new WorkerThread.UrlDepthPair("http://other" + i + ".test/", 1, 0.1));
+        }
+        assertEquals(1000 + OTHER_HOSTS, frontier.size());
+
+        // busy.test is held back by its politeness delay after its first URL, so the next polls go to the others
+        Set<String> polled = new HashSet<>();
+        for (int i = 0; i < OTHER_HOSTS + 1; i++) {
+            WorkerThread.UrlDepthPair pair = frontier.poll(1, TimeUnit.SECONDS);
+            assertNotNull(pair, "only polled " + polled);
+            polled.add(URLManager.getHost(pair.url()));
+        }
+        assertEquals(OTHER_HOSTS + 1, polled.size(), polled.toString());
+        assertEquals(1000 - 1, frontier.size());
+    }
+
+    @Test
+    void deferredUrlsKeepTheirOrderWithinAHost() throws InterruptedException {
+        HostQueueFrontier frontier = new HostQueueFrontier(new BestFirstFrontier(100), 4, 1, 100);
+        for (int i = 0; i < 3; i++) {
+            frontier.offer(new WorkerThread.UrlDepthPair("http://order.test/page" + i, 1, 0.5));
+        }
+
+        assertEquals(3, frontier.snapshot(() -> { }).size());
+        assertEquals("http://order.test/page0", frontier.poll(1, TimeUnit.SECONDS).url());
+        assertEquals(2, frontier.size());
+    }
+}
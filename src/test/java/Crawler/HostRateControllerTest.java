@@ -0,0 +1,45 @@
+package Crawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HostRateControllerTest {
+    private static final long POLITENESS_DELAY_MILLIS = 1000;
+    private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final HostRateController controller =
+            new HostRateController(true, POLITENESS_DELAY_MILLIS, 250, 60_000, 100, 1, 4, 2000);
+
+    @Test
+    void fastHostsAreFetchedMoreOftenThanThePolitenessDelay() throws InterruptedException {
+        controller.acquire("fast.test");
+        assertTrue(controller.getWaitMillis("fast.test") > 0, "one request at a time to begin with");
+        controller.onRequestComplete("fast.test", 200, FAST_NANOS, null);
+
+        for (int i = 0; i < 30; i++) {
+            controller.acquire("fast.test");
+            controller.onRequestComplete("fast.test", 200, FAST_NANOS, null);
+        }
+
+        assertEquals(250, controller.getDelayMillis("fast.test"));
+        controller.acquire("fast.test");
+        controller.acquire("fast.test");
+        assertEquals(0, controller.getWaitMillis("fast.test"), "a third request may already start");
+    }
+
+    @Test
+    void overloadedHostsBackOff() throws InterruptedException {
+        controller.acquire("busy.test");
+        controller.onRequestComplete("busy.test", 503, FAST_NANOS, null);
+        assertEquals(2 * POLITENESS_DELAY_MILLIS, controller.getDelayMillis("busy.test"));
+
+        controller.acquire("limited.test");
+        controller.onRequestComplete("limited.test", 429, FAST_NANOS, "30");
+        assertTrue(controller.getDelayMillis("limited.test") > POLITENESS_DELAY_MILLIS);
+        assertTrue(controller.getWaitMillis("limited.test") > 25_000, "Retry-After pauses the host");
+    }
+}
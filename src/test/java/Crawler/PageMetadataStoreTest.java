@@ -0,0 +1,41 @@
+package Crawler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PageMetadataStoreTest {
+    private static final long MIN_INTERVAL_MILLIS = 60_000;
+    private static final long MAX_INTERVAL_MILLIS = 3_600_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void longUrlsAndValidatorsSurviveASave() throws Exception {
+        Path file = dir.resolve("metadata.dat");
+        String url = "http://long.test/" + "\u00e9".repeat(40_000);
+        String etag = "\"" + "x".repeat(70_000) + "\"";
+        PageMetadataStore store = new PageMetadataStore(file, "java", MIN_INTERVAL_MILLIS, MAX_INTERVAL_MILLIS);
+        store.recordFetch(url, 2, etag, null, 42, 1000);
+        store.recordFetch("http://short.test/", 1, null, "Mon, 01 Jan 2024 00:00:00 GMT", 7, 1000);
+        store.save();
+
+        PageMetadataStore loaded = new PageMetadataStore(file, "java", MIN_INTERVAL_MILLIS, MAX_INTERVAL_MILLIS);
+        loaded.load();
+
+        assertEquals(2, loaded.size());
+        PageMetadataStore.Entry entry = loaded.get(url);
+        assertNotNull(entry);
+        assertEquals(url, entry.url());
+        assertEquals(etag, entry.etag());
+        assertNull(entry.lastModified());
+        assertEquals(42, entry.contentHash());
+        assertEquals("Mon, 01 Jan 2024 00:00:00 GMT", loaded.get("http://short.test/").lastModified());
+    }
+}
@@ -0,0 +1,59 @@
+package Crawler;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RobotsRulesTest {
+    private static final String AGENT = "MultithreadedWebCrawler/1.0";
+
+    @Test
+    void escapedAndPlainUnreservedCharactersMatchEachOther() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /p%7Eq
+                Disallow: /~joe/
+                Disallow: /a%2fb
+                """, AGENT);
+
+        assertFalse(rules.isAllowed("/p~q"));
+        assertFalse(rules.isAllowed("/p%7eq/page"));
+        assertFalse(rules.isAllowed("/%7Ejoe/index.html"));
+        assertFalse(rules.isAllowed("/%7ejoe/index.html"));
+        // An escaped '/' is not a path separator, so it only matches itself
+        assertFalse(rules.isAllowed("/a%2Fb"));
+        assertTrue(rules.isAllowed("/a/b"));
+        assertTrue(rules.isAllowed("/pq"));
+    }
+
+    @Test
+    void nonAsciiCharactersMatchTheirUtf8Escapes() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /caf\u00e9
+                Allow: /%E6%97%A5*$
+                Disallow: /\u65e5
+                """, AGENT);
+
+        assertFalse(rules.isAllowed("/caf%C3%A9/menu"));
+        assertFalse(rules.isAllowed("/caf\u00e9"));
+        assertTrue(rules.isAllowed("/\u65e5\u672c"));
+        assertTrue(rules.isAllowed("/cafe"));
+    }
+
+    @Test
+    void longestMatchStillDecides() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /docs/
+                Allow: /docs/%70ublic/
+                """, AGENT);
+
+        assertTrue(rules.isAllowed("/docs/public/index.html"));
+        assertFalse(rules.isAllowed("/docs/private/index.html"));
+        String path = "/docs/%70ublic/?q=%2f";
+        assertEquals("/docs/public/?q=%2F", RobotsRules.normalize(path, 0, path.length()));
+    }
+}
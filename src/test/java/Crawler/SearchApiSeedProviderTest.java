@@ -0,0 +1,50 @@
+package Crawler;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchApiSeedProviderTest {
+    private static final byte[] QUOTA_EXCEEDED =
+            "{\"error\":{\"code\":403,\"errors\":[{\"reason\":\"dailyLimitExceeded\"}]}}".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void anExhaustedQuotaStopsCallsEvenWithoutALimit() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/search", exchange -> {
+            calls.incrementAndGet();
+            exchange.sendResponseHeaders(403, QUOTA_EXCEEDED.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(QUOTA_EXCEEDED);
+            }
+        });
+        server.start();
+        try {
+            String endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/search";
+            SearchApiSeedProvider provider = new SearchApiSeedProvider(endpoint, "key", "cx", dir, 60_000, 0);
+            assertTrue(provider.seeds("java", 10).isEmpty());
+            assertTrue(provider.seeds("kotlin", 10).isEmpty());
+            assertEquals(1, calls.get());
+
+            // The exhausted quota is kept with the count, so the next run does not call either
+            SearchApiSeedProvider restarted = new SearchApiSeedProvider(endpoint, "key", "cx", dir, 60_000, 0);
+            assertTrue(restarted.seeds("scala", 10).isEmpty());
+            assertEquals(1, calls.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package Crawler;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UrlCanonicalizerTest {
+    private static final String[] URLS = {
+            "http://Example.COM",
+            "HTTPS://example.com:443/a/./b/../c.PDF?x=1#top",
+            "http://user:pw@Host.test:8080/dir/../file.html?",
+            "http://host.test:/path/",
+            "https://[2001:db8::1]:8443/a/b/../../c",
+            "http://host.test/a/b/..?q=a/b.jpg",
+            "http://host.test/./image.JPG#frag",
+    };
+
+    @Test
+    void canonicalizeLeavesTheOffsetsOfTheCanonicalString() {
+        UrlCanonicalizer single = new UrlCanonicalizer();
+        UrlCanonicalizer reparsed = new UrlCanonicalizer();
+        for (String url : URLS) {
+            assertTrue(single.parse(url), url);
+            String canonical = single.canonicalize();
+            assertTrue(reparsed.parse(canonical), canonical);
+
+            assertEquals(reparsed.source(), single.source(), url);
+            assertEquals(reparsed.host(), single.host(), url);
+            assertEquals(reparsed.authority(), single.authority(), url);
+            assertEquals(reparsed.pathStart(), single.pathStart(), url);
+            assertEquals(reparsed.queryEnd(), single.queryEnd(), url);
+            assertEquals(reparsed.hasEmptyPath(), single.hasEmptyPath(), url);
+            assertEquals(reparsed.hasBinaryExtension(), single.hasBinaryExtension(), url);
+            assertEquals(reparsed.canonical(), single.canonical(), url);
+        }
+    }
+}
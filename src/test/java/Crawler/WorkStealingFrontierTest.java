@@ -0,0 +1,32 @@
+package Crawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class WorkStealingFrontierTest {
+
+    @Test
+    void urlsParkedOnARetiredWorkerGoBackToTheOthers() throws Exception {
+        WorkStealingFrontier frontier = new WorkStealingFrontier(100);
+        Thread worker = new Thread(() -> {
+            for (int i = 0; i < 3; i++) {
+                frontier.offer(new WorkerThread.UrlDepthPair("http://parked.test/page" + i, 1));
+            }
+            // The first URL is taken and the other two are parked until the host's delay has passed
+            assertNotNull(frontier.poll(0, TimeUnit.MILLISECONDS));
+            assertNull(frontier.poll(10, TimeUnit.MILLISECONDS));
+            frontier.release();
+        });
+        worker.start();
+        worker.join();
+
+        assertEquals(2, frontier.size());
+        assertNotNull(frontier.poll(10, TimeUnit.SECONDS), "parked URLs were lost with the worker");
+        assertEquals(1, frontier.size());
+    }
+}